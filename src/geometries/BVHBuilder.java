@@ -15,12 +15,62 @@ public class BVHBuilder {
      * A smaller number leads to deeper trees, while a larger number leads to shallower trees.
      */
     private static final int MAX_OBJECTS_PER_LEAF = 4;
+    /**
+     * Maximum number of objects per leaf node of a compiled tree ({@link LinearBVH}).
+     * Its leaves test spheres and triangles in batches, so wider leaves pay off.
+     */
+    private static final int MAX_OBJECTS_PER_COMPILED_LEAF = 8;
     /**
      * Maximum depth of the BVH tree
      * This prevents infinite recursion and limits the tree's height.
      */
     private static final int MAX_DEPTH = 20;
 
+    /**
+     * Listener of the phases of the BVH builds, such as a tracer of the timeline
+     * of a render
+     */
+    @FunctionalInterface
+    public interface PhaseListener {
+        /**
+         * Called in the building thread when a phase of a build starts
+         * @param phase   the name of the phase
+         * @param objects amount of objects of the build
+         * @return the action to run when the phase ends, or null
+         */
+        Runnable phaseStarted(String phase, int objects);
+    }
+
+    /** The listener of the build phases, null if none */
+    private static volatile PhaseListener phaseListener = null;
+
+    /**
+     * Set the listener of the phases of the builds
+     * @param listener the listener, null to remove it
+     */
+    public static void setPhaseListener(PhaseListener listener) {
+        phaseListener = listener;
+    }
+
+    /**
+     * Report a phase of a build started to the listener
+     * @param phase   the name of the phase
+     * @param objects amount of objects of the build
+     * @return the action to run when the phase ends, null if none
+     */
+    private static Runnable startPhase(String phase, int objects) {
+        PhaseListener listener = phaseListener;
+        return listener == null ? null : listener.phaseStarted(phase, objects);
+    }
+
+    /**
+     * Report a phase of a build ended to the listener
+     * @param end the action returned when the phase started
+     */
+    private static void endPhase(Runnable end) {
+        if (end != null) end.run();
+    }
+
     /**
      * Build BVH automatically from a collection of geometries
      */
@@ -38,26 +88,77 @@ public class BVHBuilder {
         // Filter out objects without bounding boxes (like infinite planes)
         List<Intersectable> finiteObjects = new ArrayList<>();
         List<Intersectable> infiniteObjects = new ArrayList<>();
+        separate(objects, finiteObjects, infiniteObjects);
 
-        // Separate finite and infinite objects
-        for (Intersectable obj : objects) {
-            if (obj.getBoundingBox() != null) {
-                finiteObjects.add(obj);
+        // Build BVH for finite objects only
+        Intersectable bvhRoot = null;
+        if (!finiteObjects.isEmpty()) {
+            if (finiteObjects.size() == 1) {
+                bvhRoot = finiteObjects.get(0);
             } else {
-                infiniteObjects.add(obj);
+                Runnable phase = startPhase("SAH build", finiteObjects.size());
+                bvhRoot = buildBVHRecursive(finiteObjects, 0, MAX_OBJECTS_PER_LEAF);
+                endPhase(phase);
             }
         }
 
-        // Build BVH for finite objects only
+        return combineWithInfinite(bvhRoot, infiniteObjects);
+    }
+
+    /**
+     * Build BVH automatically from a collection of geometries and compile it into
+     * flat arrays ({@link LinearBVH})
+     * @param objects   List of intersectable objects
+     * @param precision Storage precision of the compiled node bounds
+     * @return The root of the scene structure, or null if there are no objects
+     */
+    public static Intersectable buildBVH(List<Intersectable> objects, Precision precision) {
+        if (objects.isEmpty()) {
+            return null;
+        }
+
+        List<Intersectable> finiteObjects = new ArrayList<>();
+        List<Intersectable> infiniteObjects = new ArrayList<>();
+        separate(objects, finiteObjects, infiniteObjects);
+
         Intersectable bvhRoot = null;
         if (!finiteObjects.isEmpty()) {
-            if (finiteObjects.size() == 1) {
-                bvhRoot = finiteObjects.get(0);
+            Runnable phase = startPhase("SAH build", finiteObjects.size());
+            Intersectable tree = buildBVHRecursive(finiteObjects, 0, MAX_OBJECTS_PER_COMPILED_LEAF);
+            endPhase(phase);
+            phase = startPhase("compile", finiteObjects.size());
+            bvhRoot = new LinearBVH(tree, precision);
+            endPhase(phase);
+        }
+
+        return combineWithInfinite(bvhRoot, infiniteObjects);
+    }
+
+    /**
+     * Separate finite objects from infinite ones (objects without bounding boxes)
+     * @param objects         List of intersectable objects
+     * @param finiteObjects   Destination of the objects with bounding boxes
+     * @param infiniteObjects Destination of the objects without bounding boxes
+     */
+    private static void separate(List<Intersectable> objects,
+                                 List<Intersectable> finiteObjects,
+                                 List<Intersectable> infiniteObjects) {
+        for (Intersectable obj : objects) {
+            if (obj.getBoundingBox() != null) {
+                finiteObjects.add(obj);
             } else {
-                bvhRoot = buildBVHRecursive(finiteObjects, 0);
+                infiniteObjects.add(obj);
             }
         }
+    }
 
+    /**
+     * Combine the BVH of the finite objects with the infinite objects
+     * @param bvhRoot         The root of the BVH, or null if there are no finite objects
+     * @param infiniteObjects List of the objects without bounding boxes
+     * @return The combined structure
+     */
+    private static Intersectable combineWithInfinite(Intersectable bvhRoot, List<Intersectable> infiniteObjects) {
         // If we have infinite objects, create a combined structure
         if (!infiniteObjects.isEmpty()) {
             Geometries infiniteGroup = new Geometries();
@@ -84,11 +185,12 @@ public class BVHBuilder {
      * Recursively build the BVH using SAH
      * @param objects List of intersectable objects
      * @param depth Current depth in the BVH tree
+     * @param maxObjectsPerLeaf Maximum number of objects per leaf node
      * @return The root of the BVH
      */
-    private static Intersectable buildBVHRecursive(List<Intersectable> objects, int depth) {
+    private static Intersectable buildBVHRecursive(List<Intersectable> objects, int depth, int maxObjectsPerLeaf) {
         // Base cases
-        if (objects.size() <= MAX_OBJECTS_PER_LEAF || depth >= MAX_DEPTH) {
+        if (objects.size() <= maxObjectsPerLeaf || depth >= MAX_DEPTH) {
             return createLeafNode(objects);
         }
 
@@ -100,8 +202,8 @@ public class BVHBuilder {
         }
 
         // Recursively build left and right subtrees
-        Intersectable left = buildBVHRecursive(bestSplit.leftObjects, depth + 1);
-        Intersectable right = buildBVHRecursive(bestSplit.rightObjects, depth + 1);
+        Intersectable left = buildBVHRecursive(bestSplit.leftObjects, depth + 1, maxObjectsPerLeaf);
+        Intersectable right = buildBVHRecursive(bestSplit.rightObjects, depth + 1, maxObjectsPerLeaf);
 
         return new BVHNode(left, right);
     }
@@ -10,6 +10,9 @@ import java.util.ArrayList;
  * Stage 2: Manual hierarchy building for improved ray tracing performance
  */
 public class BVHNode extends Intersectable {
+    /** Version of the serialized form */
+    private static final long serialVersionUID = 1L;
+
     /* * Left and right children of the BVH node
      * If this is a leaf node, left will contain the geometry
      * If this is an internal node, left and right will contain child nodes or geometries
@@ -65,6 +68,7 @@ public class BVHNode extends Intersectable {
      */
     @Override
     protected List<Intersection> calculateIntersectionsHelper(Ray ray) {
+        countVisit();
         // Add bounding box check FIRST
         if (!getBoundingBox().intersect(ray)) {
             return null;
@@ -93,6 +97,31 @@ public class BVHNode extends Intersectable {
         return result;
     }
 
+    @Override
+    protected boolean findClosestHitHelper(Ray ray, ClosestHit hit) {
+        countVisit();
+        if (!getBoundingBox().intersect(ray)) {
+            return false;
+        }
+
+        boolean found = left.findClosestHit(ray, hit);
+        if (!isLeaf && right != null && right.findClosestHit(ray, hit)) {
+            found = true;
+        }
+        return found;
+    }
+
+    /**
+     * Count a visit of the node and its box test, if counting
+     */
+    private static void countVisit() {
+        TraversalCounters counters = TraversalCounters.counting();
+        if (counters != null) {
+            counters.nodeVisits++;
+            counters.boxTests++;
+        }
+    }
+
     /**
      * Get the left and right children
      * @return left and right intersectable objects
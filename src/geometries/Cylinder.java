@@ -7,6 +7,8 @@ import primitives.*;
  * A cylinder is defined by its height and a ray that defines its axis.
  */
 public class Cylinder extends Tube {
+    /** Version of the serialized form */
+    private static final long serialVersionUID = 1L;
 
     /**
      * The height of the cylinder.
@@ -8,8 +8,11 @@ import primitives.*;
  * geometries. It implements the Intersectable interface.
  */
 public class Geometries extends Intersectable {
+    /** Version of the serialized form */
+    private static final long serialVersionUID = 1L;
 
-    /** The list of intersectable geometries. */
+    /** The list of intersectable geometries - a serializable list */
+    @SuppressWarnings("serial")
     final private List<Intersectable> intersectables = new LinkedList<>();
 
     /**
@@ -60,6 +63,16 @@ public class Geometries extends Intersectable {
         return intersections;
     }
 
+    @Override
+    protected boolean findClosestHitHelper(Ray ray, ClosestHit hit) {
+        boolean found = false;
+        for (Intersectable geometry : intersectables) {
+            if (geometry.findClosestHit(ray, hit))
+                found = true;
+        }
+        return found;
+    }
+
     /**Add commentMore actions
      * Calculate the bounding box that contains all geometries in this collection.
      * Combines all individual bounding boxes into one that encompasses all geometries.
@@ -89,6 +102,16 @@ public class Geometries extends Intersectable {
         return combinedBox;
     }
 
+    /**
+     * Get the geometries of this collection (read only), for compiling them into
+     * acceleration structures.
+     *
+     * @return the list of the geometries
+     */
+    List<Intersectable> getIntersectables() {
+        return Collections.unmodifiableList(intersectables);
+    }
+
     /**
      * Get the number of geometries in this collection.
      * Useful for performance analysis and debugging.
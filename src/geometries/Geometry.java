@@ -12,6 +12,8 @@ import primitives.Vector;
  * the normal vector at a specified point on the surface of the shape.
  */
 public abstract class Geometry extends Intersectable {
+    /** Version of the serialized form */
+    private static final long serialVersionUID = 1L;
 
     /**
      * The color of the geometry
@@ -2,6 +2,7 @@ package geometries;
 
 import lighting.*;
 import primitives.*;
+import java.io.Serializable;
 import java.util.List;
 
 /**
@@ -11,7 +12,9 @@ import java.util.List;
  */
 
 
-public abstract class Intersectable {
+public abstract class Intersectable implements Serializable {
+    /** Version of the serialized form */
+    private static final long serialVersionUID = 1L;
 
     /**
      * The bounding box of the geometry, used for optimization in intersection calculations.
@@ -34,15 +37,63 @@ public abstract class Intersectable {
      * Stage 1: Uses Conservative Boundary Region optimization
      */
     public final List<Intersection> calculateIntersections(Ray ray){
+        TraversalCounters counters = TraversalCounters.counting();
         // CBR optimization - check bounding box first
-        if (boundingBox != null && !boundingBox.intersect(ray)) {
-            return null; // No intersection with bounding box = no intersection at all
+        if (boundingBox != null) {
+            if (counters != null) counters.boxTests++;
+            if (!boundingBox.intersect(ray))
+                return null; // No intersection with bounding box = no intersection at all
         }
+        if (counters != null && this instanceof Geometry) counters.primitiveTests++;
 
         // If we reach here, either no bounding box or ray intersects bounding box
         return calculateIntersectionsHelper(ray);
     }
 
+    /**
+     * Find the closest intersection of a ray with the geometry, if it is closer
+     * than the closest hit found so far. Only the distance and the geometry are
+     * tracked - the hit point, the normal and the material are calculated once,
+     * for the final closest hit (see {@link ClosestHit#fill}).
+     * @param ray the ray to find the intersection with
+     * @param hit the closest hit found so far - updated if a closer one is found
+     * @return true if a closer intersection was found
+     */
+    public final boolean findClosestHit(Ray ray, ClosestHit hit) {
+        TraversalCounters counters = TraversalCounters.counting();
+        if (boundingBox != null) {
+            if (counters != null) counters.boxTests++;
+            if (!boundingBox.intersect(ray))
+                return false;
+        }
+        if (counters != null && this instanceof Geometry) counters.primitiveTests++;
+        return findClosestHitHelper(ray, hit);
+    }
+
+    /**
+     * Find the closest intersection of a ray with the geometry, if it is closer
+     * than the closest hit found so far. The default implementation goes over
+     * all the intersections - geometries on the tracing hot path override it.
+     * @param ray the ray to find the intersection with
+     * @param hit the closest hit found so far - updated if a closer one is found
+     * @return true if a closer intersection was found
+     */
+    protected boolean findClosestHitHelper(Ray ray, ClosestHit hit) {
+        List<Intersection> intersections = calculateIntersectionsHelper(ray);
+        if (intersections == null) return false;
+        boolean found = false;
+        for (Intersection intersection : intersections) {
+            double t = Math.sqrt(ray.getHead().distanceSquared(intersection.point));
+            if (t < hit.t) {
+                hit.t = t;
+                hit.geometry = intersection.geometry;
+                hit.point = intersection.point;
+                found = true;
+            }
+        }
+        return found;
+    }
+
     /**
      * Find intersections of a ray with the geometry
      * @param ray the ray to find intersections with
@@ -79,14 +130,82 @@ public abstract class Intersectable {
         boundingBox = null;
     }
 
+    /**
+     * The closest hit of a ray found so far during a traversal: the distance
+     * along the ray and the geometry only. A tracer keeps one record per thread
+     * and reuses it for all its rays (see {@link #reset()}).
+     */
+    public static class ClosestHit {
+        /** Distance of the closest hit along the ray (infinity if none found) */
+        public double t = Double.POSITIVE_INFINITY;
+        /** The geometry of the closest hit (null if none found) */
+        public Geometry geometry;
+        /** The hit point when already calculated by the generic test, null otherwise */
+        Point point;
+
+        /**
+         * Prepare the record for a new ray
+         * @param maxDistance hits farther than this distance are ignored
+         * @return the record itself
+         */
+        public ClosestHit reset(double maxDistance) {
+            t = maxDistance;
+            geometry = null;
+            point = null;
+            return this;
+        }
+
+        /**
+         * Prepare the record for a new ray, without distance limit
+         * @return the record itself
+         */
+        public ClosestHit reset() {
+            return reset(Double.POSITIVE_INFINITY);
+        }
+
+        /**
+         * Record a closer hit on a geometry
+         * @param t        the distance of the hit along the ray
+         * @param geometry the geometry hit
+         */
+        void set(double t, Geometry geometry) {
+            this.t = t;
+            this.geometry = geometry;
+            this.point = null;
+        }
+
+        /**
+         * Populate an intersection record with the closest hit: the hit point,
+         * the geometry's normal and material and the ray's direction. The light
+         * related fields are left for the shading.
+         * @param ray          the ray which was traced
+         * @param intersection the record to populate
+         * @return the record populated, or null if there was no hit
+         */
+        public Intersection fill(Ray ray, Intersection intersection) {
+            if (geometry == null) return null;
+            intersection.geometry = geometry;
+            intersection.point = point != null ? point : ray.getPoint(t);
+            intersection.material = geometry.getMaterial();
+            intersection.normal = geometry.getNormal(intersection.point);
+            intersection.v = ray.getDirection();
+            intersection.vNormal = 0;
+            intersection.light = null;
+            intersection.l = null;
+            intersection.lNormal = 0;
+            return intersection;
+        }
+    }
+
     /**
      * The Intersection class represents an intersection point between a ray and a geometry.
-     * It contains the geometry and the intersection point.
+     * It contains the geometry and the intersection point. A tracer may reuse
+     * one record per recursion level (see {@link ClosestHit#fill}).
      */
     public static class Intersection {
-        public final Geometry geometry;
-        public final Point point;
-        public final Material material;
+        public Geometry geometry;
+        public Point point;
+        public Material material;
         public Vector v;
         public Vector normal;
         public double vNormal;
@@ -105,6 +224,12 @@ public abstract class Intersectable {
             this.material = material;
         }
 
+        /**
+         * Constructor for an empty record, to be populated by {@link ClosestHit#fill}
+         */
+        public Intersection() {
+        }
+
         /**
          * Returns the geometry of the intersection.
          * @return the geometry
@@ -0,0 +1,336 @@
+package geometries;
+
+import primitives.AABB;
+import primitives.Precision;
+import primitives.Ray;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * BVH compiled into flat arrays
+ * Stage 4: The tree of {@link BVHNode} objects built by {@link BVHBuilder} is
+ * flattened in depth first order - the first child of an internal node is the
+ * node right after it. The node bounds are kept in one array (six numbers per
+ * node) either in double or in single precision, the leaves' geometries are kept
+ * in one array as well, so the traversal touches no node objects at all.
+ * Stage 5: The spheres and the triangles of the leaves are kept apart from the
+ * other geometries in structure of arrays batches ({@link SphereBatch},
+ * {@link TriangleBatch}), so a leaf tests all its spheres and all its
+ * triangles in tight loops over contiguous memory. Since a leaf is now cheap to
+ * test, the compiled tree is built with wider leaves.
+ */
+public class LinearBVH extends Intersectable {
+    /** Version of the serialized form */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Amount of numbers stored per node in the bounds array
+     */
+    private static final int BOUNDS_STRIDE = 6;
+    /**
+     * Value of the generic geometries count marking an internal node
+     */
+    private static final int INTERNAL = -1;
+
+    /**
+     * The geometries of all the leaves, each leaf holds a consecutive range
+     */
+    private final Intersectable[] primitives;
+    /**
+     * Per node: index of the first geometry for a leaf, index of the second child
+     * for an internal node
+     */
+    private final int[] offsets;
+    /**
+     * Per node: amount of geometries of a leaf, {@link #INTERNAL} for an internal node
+     */
+    private final int[] counts;
+    /**
+     * Per leaf node: index of the first sphere in the spheres batch
+     */
+    private final int[] sphereOffsets;
+    /**
+     * Per leaf node: amount of spheres
+     */
+    private final int[] sphereCounts;
+    /**
+     * Per leaf node: index of the first triangle in the triangles batch
+     */
+    private final int[] triangleOffsets;
+    /**
+     * Per leaf node: amount of triangles
+     */
+    private final int[] triangleCounts;
+    /**
+     * The spheres of all the leaves
+     */
+    private final SphereBatch spheres;
+    /**
+     * The triangles of all the leaves
+     */
+    private final TriangleBatch triangles;
+    /**
+     * Node bounds in double precision (null in single precision mode)
+     */
+    private final double[] doubleBounds;
+    /**
+     * Node bounds in single precision, rounded outwards (null in double precision mode)
+     */
+    private final float[] floatBounds;
+    /**
+     * Storage precision of the node bounds
+     */
+    private final Precision precision;
+    /**
+     * Bounding box of the whole tree (in full precision)
+     */
+    private final AABB rootBox;
+
+    /**
+     * Compile a BVH tree into flat arrays
+     * @param root      the root of the tree - a {@link BVHNode}, a leaf collection or a single geometry
+     * @param precision storage precision of the node bounds
+     */
+    public LinearBVH(Intersectable root, Precision precision) {
+        this.precision = precision;
+        this.rootBox = root.getBoundingBox();
+
+        int nodes = countNodes(root);
+        offsets = new int[nodes];
+        counts = new int[nodes];
+        sphereOffsets = new int[nodes];
+        sphereCounts = new int[nodes];
+        triangleOffsets = new int[nodes];
+        triangleCounts = new int[nodes];
+        doubleBounds = precision == Precision.DOUBLE ? new double[nodes * BOUNDS_STRIDE] : null;
+        floatBounds = precision == Precision.FLOAT ? new float[nodes * BOUNDS_STRIDE] : null;
+
+        List<Intersectable> leafObjects = new ArrayList<>();
+        List<Sphere> leafSpheres = new ArrayList<>();
+        List<Polygon> leafTriangles = new ArrayList<>();
+        flatten(root, 0, leafObjects, leafSpheres, leafTriangles);
+        primitives = leafObjects.toArray(new Intersectable[0]);
+        spheres = new SphereBatch(leafSpheres);
+        triangles = new TriangleBatch(leafTriangles);
+    }
+
+    /**
+     * Count the nodes of the compiled tree
+     * @param node the root of the subtree
+     * @return the amount of nodes
+     */
+    private static int countNodes(Intersectable node) {
+        if (node instanceof BVHNode bvhNode && !bvhNode.isLeaf())
+            return 1 + countNodes(bvhNode.getLeft()) + countNodes(bvhNode.getRight());
+        return 1;
+    }
+
+    /**
+     * Store a subtree in the arrays, in depth first order
+     * @param node        the root of the subtree
+     * @param index       the index of the node
+     * @param leafObjects   the generic geometries of the leaves stored so far
+     * @param leafSpheres   the spheres of the leaves stored so far
+     * @param leafTriangles the triangles of the leaves stored so far
+     * @return the index following the last node of the subtree
+     */
+    private int flatten(Intersectable node, int index, List<Intersectable> leafObjects,
+                        List<Sphere> leafSpheres, List<Polygon> leafTriangles) {
+        AABB box = node.getBoundingBox();
+        if (floatBounds != null)
+            box.store(floatBounds, index * BOUNDS_STRIDE);
+        else
+            box.store(doubleBounds, index * BOUNDS_STRIDE);
+
+        if (node instanceof BVHNode bvhNode && !bvhNode.isLeaf()) {
+            int second = flatten(bvhNode.getLeft(), index + 1, leafObjects, leafSpheres, leafTriangles);
+            offsets[index] = second;
+            counts[index] = INTERNAL;
+            return flatten(bvhNode.getRight(), second, leafObjects, leafSpheres, leafTriangles);
+        }
+
+        offsets[index] = leafObjects.size();
+        sphereOffsets[index] = leafSpheres.size();
+        triangleOffsets[index] = leafTriangles.size();
+        if (node instanceof BVHNode bvhNode)
+            addLeafObject(bvhNode.getLeft(), leafObjects, leafSpheres, leafTriangles);
+        else if (node instanceof Geometries leaf)
+            for (Intersectable object : leaf.getIntersectables())
+                addLeafObject(object, leafObjects, leafSpheres, leafTriangles);
+        else
+            addLeafObject(node, leafObjects, leafSpheres, leafTriangles);
+        counts[index] = leafObjects.size() - offsets[index];
+        sphereCounts[index] = leafSpheres.size() - sphereOffsets[index];
+        triangleCounts[index] = leafTriangles.size() - triangleOffsets[index];
+        return index + 1;
+    }
+
+    /**
+     * Store a geometry of a leaf in its batch. Only the exact sphere and
+     * triangle classes go to the batches - a subclass may override the
+     * intersection test, so it is kept generic.
+     * @param object        the geometry
+     * @param leafObjects   the generic geometries of the leaves
+     * @param leafSpheres   the spheres of the leaves
+     * @param leafTriangles the triangles of the leaves
+     */
+    private static void addLeafObject(Intersectable object, List<Intersectable> leafObjects,
+                                      List<Sphere> leafSpheres, List<Polygon> leafTriangles) {
+        if (object.getClass() == Sphere.class)
+            leafSpheres.add((Sphere) object);
+        else if ((object.getClass() == Triangle.class || object.getClass() == Polygon.class)
+                && ((Polygon) object).getSize() == 3)
+            leafTriangles.add((Polygon) object);
+        else
+            leafObjects.add(object);
+    }
+
+    @Override
+    protected AABB calculateBoundingBox() {
+        return rootBox;
+    }
+
+    /**
+     * Calculate intersections with a ray
+     * @param ray the ray to test for intersections
+     * @return list of intersections, or null if no intersections found
+     */
+    @Override
+    protected List<Intersection> calculateIntersectionsHelper(Ray ray) {
+        return traverse(ray, 0, null, TraversalCounters.counting());
+    }
+
+    /**
+     * Collect the intersections of a ray with a subtree
+     * @param ray      the ray
+     * @param node     the index of the subtree's root
+     * @param result   the intersections found so far (null if none)
+     * @param counters the counters of the traversal (null if not counting)
+     * @return the intersections found including the subtree's ones (null if none)
+     */
+    private List<Intersection> traverse(Ray ray, int node, List<Intersection> result, TraversalCounters counters) {
+        if (counters != null) {
+            counters.nodeVisits++;
+            counters.boxTests++;
+        }
+        if (!intersectsNode(ray, node))
+            return result;
+
+        int count = counts[node];
+        if (count == INTERNAL) {
+            result = traverse(ray, node + 1, result, counters);
+            return traverse(ray, offsets[node], result, counters);
+        }
+
+        if (counters != null) counters.primitiveTests += sphereCounts[node] + triangleCounts[node];
+        int first = sphereOffsets[node];
+        result = spheres.intersect(ray, first, first + sphereCounts[node], result);
+        first = triangleOffsets[node];
+        result = triangles.intersect(ray, first, first + triangleCounts[node], result);
+        for (int i = offsets[node], end = i + count; i < end; ++i) {
+            List<Intersection> intersections = primitives[i].calculateIntersections(ray);
+            if (intersections != null) {
+                if (result == null)
+                    result = new ArrayList<>(intersections);
+                else
+                    result.addAll(intersections);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    protected boolean findClosestHitHelper(Ray ray, ClosestHit hit) {
+        TraversalCounters counters = TraversalCounters.counting();
+        if (counters != null) counters.boxTests++;
+        return entryDistance(ray, 0) < hit.t && closest(ray, 0, hit, counters);
+    }
+
+    /**
+     * Find the closest hit of a ray in a subtree whose bounds the ray enters
+     * before the closest hit found so far. The children are visited nearest
+     * first, and a child entered beyond the closest hit is skipped.
+     * @param ray      the ray
+     * @param node     the index of the subtree's root
+     * @param hit      the closest hit found so far - updated if a closer one is found
+     * @param counters the counters of the traversal (null if not counting)
+     * @return true if a closer intersection was found
+     */
+    private boolean closest(Ray ray, int node, ClosestHit hit, TraversalCounters counters) {
+        if (counters != null) counters.nodeVisits++;
+        if (counts[node] == INTERNAL) {
+            if (counters != null) counters.boxTests += 2;
+            int near = node + 1;
+            int far = offsets[node];
+            double nearEntry = entryDistance(ray, near);
+            double farEntry = entryDistance(ray, far);
+            if (farEntry < nearEntry) {
+                int swap = near;
+                near = far;
+                far = swap;
+                double swapEntry = nearEntry;
+                nearEntry = farEntry;
+                farEntry = swapEntry;
+            }
+            boolean found = nearEntry < hit.t && closest(ray, near, hit, counters);
+            if (farEntry < hit.t && closest(ray, far, hit, counters))
+                found = true;
+            return found;
+        }
+
+        if (counters != null) counters.primitiveTests += sphereCounts[node] + triangleCounts[node];
+        int first = sphereOffsets[node];
+        boolean found = spheres.closest(ray, first, first + sphereCounts[node], hit);
+        first = triangleOffsets[node];
+        if (triangles.closest(ray, first, first + triangleCounts[node], hit))
+            found = true;
+        for (int i = offsets[node], end = i + counts[node]; i < end; ++i) {
+            if (primitives[i].findClosestHit(ray, hit))
+                found = true;
+        }
+        return found;
+    }
+
+    /**
+     * Find the distance along a ray to its entry into the bounds of a node
+     * @param ray  the ray
+     * @param node the index of the node
+     * @return a lower bound of the entry distance, or positive infinity if the ray misses the node
+     */
+    private double entryDistance(Ray ray, int node) {
+        return floatBounds != null
+                ? AABB.entryDistance(ray, floatBounds, node * BOUNDS_STRIDE)
+                : AABB.entryDistance(ray, doubleBounds, node * BOUNDS_STRIDE);
+    }
+
+    /**
+     * Check whether a ray intersects the bounds of a node
+     * @param ray  the ray
+     * @param node the index of the node
+     * @return true if the ray intersects the node's box
+     */
+    private boolean intersectsNode(Ray ray, int node) {
+        return floatBounds != null
+                ? AABB.intersect(ray, floatBounds, node * BOUNDS_STRIDE)
+                : AABB.intersect(ray, doubleBounds, node * BOUNDS_STRIDE);
+    }
+
+    /**
+     * Get the storage precision of the node bounds
+     * @return the precision
+     */
+    public Precision getPrecision() { return precision; }
+
+    /**
+     * Get the amount of nodes of the compiled tree
+     * @return the amount of nodes
+     */
+    public int getNodeCount() { return counts.length; }
+
+    @Override
+    public String toString() {
+        return "LinearBVH{nodes=" + counts.length + ", primitives=" + primitives.length +
+                ", precision=" + precision + "}";
+    }
+}
@@ -8,6 +8,8 @@ import static primitives.Util.*;
  * Represents a plane in three-dimensional space.
  */
 public class Plane extends Geometry {
+    /** Version of the serialized form */
+    private static final long serialVersionUID = 1L;
 
     /**
      * A point on the plane.
@@ -19,6 +21,12 @@ public class Plane extends Geometry {
      */
     private final Vector normalVector;
 
+    /**
+     * The normal's components and the plane offset (n·p0) as plain numbers,
+     * cached for the intersection test.
+     */
+    private final double nX, nY, nZ, nD;
+
     /**
      * Constructs a plane passing through three points.
      * Calculates the normal vector using the cross product of two vectors formed by the points.
@@ -32,6 +40,10 @@ public class Plane extends Geometry {
         Vector v1 = b.subtract(a);
         Vector v2 = c.subtract(a);
         this.normalVector = v1.crossProduct(v2).normalize();
+        nX = normalVector.getX();
+        nY = normalVector.getY();
+        nZ = normalVector.getZ();
+        nD = VectorMath.dot(normalVector, pointOnPlane);
     }
 
     /**
@@ -43,6 +55,10 @@ public class Plane extends Geometry {
     public Plane(Point pointOnPlane, Vector normalVector) {
         this.pointOnPlane = pointOnPlane;
         this.normalVector = normalVector.normalize();
+        nX = this.normalVector.getX();
+        nY = this.normalVector.getY();
+        nZ = this.normalVector.getZ();
+        nD = VectorMath.dot(this.normalVector, pointOnPlane);
     }
 
     /**
@@ -73,24 +89,40 @@ public class Plane extends Geometry {
      */
     @Override
     protected List<Intersection> calculateIntersectionsHelper(Ray ray) {
-        if (ray.getHead().equals(pointOnPlane)) {
-            return null; // The ray's head is on the plane
+        double t = distance(ray);
+        if (t <= 0) {
+            return null; // No intersection in front of the ray's head
         }
 
-        // Calculate the denominator
-        double denominator = normalVector.dotProduct(ray.getDirection());
-        if (isZero(denominator)) {
-            return null; // The ray is parallel to the plane
+        // Calculate the intersection point
+        return List.of(new Intersection(this, ray.getPoint(t), this.getMaterial())); // Return the intersection point as a list
+    }
+
+    @Override
+    protected boolean findClosestHitHelper(Ray ray, ClosestHit hit) {
+        double t = distance(ray);
+        if (t <= 0 || t >= hit.t) {
+            return false;
         }
+        hit.set(t, this);
+        return true;
+    }
 
-        // Calculate the numerator
-        double t = alignZero(normalVector.dotProduct(pointOnPlane.subtract(ray.getHead())) / denominator);
-        if (t <= 0) {
-            return null; // The intersection point is behind the ray's head
+    /**
+     * Find the distance along a ray to its intersection with the plane
+     * @param ray the ray
+     * @return the distance, or zero if the ray does not intersect the plane in front of its head
+     */
+    private double distance(Ray ray) {
+        // Calculate the denominator
+        double denominator = VectorMath.dot(nX, nY, nZ, ray.getDirection());
+        if (isZero(denominator)) {
+            return 0; // The ray is parallel to the plane
         }
 
-        // Calculate the intersection point
-        return List.of(new Intersection(this, ray.getPoint(t), this.getMaterial())); // Return the intersection point as a list
+        // Calculate the numerator (zero when the ray's head is on the plane)
+        double t = alignZero((nD - VectorMath.dot(nX, nY, nZ, ray.getHead())) / denominator);
+        return t > 0 ? t : 0; // zero if the intersection point is behind the ray's head
     }
 
     @Override
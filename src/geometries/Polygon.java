@@ -14,12 +14,28 @@ import primitives.*;
  * @author Dan
  */
 public class Polygon extends Geometry {
-   /** List of polygon's vertices */
+   /** Version of the serialized form */
+   private static final long serialVersionUID = 1L;
+
+   /** List of polygon's vertices - an immutable, serializable list */
+   @SuppressWarnings("serial")
    protected final List<Point> vertices;
    /** Associated plane in which the polygon lays */
    protected final Plane       plane;
    /** The size of the polygon - the amount of the vertices in the polygon */
    private final int           size;
+   /**
+    * Precomputed Pl&uuml;cker coordinates of the edges - six numbers per edge:
+    * the edge direction (v[i+1] - v[i]) followed by its moment (v[i] x v[i+1]),
+    * both divided by the edge length
+    */
+   private final double[]      edges;
+   /** Components of the plane's normal, cached for the intersection test */
+   private final double        nX, nY, nZ;
+   /** Plane offset - dot product of the normal with the first vertex */
+   private final double        nD;
+   /** Whether a ray passing exactly through an edge is counted as a hit */
+   private boolean             watertight = false;
 
    /**
     * Polygon constructor based on vertices list. The list must be ordered by edge
@@ -52,6 +68,15 @@ public class Polygon extends Geometry {
       // polygon with this plane.
       // The plane holds the invariant normal (orthogonal unit) vector to the polygon
       plane         = new Plane(vertices[0], vertices[1], vertices[2]);
+
+      // Cache the plane and the edges as plain numbers so that the intersection
+      // test does not need to allocate any vector
+      Vector  normal   = plane.getNormal();
+      nX               = normal.getX();
+      nY               = normal.getY();
+      nZ               = normal.getZ();
+      nD               = VectorMath.dot(normal, vertices[0]);
+      edges            = calculateEdges(vertices);
       if (size == 3) return; // no need for more tests for a Triangle
 
       Vector  n        = plane.getNormal();
@@ -80,54 +105,149 @@ public class Polygon extends Geometry {
       }
    }
 
+   /**
+    * Calculates the Pl&uuml;cker coordinates of the polygon's edges. For the edge
+    * from a to b the direction is (b - a) and the moment is (a x b), both divided by
+    * the edge length: the edge test's value is then the distance between the ray
+    * and the edge lines times the sine of their angle (for a normalized ray
+    * direction), so the zero tolerance does not grow with the edge length. An edge
+    * shared by two polygons in opposite orders gets exactly negated coordinates,
+    * which is what makes the edge test consistent between neighbours.
+    * @param  vertices the vertices of the polygon ordered by edge path
+    * @return          six numbers per edge - direction followed by moment
+    */
+   private static double[] calculateEdges(Point[] vertices) {
+      double[] result = new double[vertices.length * 6];
+      for (int i = 0; i < vertices.length; ++i) {
+         Point a = vertices[i];
+         Point b = vertices[(i + 1) % vertices.length];
+         int    k     = i * 6;
+         double eX    = b.getX() - a.getX();
+         double eY    = b.getY() - a.getY();
+         double eZ    = b.getZ() - a.getZ();
+         double scale = 1 / Math.sqrt(VectorMath.dot(eX, eY, eZ, eX, eY, eZ));
+         result[k]     = eX * scale;
+         result[k + 1] = eY * scale;
+         result[k + 2] = eZ * scale;
+         result[k + 3] = VectorMath.crossX(a.getX(), a.getY(), a.getZ(), b.getX(), b.getY(), b.getZ()) * scale;
+         result[k + 4] = VectorMath.crossY(a.getX(), a.getY(), a.getZ(), b.getX(), b.getY(), b.getZ()) * scale;
+         result[k + 5] = VectorMath.crossZ(a.getX(), a.getY(), a.getZ(), b.getX(), b.getY(), b.getZ()) * scale;
+      }
+      return result;
+   }
+
    @Override
    public Vector getNormal(Point point) { return plane.getNormal(); }
 
    /**
-    * Finds the intersection points between a given ray and the Polygon.
+    * The amount of the vertices of the polygon
+    * @return the size of the polygon
+    */
+   int getSize() { return size; }
+
+   /**
+    * The precomputed Pl&uuml;cker coordinates of the edges (read only!)
+    * @return six numbers per edge - direction followed by moment
+    */
+   double[] getEdges() { return edges; }
+
+   /**
+    * The plane offset - dot product of the normal with the first vertex
+    * @return the plane offset
+    */
+   double getPlaneOffset() { return nD; }
+
+   /**
+    * Whether a ray passing exactly through an edge is counted as a hit
+    * @return true in watertight mode
+    */
+   boolean isWatertight() { return watertight; }
+
+   /**
+    * Set the edge policy of the polygon. By default a ray passing through an edge
+    * (or a vertex) is not considered as intersecting the polygon, so a ray hitting
+    * exactly the common edge of two neighbour polygons misses both of them. In
+    * watertight mode such a ray hits the polygon, so it cannot leak through a mesh.
+    * @param  watertight true for counting edge hits as intersections
+    * @return            the polygon itself
+    */
+   public Polygon setWatertight(boolean watertight) {
+      this.watertight = watertight;
+      return this;
+   }
+
+   /**
+    * Finds the intersection points between a given ray and the Polygon.<br>
+    * For each edge the sign of the permuted inner product of the Pl&uuml;cker
+    * coordinates of the edge and of the ray tells on which side of the edge the
+    * ray passes. The ray is inside the (convex) polygon iff all the signs are the
+    * same. The test uses the precomputed edges only, so it neither allocates nor
+    * divides - the single division is done for the distance of an accepted hit.
     *
     * @param ray the ray to intersect with the Polygon
     * @return a list of intersection points, or null if there are no intersections
     */
    @Override
    protected List<Intersection> calculateIntersectionsHelper(Ray ray) {
+      double t = distance(ray);
+      return t > 0 ? List.of(new Intersection(this, ray.getPoint(t), this.getMaterial())) : null;
+   }
 
-      // Check if the ray intersects the plane of the polygon
-      List<Point> planeIntersections = plane.findIntersections(ray);
-      if (planeIntersections == null)
-         return null;
+   @Override
+   protected boolean findClosestHitHelper(Ray ray, ClosestHit hit) {
+      double t = distance(ray);
+      if (t <= 0 || t >= hit.t)
+         return false;
+      hit.set(t, this);
+      return true;
+   }
+
+   /**
+    * Find the distance along a ray to its intersection with the polygon
+    * @param ray the ray
+    * @return the distance, or zero if the ray does not intersect the polygon
+    */
+   private double distance(Ray ray) {
+      Vector direction = ray.getDirection();
+      Point  head      = ray.getHead();
+      double dX        = direction.getX();
+      double dY        = direction.getY();
+      double dZ        = direction.getZ();
+      double oX        = head.getX();
+      double oY        = head.getY();
+      double oZ        = head.getZ();
 
-      // Retrieve the direction vector and head point of the ray
-      Vector rayDirection = ray.getDirection();
-      Point rayPoint = ray.getHead();
+      // The ray is parallel to the plane of the polygon
+      double denominator = VectorMath.dot(nX, nY, nZ, dX, dY, dZ);
+      if (isZero(denominator))
+         return 0;
 
-      for(Point p : vertices) {
-         if (p.equals(rayPoint))
-            return null; // The ray's head is one of the polygon's vertices
-      }
+      // Moment of the ray (direction x head) - shared by all the edge tests
+      double wX = VectorMath.crossX(dX, dY, dZ, oX, oY, oZ);
+      double wY = VectorMath.crossY(dX, dY, dZ, oX, oY, oZ);
+      double wZ = VectorMath.crossZ(dX, dY, dZ, oX, oY, oZ);
 
-      // Loop through all vertices and edges of the polygon
-      Boolean positive = null;
-      for (int i = 0; i < size; i++) {
-         Point p1 = vertices.get(i);
-         Point p2 = vertices.get((i + 1) % size);
-
-         Vector edgeVector1 = p1.subtract(rayPoint);
-         Vector edgeVector2 = p2.subtract(rayPoint);
-         // Vector toIntersection = intersectionPoint.subtract(p1);
-         Vector normal = edgeVector1.crossProduct(edgeVector2).normalize();
-
-         double dotProduct = alignZero(normal.dotProduct(rayDirection));
-         if (dotProduct == 0)
-            return null; // Intersection point is on the edge considered outside the polygon
-
-         if (positive == null) {
-            positive = dotProduct > 0;
-         } else if (positive != dotProduct > 0)
-            return null; // the sing is not the sane for all vertices
+      boolean positive = false;
+      boolean negative = false;
+      for (int k = 0; k < edges.length; k += 6) {
+         double side = VectorMath.dot(dX, dY, dZ, edges[k + 3], edges[k + 4], edges[k + 5])
+            - VectorMath.dot(edges[k], edges[k + 1], edges[k + 2], wX, wY, wZ);
+         if (!watertight) {
+            side = alignZero(side);
+            if (side == 0)
+               return 0; // Intersection point is on the edge considered outside the polygon
+         }
+         if (side > 0)
+            positive = true;
+         else if (side < 0)
+            negative = true;
+         if (positive && negative)
+            return 0; // the sign is not the same for all the edges
       }
-      // Return the intersection point with the plane of the polygon
-      return List.of(new Intersection(this, planeIntersections.getFirst() , this.getMaterial()));
+
+      // The ray passes through the polygon - find the distance to its plane
+      double t = alignZero((nD - VectorMath.dot(nX, nY, nZ, oX, oY, oZ)) / denominator);
+      return t > 0 ? t : 0; // zero if the intersection point is behind the ray's head
    }
 
    /**
@@ -5,6 +5,8 @@ package geometries;
  * It extends the Geometry interface, inheriting the method to calculate the normal vector.
  */
 public abstract class RadialGeometry extends Geometry {
+    /** Version of the serialized form */
+    private static final long serialVersionUID = 1L;
 
     /** The radius of the radial geometry. */
     protected final double radius;
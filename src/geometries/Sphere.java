@@ -8,12 +8,19 @@ import static primitives.Util.alignZero;
  * Represents a sphere in three-dimensional space.
  */
 public class Sphere extends RadialGeometry {
+    /** Version of the serialized form */
+    private static final long serialVersionUID = 1L;
 
     /**
      * The center point of the sphere.
      */
     private final Point centerPoint;
 
+    /**
+     * The squared radius, cached for the intersection test.
+     */
+    private final double radiusSquared;
+
     /**
      * Constructs a new sphere with the specified center point and radius.
      *
@@ -23,6 +30,7 @@ public class Sphere extends RadialGeometry {
     public Sphere(Point centerPoint, double radius) {
         super(radius);
         this.centerPoint = centerPoint;
+        this.radiusSquared = radius * radius;
     }
 
     /**
@@ -33,10 +41,21 @@ public class Sphere extends RadialGeometry {
      */
     @Override
     public Vector getNormal(Point pointOnSurface) {
-        return pointOnSurface.subtract(centerPoint).normalize();
+        return VectorMath.unitVector(pointOnSurface.getX() - centerPoint.getX(),
+                pointOnSurface.getY() - centerPoint.getY(),
+                pointOnSurface.getZ() - centerPoint.getZ());
     }
 
 
+    /**
+     * Returns the center point of the sphere.
+     *
+     * @return the center point
+     */
+    Point getCenter() {
+        return centerPoint;
+    }
+
     /**
      * Finds the intersection points of a ray with the sphere.
      *
@@ -45,22 +64,23 @@ public class Sphere extends RadialGeometry {
      */
     @Override
     protected List<Intersection> calculateIntersectionsHelper(Ray ray)  {
-        if (ray.getHead().equals(centerPoint)) {
-            // If the ray's head is at the center of the sphere, return one intersection point
-            return List.of(new Intersection(this, ray.getPoint(radius), this.getMaterial()));
-        }
-        // Create a vector from the ray's head to the sphere's center
-        Vector u = centerPoint.subtract(ray.getHead());
+        Point head = ray.getHead();
+        // Components of the vector from the ray's head to the sphere's center
+        double uX = centerPoint.getX() - head.getX();
+        double uY = centerPoint.getY() - head.getY();
+        double uZ = centerPoint.getZ() - head.getZ();
         // Calculate the projection of u onto the ray's direction
-        double tm = ray.getDirection().dotProduct(u);
-        // Calculate the distance from the sphere's center to the projection
-        double d = Math.sqrt(u.lengthSquared() - tm * tm);
+        double tm = VectorMath.dot(uX, uY, uZ, ray.getDirection());
+        // Calculate the squared distance from the sphere's center to the projection
+        double d2 = VectorMath.lengthSquared(uX, uY, uZ) - tm * tm;
 
         // If d is greater than the sphere's radius, there are no intersections
-        if (d >= radius) return null;
+        // (when the ray's head is at the center, u is zero and so are tm and d)
+        double th2 = radiusSquared - d2;
+        if (th2 <= 0) return null;
 
         // Calculate th and t0, t1
-        double th = Math.sqrt(radius * radius - d * d);
+        double th = Math.sqrt(th2);
 
         double t0 = alignZero(tm - th);
         double t1 = alignZero(tm + th);
@@ -85,6 +105,25 @@ public class Sphere extends RadialGeometry {
         return null;
     }
 
+    @Override
+    protected boolean findClosestHitHelper(Ray ray, ClosestHit hit) {
+        // The same calculation as above, keeping only the nearest positive distance
+        Point head = ray.getHead();
+        double uX = centerPoint.getX() - head.getX();
+        double uY = centerPoint.getY() - head.getY();
+        double uZ = centerPoint.getZ() - head.getZ();
+        double tm = VectorMath.dot(uX, uY, uZ, ray.getDirection());
+        double th2 = radiusSquared - (VectorMath.lengthSquared(uX, uY, uZ) - tm * tm);
+        if (th2 <= 0) return false;
+
+        double th = Math.sqrt(th2);
+        double t = alignZero(tm - th);
+        if (t <= 0) t = alignZero(tm + th);
+        if (t <= 0 || t >= hit.t) return false;
+        hit.set(t, this);
+        return true;
+    }
+
     /**
      * Calculates the bounding box of the sphere
      *
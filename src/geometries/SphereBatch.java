@@ -0,0 +1,138 @@
+package geometries;
+
+import geometries.Intersectable.Intersection;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import static primitives.Util.alignZero;
+
+/**
+ * Spheres of compiled BVH leaves, stored as structure of arrays (one array per
+ * component), so that the spheres of a leaf are tested against a ray in one
+ * tight loop over contiguous memory instead of a virtual call per sphere.
+ * The arithmetic is exactly the one of {@link Sphere}, so the results are the
+ * same to the last bit.
+ */
+final class SphereBatch implements Serializable {
+    /** Version of the serialized form */
+    private static final long serialVersionUID = 1L;
+    /** The original spheres - for the hit records */
+    private final Sphere[] spheres;
+    /** Center coordinates */
+    private final double[] centerX, centerY, centerZ;
+    /** Squared radii */
+    private final double[] radiusSquared;
+
+    /**
+     * Store the spheres in arrays
+     * @param list the spheres, in the order of the leaves' ranges
+     */
+    SphereBatch(List<Sphere> list) {
+        int n = list.size();
+        spheres = list.toArray(new Sphere[0]);
+        centerX = new double[n];
+        centerY = new double[n];
+        centerZ = new double[n];
+        radiusSquared = new double[n];
+        for (int i = 0; i < n; ++i) {
+            Sphere sphere = spheres[i];
+            Point center = sphere.getCenter();
+            centerX[i] = center.getX();
+            centerY[i] = center.getY();
+            centerZ[i] = center.getZ();
+            radiusSquared[i] = sphere.radius * sphere.radius;
+        }
+    }
+
+    /**
+     * Intersect a ray with a range of the spheres
+     * @param ray    the ray
+     * @param from   the first sphere (included)
+     * @param to     the last sphere (excluded)
+     * @param result the intersections found so far (null if none)
+     * @return the intersections found including the range's ones (null if none)
+     */
+    List<Intersection> intersect(Ray ray, int from, int to, List<Intersection> result) {
+        Point head = ray.getHead();
+        Vector direction = ray.getDirection();
+        double oX = head.getX();
+        double oY = head.getY();
+        double oZ = head.getZ();
+        double dX = direction.getX();
+        double dY = direction.getY();
+        double dZ = direction.getZ();
+
+        for (int i = from; i < to; ++i) {
+            double uX = centerX[i] - oX;
+            double uY = centerY[i] - oY;
+            double uZ = centerZ[i] - oZ;
+            double tm = uX * dX + uY * dY + uZ * dZ;
+            double th2 = radiusSquared[i] - ((uX * uX + uY * uY + uZ * uZ) - tm * tm);
+            if (th2 <= 0) continue;
+
+            double th = Math.sqrt(th2);
+            double t0 = alignZero(tm - th);
+            double t1 = alignZero(tm + th);
+            if (t0 > 0) result = add(result, spheres[i], ray, t0);
+            if (t1 > 0) result = add(result, spheres[i], ray, t1);
+        }
+        return result;
+    }
+
+    /**
+     * Find the closest intersection of a ray with a range of the spheres
+     * @param ray  the ray
+     * @param from the first sphere (included)
+     * @param to   the last sphere (excluded)
+     * @param hit  the closest hit found so far - updated if a closer one is found
+     * @return true if a closer intersection was found
+     */
+    boolean closest(Ray ray, int from, int to, Intersectable.ClosestHit hit) {
+        Point head = ray.getHead();
+        Vector direction = ray.getDirection();
+        double oX = head.getX();
+        double oY = head.getY();
+        double oZ = head.getZ();
+        double dX = direction.getX();
+        double dY = direction.getY();
+        double dZ = direction.getZ();
+
+        boolean found = false;
+        for (int i = from; i < to; ++i) {
+            double uX = centerX[i] - oX;
+            double uY = centerY[i] - oY;
+            double uZ = centerZ[i] - oZ;
+            double tm = uX * dX + uY * dY + uZ * dZ;
+            double th2 = radiusSquared[i] - ((uX * uX + uY * uY + uZ * uZ) - tm * tm);
+            if (th2 <= 0) continue;
+
+            double th = Math.sqrt(th2);
+            double t = alignZero(tm - th);
+            if (t <= 0) t = alignZero(tm + th);
+            if (t > 0 && t < hit.t) {
+                hit.set(t, spheres[i]);
+                found = true;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Add a hit to the result list
+     * @param result the list (null if none yet)
+     * @param sphere the sphere hit
+     * @param ray    the ray
+     * @param t      the distance of the hit
+     * @return the list
+     */
+    private static List<Intersection> add(List<Intersection> result, Sphere sphere, Ray ray, double t) {
+        if (result == null) result = new ArrayList<>();
+        result.add(new Intersection(sphere, ray.getPoint(t), sphere.getMaterial()));
+        return result;
+    }
+}
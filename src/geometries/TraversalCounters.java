@@ -0,0 +1,95 @@
+package geometries;
+
+/**
+ * Counters of the work of the ray traversals of the calling thread - the
+ * bounding box tests, the primitive intersection tests and the BVH nodes
+ * visited. Each thread counts into its own counters, so no counter is shared;
+ * a profiler reads the counters of a thread before and after a piece of work
+ * and merges the differences. Counting is off by default and then costs the
+ * traversals a test of a flag only.
+ */
+public final class TraversalCounters {
+    /**
+     * Flag of counting - set before the traversing threads are handed their
+     * work, which publishes it to them
+     */
+    static boolean enabled = false;
+    /** The counters of each thread */
+    private static final ThreadLocal<TraversalCounters> COUNTERS = ThreadLocal.withInitial(TraversalCounters::new);
+
+    /** Amount of bounding box tests */
+    long boxTests = 0;
+    /** Amount of intersection tests of primitives (geometries) */
+    long primitiveTests = 0;
+    /** Amount of BVH nodes visited */
+    long nodeVisits = 0;
+
+    /**
+     * Counters are created per thread
+     */
+    private TraversalCounters() {
+    }
+
+    /**
+     * Turn counting on or off
+     *
+     * @param enabled true to count
+     */
+    public static void setEnabled(boolean enabled) {
+        TraversalCounters.enabled = enabled;
+    }
+
+    /**
+     * Check whether counting is on
+     *
+     * @return true if counting
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * The counters of the calling thread
+     *
+     * @return the counters
+     */
+    public static TraversalCounters current() {
+        return COUNTERS.get();
+    }
+
+    /**
+     * The counters of the calling thread if counting is on
+     *
+     * @return the counters, null if counting is off
+     */
+    static TraversalCounters counting() {
+        return enabled ? COUNTERS.get() : null;
+    }
+
+    /**
+     * Amount of bounding box tests counted by the thread
+     *
+     * @return the amount of tests
+     */
+    public long getBoxTests() {
+        return boxTests;
+    }
+
+    /**
+     * Amount of primitive intersection tests counted by the thread
+     *
+     * @return the amount of tests
+     */
+    public long getPrimitiveTests() {
+        return primitiveTests;
+    }
+
+    /**
+     * Amount of BVH nodes visited counted by the thread
+     *
+     * @return the amount of nodes
+     */
+    public long getNodeVisits() {
+        return nodeVisits;
+    }
+}
@@ -0,0 +1,161 @@
+package geometries;
+
+import geometries.Intersectable.Intersection;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import static primitives.Util.alignZero;
+import static primitives.Util.isZero;
+
+/**
+ * Triangles of compiled BVH leaves, stored as structure of arrays: one array
+ * per number of the precomputed Pl&uuml;cker edge data and of the plane (see
+ * {@link Polygon}). The triangles of a leaf are tested against a ray in one
+ * tight loop with the three edges unrolled. The arithmetic is exactly the one
+ * of {@link Polygon}, so the results are the same to the last bit.
+ */
+final class TriangleBatch implements Serializable {
+    /** Version of the serialized form */
+    private static final long serialVersionUID = 1L;
+    /** Amount of numbers of the edges' data - six per edge */
+    private static final int EDGE_NUMBERS = 18;
+    /** Column of the normal's x */
+    private static final int NX = 18;
+    /** Column of the normal's y */
+    private static final int NY = 19;
+    /** Column of the normal's z */
+    private static final int NZ = 20;
+    /** Column of the plane's offset */
+    private static final int ND = 21;
+
+    /** The original triangles - for the hit records */
+    private final Polygon[] triangles;
+    /** The columns: edge data (direction and moment per edge), then the plane */
+    private final double[][] columns = new double[22][];
+    /** Edge policy per triangle */
+    private final boolean[] watertight;
+
+    /**
+     * Store the triangles in arrays
+     * @param list the triangles (polygons of 3 vertices), in the order of the leaves' ranges
+     */
+    TriangleBatch(List<Polygon> list) {
+        int n = list.size();
+        triangles = list.toArray(new Polygon[0]);
+        watertight = new boolean[n];
+        for (int c = 0; c < columns.length; ++c)
+            columns[c] = new double[n];
+
+        for (int i = 0; i < n; ++i) {
+            Polygon triangle = triangles[i];
+            double[] edges = triangle.getEdges();
+            for (int c = 0; c < EDGE_NUMBERS; ++c)
+                columns[c][i] = edges[c];
+            Vector normal = triangle.getNormal(null);
+            columns[NX][i] = normal.getX();
+            columns[NY][i] = normal.getY();
+            columns[NZ][i] = normal.getZ();
+            columns[ND][i] = triangle.getPlaneOffset();
+            watertight[i] = triangle.isWatertight();
+        }
+    }
+
+    /**
+     * Intersect a ray with a range of the triangles
+     * @param ray    the ray
+     * @param from   the first triangle (included)
+     * @param to     the last triangle (excluded)
+     * @param result the intersections found so far (null if none)
+     * @return the intersections found including the range's ones (null if none)
+     */
+    List<Intersection> intersect(Ray ray, int from, int to, List<Intersection> result) {
+        Point head = ray.getHead();
+        Vector direction = ray.getDirection();
+        double oX = head.getX();
+        double oY = head.getY();
+        double oZ = head.getZ();
+        double dX = direction.getX();
+        double dY = direction.getY();
+        double dZ = direction.getZ();
+
+        for (int i = from; i < to; ++i) {
+            double t = distance(i, oX, oY, oZ, dX, dY, dZ);
+            if (t <= 0) continue;
+
+            if (result == null) result = new ArrayList<>();
+            Polygon triangle = triangles[i];
+            result.add(new Intersection(triangle, ray.getPoint(t), triangle.getMaterial()));
+        }
+        return result;
+    }
+
+    /**
+     * Find the closest intersection of a ray with a range of the triangles
+     * @param ray  the ray
+     * @param from the first triangle (included)
+     * @param to   the last triangle (excluded)
+     * @param hit  the closest hit found so far - updated if a closer one is found
+     * @return true if a closer intersection was found
+     */
+    boolean closest(Ray ray, int from, int to, Intersectable.ClosestHit hit) {
+        Point head = ray.getHead();
+        Vector direction = ray.getDirection();
+        double oX = head.getX();
+        double oY = head.getY();
+        double oZ = head.getZ();
+        double dX = direction.getX();
+        double dY = direction.getY();
+        double dZ = direction.getZ();
+
+        boolean found = false;
+        for (int i = from; i < to; ++i) {
+            double t = distance(i, oX, oY, oZ, dX, dY, dZ);
+            if (t > 0 && t < hit.t) {
+                hit.set(t, triangles[i]);
+                found = true;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Find the distance along a ray to its intersection with a triangle
+     * @param i  the index of the triangle
+     * @param oX x of the ray's head
+     * @param oY y of the ray's head
+     * @param oZ z of the ray's head
+     * @param dX x of the ray's direction
+     * @param dY y of the ray's direction
+     * @param dZ z of the ray's direction
+     * @return the distance, or zero if the ray does not intersect the triangle
+     */
+    private double distance(int i, double oX, double oY, double oZ, double dX, double dY, double dZ) {
+        double[][] c = columns;
+        double denominator = c[NX][i] * dX + c[NY][i] * dY + c[NZ][i] * dZ;
+        if (isZero(denominator)) return 0; // parallel to the plane
+
+        // Moment of the ray (direction x head)
+        double wX = dY * oZ - dZ * oY;
+        double wY = dZ * oX - dX * oZ;
+        double wZ = dX * oY - dY * oX;
+
+        double s0 = (dX * c[3][i] + dY * c[4][i] + dZ * c[5][i]) - (c[0][i] * wX + c[1][i] * wY + c[2][i] * wZ);
+        double s1 = (dX * c[9][i] + dY * c[10][i] + dZ * c[11][i]) - (c[6][i] * wX + c[7][i] * wY + c[8][i] * wZ);
+        double s2 = (dX * c[15][i] + dY * c[16][i] + dZ * c[17][i]) - (c[12][i] * wX + c[13][i] * wY + c[14][i] * wZ);
+        if (!watertight[i]) {
+            s0 = alignZero(s0);
+            s1 = alignZero(s1);
+            s2 = alignZero(s2);
+            if (s0 == 0 || s1 == 0 || s2 == 0) return 0; // on an edge - outside
+        }
+        if ((s0 > 0 || s1 > 0 || s2 > 0) && (s0 < 0 || s1 < 0 || s2 < 0)) return 0; // outside
+
+        double t = alignZero((c[ND][i] - (c[NX][i] * oX + c[NY][i] * oY + c[NZ][i] * oZ)) / denominator);
+        return t > 0 ? t : 0; // zero if behind the ray's head
+    }
+}
@@ -8,6 +8,8 @@ import java.util.List;
  * Represents a tube in three-dimensional space.
  */
 public class Tube extends RadialGeometry {
+    /** Version of the serialized form */
+    private static final long serialVersionUID = 1L;
 
     /** The axis of the tube. */
     protected final Ray axis;
@@ -7,6 +7,9 @@ import primitives.Double3;
  * AmbientLight class represents the ambient light in the scene
  */
 public class AmbientLight extends Light {
+    /** Version of the serialized form */
+    private static final long serialVersionUID = 1L;
+
     /**
      * NONE is a constant for no ambient light
      */
@@ -8,6 +8,9 @@ import primitives.Vector;
  * class for directional light
  */
 public class DirectionalLight extends Light implements LightSource{
+    /** Version of the serialized form */
+    private static final long serialVersionUID = 1L;
+
     private final Vector direction;
 
     /**
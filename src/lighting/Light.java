@@ -1,11 +1,15 @@
 package lighting;
 
 import primitives.Color;
+import java.io.Serializable;
 
 /**
  * Abstract class Light is the basic class representing a light source in the 3D space.
  */
-public abstract class Light {
+public abstract class Light implements Serializable {
+    /** Version of the serialized form */
+    private static final long serialVersionUID = 1L;
+
     /**
      * the intensity of the light
      */
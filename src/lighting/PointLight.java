@@ -9,6 +9,9 @@ import static renderer.Blackboard.generateCircleGrid;
  * PointLight class represents a light source with a specific position in the scene
  */
 public class PointLight extends Light implements LightSource{
+    /** Version of the serialized form */
+    private static final long serialVersionUID = 1L;
+
     /**
      * position of the light source
      */
@@ -126,7 +129,9 @@ public class PointLight extends Light implements LightSource{
      */
     @Override
     public Vector getL(Point p) {
-        return p.subtract(position).normalize();
+        return VectorMath.unitVector(p.getX() - position.getX(),
+                p.getY() - position.getY(),
+                p.getZ() - position.getZ());
     }
 
     /**
@@ -181,7 +186,9 @@ public class PointLight extends Light implements LightSource{
                 radius,
                 gridResolution
         ).stream()
-                .map(point -> p.subtract(point).normalize())
+                .map(point -> VectorMath.unitVector(p.getX() - point.getX(),
+                        p.getY() - point.getY(),
+                        p.getZ() - point.getZ()))
                 .toList();
     }
 
@@ -7,6 +7,9 @@ import primitives.Vector;
  * SpotLight class represents a light source with a specific position in the scene
  */
 public class SpotLight extends PointLight{
+    /** Version of the serialized form */
+    private static final long serialVersionUID = 1L;
+
     private final Vector direction;
 
 
@@ -1,5 +1,7 @@
 package primitives;
 
+import java.io.Serializable;
+
 /**
  * Axis-Aligned Bounding Box for spatial optimization
  * Stage 1: Conservative Boundary Region implementation
@@ -7,17 +9,38 @@ package primitives;
  * It provides methods to check if a ray intersects with the AABB,
  * combine two AABBs, and calculate properties like size, center, and surface area.
  */
-public class AABB {
+public class AABB implements Serializable {
+    /** Version of the serialized form */
+    private static final long serialVersionUID = 1L;
+
+    /** Direction component under which a ray is considered parallel to a slab */
+    private static final double PARALLEL = 1e-10;
+    /**
+     * Enlargement factor of the far slab distance - 1 + 2*gamma(3), the bound of
+     * the relative rounding error of the slab distance calculation
+     */
+    private static final double ROBUST_FACTOR = 1 + 2 * (3 * 0x1p-53) / (1 - 3 * 0x1p-53);
     /* * The AABB is defined by two points:
      * - min: the minimum corner of the box
      * - max: the maximum corner of the box
      */
     private final Point min;
     private final Point max;
+    /* * The corners' coordinates as plain numbers - read by the slab test
+     * without going through the point objects
+     */
+    private final double minX, minY, minZ;
+    private final double maxX, maxY, maxZ;
 
     public AABB(Point min, Point max) {
         this.min = min;
         this.max = max;
+        minX = min.xyz.d1;
+        minY = min.xyz.d2;
+        minZ = min.xyz.d3;
+        maxX = max.xyz.d1;
+        maxY = max.xyz.d2;
+        maxZ = max.xyz.d3;
     }
 
     // Getters
@@ -35,10 +58,9 @@ public class AABB {
      * @return surface area
      */
     public double getSurfaceArea() {
-        Vector size = getSize();
-        double dx = size.getX();
-        double dy = size.getY();
-        double dz = size.getZ();
+        double dx = maxX - minX;
+        double dy = maxY - minY;
+        double dz = maxZ - minZ;
         return 2 * (dx * dy + dy * dz + dz * dx);
     }
 
@@ -49,43 +71,174 @@ public class AABB {
      * @return true if intersection exists
      */
     public boolean intersect(Ray ray) {
-        Point rayOrigin = ray.getPoint(0);
+        return intersect(ray, minX, minY, minZ, maxX, maxY, maxZ);
+    }
+
+    /**
+     * Check if ray intersects with a box stored in an array of compiled bounds
+     * @param ray    the ray to check
+     * @param bounds the bounds array - six numbers per box: min x,y,z then max x,y,z
+     * @param offset index of the box's first number in the array
+     * @return true if intersection exists
+     */
+    public static boolean intersect(Ray ray, double[] bounds, int offset) {
+        return intersect(ray, bounds[offset], bounds[offset + 1], bounds[offset + 2],
+                bounds[offset + 3], bounds[offset + 4], bounds[offset + 5]);
+    }
+
+    /**
+     * Check if ray intersects with a box stored in single precision. The bounds
+     * must have been rounded outwards (see {@link #store(float[], int)}), the ray
+     * stays in double precision.
+     * @param ray    the ray to check
+     * @param bounds the bounds array - six numbers per box: min x,y,z then max x,y,z
+     * @param offset index of the box's first number in the array
+     * @return true if intersection exists
+     */
+    public static boolean intersect(Ray ray, float[] bounds, int offset) {
+        return intersect(ray, bounds[offset], bounds[offset + 1], bounds[offset + 2],
+                bounds[offset + 3], bounds[offset + 4], bounds[offset + 5]);
+    }
+
+    /**
+     * Distance along a ray to its entry into a box stored in an array of compiled
+     * bounds - for skipping boxes beyond the closest hit found so far
+     * @param ray    the ray to check
+     * @param bounds the bounds array - six numbers per box: min x,y,z then max x,y,z
+     * @param offset index of the box's first number in the array
+     * @return a lower bound of the entry distance (negative if the ray's head is
+     * inside the box), or positive infinity if the ray misses the box
+     */
+    public static double entryDistance(Ray ray, double[] bounds, int offset) {
+        return entryDistance(ray, bounds[offset], bounds[offset + 1], bounds[offset + 2],
+                bounds[offset + 3], bounds[offset + 4], bounds[offset + 5]);
+    }
+
+    /**
+     * Distance along a ray to its entry into a box stored in single precision
+     * (see {@link #entryDistance(Ray, double[], int)})
+     * @param ray    the ray to check
+     * @param bounds the bounds array - six numbers per box: min x,y,z then max x,y,z
+     * @param offset index of the box's first number in the array
+     * @return a lower bound of the entry distance (negative if the ray's head is
+     * inside the box), or positive infinity if the ray misses the box
+     */
+    public static double entryDistance(Ray ray, float[] bounds, int offset) {
+        return entryDistance(ray, bounds[offset], bounds[offset + 1], bounds[offset + 2],
+                bounds[offset + 3], bounds[offset + 4], bounds[offset + 5]);
+    }
+
+    /**
+     * Slab test of a ray against box bounds
+     * @return true if intersection exists
+     */
+    private static boolean intersect(Ray ray, double minX, double minY, double minZ,
+                                     double maxX, double maxY, double maxZ) {
+        return entryDistance(ray, minX, minY, minZ, maxX, maxY, maxZ) != Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Slab test of a ray against box bounds.
+     * The test uses the inverse direction cached in the ray, so it neither
+     * allocates nor divides. The far distance is enlarged and the near distance
+     * is reduced by a tiny relative error bound so that rounding cannot turn a
+     * grazing hit into a miss nor skip a box before a closer hit.
+     * @return a lower bound of the entry distance, or positive infinity for a miss
+     */
+    private static double entryDistance(Ray ray, double minX, double minY, double minZ,
+                                        double maxX, double maxY, double maxZ) {
+        Point rayOrigin = ray.getHead();
         Vector rayDir = ray.getDirection();
 
         double tMin = Double.NEGATIVE_INFINITY;
         double tMax = Double.POSITIVE_INFINITY;
 
-        // Check intersection with each axis
-        double[] origins = {rayOrigin.getX(), rayOrigin.getY(), rayOrigin.getZ()};
-        double[] directions = {rayDir.getX(), rayDir.getY(), rayDir.getZ()};
-        double[] minBounds = {min.getX(), min.getY(), min.getZ()};
-        double[] maxBounds = {max.getX(), max.getY(), max.getZ()};
-
-        for (int i = 0; i < 3; i++) {
-            if (Math.abs(directions[i]) < 1e-10) { // Ray is parallel to axis
-                if (origins[i] < minBounds[i] || origins[i] > maxBounds[i]) {
-                    return false;
-                }
-            } else {
-                double t1 = (minBounds[i] - origins[i]) / directions[i];
-                double t2 = (maxBounds[i] - origins[i]) / directions[i];
-
-                if (t1 > t2) { // Swap if needed
-                    double temp = t1;
-                    t1 = t2;
-                    t2 = temp;
-                }
-
-                tMin = Math.max(tMin, t1);
-                tMax = Math.min(tMax, t2);
-
-                if (tMin > tMax || tMax < 0) {
-                    return false;
-                }
-            }
+        // X slab
+        double o = rayOrigin.xyz.d1;
+        if (Math.abs(rayDir.xyz.d1) < PARALLEL) { // Ray is parallel to axis
+            if (o < minX || o > maxX) return Double.POSITIVE_INFINITY;
+        } else {
+            double t1 = (minX - o) * ray.invDirX;
+            double t2 = (maxX - o) * ray.invDirX;
+            tMin = Math.max(tMin, Math.min(t1, t2));
+            tMax = Math.min(tMax, Math.max(t1, t2) * ROBUST_FACTOR);
+            if (tMin > tMax || tMax < 0) return Double.POSITIVE_INFINITY;
         }
 
-        return true;
+        // Y slab
+        o = rayOrigin.xyz.d2;
+        if (Math.abs(rayDir.xyz.d2) < PARALLEL) {
+            if (o < minY || o > maxY) return Double.POSITIVE_INFINITY;
+        } else {
+            double t1 = (minY - o) * ray.invDirY;
+            double t2 = (maxY - o) * ray.invDirY;
+            tMin = Math.max(tMin, Math.min(t1, t2));
+            tMax = Math.min(tMax, Math.max(t1, t2) * ROBUST_FACTOR);
+            if (tMin > tMax || tMax < 0) return Double.POSITIVE_INFINITY;
+        }
+
+        // Z slab
+        o = rayOrigin.xyz.d3;
+        if (Math.abs(rayDir.xyz.d3) < PARALLEL) {
+            if (o < minZ || o > maxZ) return Double.POSITIVE_INFINITY;
+        } else {
+            double t1 = (minZ - o) * ray.invDirZ;
+            double t2 = (maxZ - o) * ray.invDirZ;
+            tMin = Math.max(tMin, Math.min(t1, t2));
+            tMax = Math.min(tMax, Math.max(t1, t2) * ROBUST_FACTOR);
+            if (tMin > tMax || tMax < 0) return Double.POSITIVE_INFINITY;
+        }
+        return tMin > 0 ? tMin / ROBUST_FACTOR : tMin;
+    }
+
+    /**
+     * Store the bounds into an array of compiled bounds in double precision
+     * @param bounds the destination - six numbers per box: min x,y,z then max x,y,z
+     * @param offset index of the box's first number in the array
+     */
+    public void store(double[] bounds, int offset) {
+        bounds[offset] = minX;
+        bounds[offset + 1] = minY;
+        bounds[offset + 2] = minZ;
+        bounds[offset + 3] = maxX;
+        bounds[offset + 4] = maxY;
+        bounds[offset + 5] = maxZ;
+    }
+
+    /**
+     * Store the bounds into an array of compiled bounds in single precision.
+     * The minimum is rounded down and the maximum is rounded up, so the stored
+     * box always contains the original one and no hit can be lost.
+     * @param bounds the destination - six numbers per box: min x,y,z then max x,y,z
+     * @param offset index of the box's first number in the array
+     */
+    public void store(float[] bounds, int offset) {
+        bounds[offset] = floatDown(minX);
+        bounds[offset + 1] = floatDown(minY);
+        bounds[offset + 2] = floatDown(minZ);
+        bounds[offset + 3] = floatUp(maxX);
+        bounds[offset + 4] = floatUp(maxY);
+        bounds[offset + 5] = floatUp(maxZ);
+    }
+
+    /**
+     * Round a number to the nearest float which is not greater than it
+     * @param value the number
+     * @return the rounded number
+     */
+    private static float floatDown(double value) {
+        float f = (float) value;
+        return f > value ? Math.nextDown(f) : f;
+    }
+
+    /**
+     * Round a number to the nearest float which is not less than it
+     * @param value the number
+     * @return the rounded number
+     */
+    private static float floatUp(double value) {
+        float f = (float) value;
+        return f < value ? Math.nextUp(f) : f;
     }
 
     /**
@@ -98,16 +251,16 @@ public class AABB {
 
         // Calculate the new minimum point by taking the minimum of each coordinate
         Point newMin = new Point(
-                Math.min(box1.min.getX(), box2.min.getX()),
-                Math.min(box1.min.getY(), box2.min.getY()),
-                Math.min(box1.min.getZ(), box2.min.getZ())
+                Math.min(box1.minX, box2.minX),
+                Math.min(box1.minY, box2.minY),
+                Math.min(box1.minZ, box2.minZ)
         );
 
         // Calculate the new maximum point by taking the maximum of each coordinate
         Point newMax = new Point(
-                Math.max(box1.max.getX(), box2.max.getX()),
-                Math.max(box1.max.getY(), box2.max.getY()),
-                Math.max(box1.max.getZ(), box2.max.getZ())
+                Math.max(box1.maxX, box2.maxX),
+                Math.max(box1.maxY, box2.maxY),
+                Math.max(box1.maxZ, box2.maxZ)
         );
 
         return new AABB(newMin, newMax);
@@ -1,5 +1,7 @@
 package primitives;
 
+import java.io.Serializable;
+
 /**
  * Wrapper class for java.jwt.Color The constructors operate with any
  * non-negative RGB values. The colors are maintained without upper limit of
@@ -7,7 +9,10 @@ package primitives;
  * light's colors
  * @author Dan Zilberstein
  */
-public class Color {
+public class Color implements Serializable {
+   /** Version of the serialized form */
+   private static final long serialVersionUID = 1L;
+
    /**
     * The internal fields maintain RGB components as double numbers from 0 to
     * whatever...
@@ -63,6 +68,12 @@ public class Color {
       return new java.awt.Color(ir > 255 ? 255 : ir, ig > 255 ? 255 : ig, ib > 255 ? 255 : ib);
    }
 
+   /**
+    * Color getter - the RGB components without conversion or limit
+    * @return the triad of Red/Green/Blue components
+    */
+   public Double3 getRgb() { return rgb; }
+
    /**
     * Operation of adding this and one or more other colors (by component)
     * @param  colors one or more other colors to add
@@ -111,6 +122,19 @@ public class Color {
       return new Color(rgb.reduce(k));
    }
 
+   /**
+    * Contrast between this and another color as they are displayed - the
+    * largest difference of their components, each component limited to 255
+    * @param  other the other color
+    * @return       the contrast in range 0..255
+    */
+   public double difference(Color other) {
+      double dr = Math.abs(Math.min(rgb.d1(), 255) - Math.min(other.rgb.d1(), 255));
+      double dg = Math.abs(Math.min(rgb.d2(), 255) - Math.min(other.rgb.d2(), 255));
+      double db = Math.abs(Math.min(rgb.d3(), 255) - Math.min(other.rgb.d3(), 255));
+      return Math.max(dr, Math.max(dg, db));
+   }
+
    @Override
    public String toString() { return "rgb:" + rgb; }
 }
@@ -3,6 +3,7 @@
  */
 package primitives;
 
+import java.io.Serializable;
 import static primitives.Util.isZero;
 
 /**
@@ -10,7 +11,10 @@ import static primitives.Util.isZero;
  *
  * @author Dan Zilberstein
  */
-public class Double3 {
+public class Double3 implements Serializable {
+    /** Version of the serialized form */
+    private static final long serialVersionUID = 1L;
+
     /**
      * First number
      */
@@ -1,9 +1,13 @@
 package primitives;
 
+import java.io.Serializable;
+
 /**
  * Material class represents the material of a geometry
  */
-public class Material {
+public class Material implements Serializable {
+    /** Version of the serialized form */
+    private static final long serialVersionUID = 1L;
 
     /**
      * kD is the diffuse factor
@@ -1,9 +1,14 @@
 package primitives;
 
+import java.io.Serializable;
+
 /**
  * Represents a point in three-dimensional space.
  */
-public class Point {
+public class Point implements Serializable {
+    /** Version of the serialized form */
+    private static final long serialVersionUID = 1L;
+
     /** The coordinates of the point. */
     final Double3 xyz;
 
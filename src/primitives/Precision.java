@@ -0,0 +1,14 @@
+package primitives;
+
+/**
+ * Storage precision of compiled render data (acceleration structure bounds,
+ * sample buffers). Single precision halves the memory and the cache footprint
+ * of large scenes; the data is stored conservatively (e.g. bounding boxes are
+ * rounded outwards), while rays and shading stay in double precision.
+ */
+public enum Precision {
+    /** 64 bit floating point numbers - the default */
+    DOUBLE,
+    /** 32 bit floating point numbers */
+    FLOAT
+}
@@ -1,5 +1,6 @@
 package primitives;
 
+import java.io.Serializable;
 import java.util.List;
 import geometries.Intersectable.Intersection;
 import static primitives.Util.isZero;
@@ -7,7 +8,9 @@ import static primitives.Util.isZero;
 /**
  * Represents a ray in three-dimensional space.
  */
-public class Ray {
+public class Ray implements Serializable {
+    /** Version of the serialized form */
+    private static final long serialVersionUID = 1L;
 
     /**
      * The starting point (head) of the ray.
@@ -21,6 +24,12 @@ public class Ray {
 
     private static final double DELTA = 0.1;
 
+    /**
+     * Inverse of the direction components (1/dx, 1/dy, 1/dz), calculated once
+     * per ray for the slab tests of the bounding boxes.
+     */
+    final double invDirX, invDirY, invDirZ;
+
 
     /**
      * Constructs a new ray with the specified starting point and direction.
@@ -31,6 +40,9 @@ public class Ray {
     public Ray(Point head, Vector direction) {
         this.head = head;
         this.direction = direction.normalize();
+        invDirX = 1 / this.direction.xyz.d1;
+        invDirY = 1 / this.direction.xyz.d2;
+        invDirZ = 1 / this.direction.xyz.d3;
     }
 
 
@@ -44,7 +56,13 @@ public class Ray {
      */
     public Ray(Point p, Vector v, Vector normal) {
         this.direction = v.normalize();
-        this.head = p.add(normal.scale(v.dotProduct(normal) > 0 ? DELTA : -DELTA));
+        double delta = v.dotProduct(normal) > 0 ? DELTA : -DELTA;
+        this.head = new Point(p.xyz.d1 + normal.xyz.d1 * delta,
+                p.xyz.d2 + normal.xyz.d2 * delta,
+                p.xyz.d3 + normal.xyz.d3 * delta);
+        invDirX = 1 / direction.xyz.d1;
+        invDirY = 1 / direction.xyz.d2;
+        invDirZ = 1 / direction.xyz.d3;
     }
 
     /**
@@ -100,13 +118,9 @@ public class Ray {
         if (isZero(t)) {
             return head;
         }
-
-        try {
-            return head.add(direction.scale(t));
-        } catch (IllegalArgumentException e) {
-
-            return head;
-        }
+        return new Point(head.xyz.d1 + direction.xyz.d1 * t,
+                head.xyz.d2 + direction.xyz.d2 * t,
+                head.xyz.d3 + direction.xyz.d3 * t);
     }
 
     /**
@@ -123,7 +137,7 @@ public class Ray {
         double minDistance = Double.POSITIVE_INFINITY;
 
         for (Intersection inter : intersections) {
-            double distance = head.distance(inter.point);
+            double distance = head.distanceSquared(inter.point);
             if (distance < minDistance) {
                 minDistance = distance;
                 closest = inter;
@@ -1,9 +1,13 @@
 package primitives;
 
+import static primitives.Util.isZero;
+
 /**
  * Represents a vector in three-dimensional space.
  */
 public class Vector extends Point {
+    /** Version of the serialized form */
+    private static final long serialVersionUID = 1L;
 
     public static Vector AXIS_X = new Vector(1d, 0d, 0d);
     public static Vector AXIS_Y = new Vector(0d, 1d, 0d);
@@ -19,7 +23,7 @@ public class Vector extends Point {
      */
     public Vector(double x, double y, double z) {
         super(x, y, z);
-        if (xyz.equals(Double3.ZERO)) {
+        if (VectorMath.isZeroVector(x, y, z)) {
             throw new IllegalArgumentException("Invalid parameter: Vector cannot have zero length");
         }
     }
@@ -32,11 +36,22 @@ public class Vector extends Point {
      */
     public Vector(Double3 xyz) {
         super(xyz);
-        if (xyz.equals(Double3.ZERO)) {
+        if (VectorMath.isZeroVector(xyz.d1, xyz.d2, xyz.d3)) {
             throw new IllegalArgumentException("Invalid parameter: Vector cannot have zero length");
         }
     }
 
+    /**
+     * Constructs a new vector which is known to be a unit vector (e.g. the result
+     * of a normalization), skipping the zero length test.
+     *
+     * @param xyz  The coordinates of the unit vector.
+     * @param unit marker of the trusted constructor, ignored
+     */
+    Vector(Double3 xyz, boolean unit) {
+        super(xyz);
+    }
+
 
 
     /**
@@ -124,11 +139,15 @@ public class Vector extends Point {
     }
 
     /**
-     * Normalizes this vector, returning a new vector with length 1.
+     * Normalizes this vector, returning a vector with length 1.
+     * A vector that is already a unit vector is returned as is (it is immutable).
      *
      * @return The normalized vector.
      */
     public Vector normalize() {
-        return scale(1 / length());
+        double lengthSquared = lengthSquared();
+        if (isZero(lengthSquared - 1)) return this;
+        double scale = 1 / Math.sqrt(lengthSquared);
+        return new Vector(new Double3(xyz.d1 * scale, xyz.d2 * scale, xyz.d3 * scale), true);
     }
 }
\ No newline at end of file
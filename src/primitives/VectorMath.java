@@ -0,0 +1,162 @@
+package primitives;
+
+import static primitives.Util.isZero;
+
+/**
+ * Static kernels of 3D vector math over plain doubles.<br>
+ * The immutable {@link Point} and {@link Vector} classes allocate a new object
+ * (and a new {@link Double3}) for the result of every operation, which is fine
+ * for building a scene but dominates the cost of the per-ray computations.
+ * The tracing hot path (the tracer, the camera, the geometries' intersection
+ * tests and the bounding boxes) works with coordinates held in local variables
+ * and uses these kernels, which never allocate. A vector result is calculated
+ * per component - e.g. {@link #crossX}, {@link #crossY} and {@link #crossZ}.
+ */
+public final class VectorMath {
+    /** Don't let anyone instantiate this class. */
+    private VectorMath() {}
+
+    /**
+     * Dot product of two vectors given by their components
+     *
+     * @param ax x of the 1st vector
+     * @param ay y of the 1st vector
+     * @param az z of the 1st vector
+     * @param bx x of the 2nd vector
+     * @param by y of the 2nd vector
+     * @param bz z of the 2nd vector
+     * @return the dot product
+     */
+    public static double dot(double ax, double ay, double az, double bx, double by, double bz) {
+        return ax * bx + ay * by + az * bz;
+    }
+
+    /**
+     * Dot product of a vector given by its components with a point/vector object
+     *
+     * @param ax x of the 1st vector
+     * @param ay y of the 1st vector
+     * @param az z of the 1st vector
+     * @param b  the 2nd vector (or a point as a radius vector)
+     * @return the dot product
+     */
+    public static double dot(double ax, double ay, double az, Point b) {
+        return ax * b.xyz.d1 + ay * b.xyz.d2 + az * b.xyz.d3;
+    }
+
+    /**
+     * Dot product of two point/vector objects (points as radius vectors) - without
+     * the zero vector check of {@link Vector}
+     *
+     * @param a the 1st vector
+     * @param b the 2nd vector
+     * @return the dot product
+     */
+    public static double dot(Point a, Point b) {
+        return a.xyz.d1 * b.xyz.d1 + a.xyz.d2 * b.xyz.d2 + a.xyz.d3 * b.xyz.d3;
+    }
+
+    /**
+     * X component of the cross product of two vectors
+     *
+     * @param ax x of the 1st vector (unused, kept for symmetric signatures)
+     * @param ay y of the 1st vector
+     * @param az z of the 1st vector
+     * @param bx x of the 2nd vector (unused, kept for symmetric signatures)
+     * @param by y of the 2nd vector
+     * @param bz z of the 2nd vector
+     * @return x component of a x b
+     */
+    public static double crossX(double ax, double ay, double az, double bx, double by, double bz) {
+        return ay * bz - az * by;
+    }
+
+    /**
+     * Y component of the cross product of two vectors
+     *
+     * @param ax x of the 1st vector
+     * @param ay y of the 1st vector (unused, kept for symmetric signatures)
+     * @param az z of the 1st vector
+     * @param bx x of the 2nd vector
+     * @param by y of the 2nd vector (unused, kept for symmetric signatures)
+     * @param bz z of the 2nd vector
+     * @return y component of a x b
+     */
+    public static double crossY(double ax, double ay, double az, double bx, double by, double bz) {
+        return az * bx - ax * bz;
+    }
+
+    /**
+     * Z component of the cross product of two vectors
+     *
+     * @param ax x of the 1st vector
+     * @param ay y of the 1st vector
+     * @param az z of the 1st vector (unused, kept for symmetric signatures)
+     * @param bx x of the 2nd vector
+     * @param by y of the 2nd vector
+     * @param bz z of the 2nd vector (unused, kept for symmetric signatures)
+     * @return z component of a x b
+     */
+    public static double crossZ(double ax, double ay, double az, double bx, double by, double bz) {
+        return ax * by - ay * bx;
+    }
+
+    /**
+     * Squared length of a vector
+     *
+     * @param x x component
+     * @param y y component
+     * @param z z component
+     * @return the squared length
+     */
+    public static double lengthSquared(double x, double y, double z) {
+        return x * x + y * y + z * z;
+    }
+
+    /**
+     * Squared distance between two points given by their coordinates
+     *
+     * @param ax x of the 1st point
+     * @param ay y of the 1st point
+     * @param az z of the 1st point
+     * @param b  the 2nd point
+     * @return the squared distance
+     */
+    public static double distanceSquared(double ax, double ay, double az, Point b) {
+        double dx = ax - b.xyz.d1;
+        double dy = ay - b.xyz.d2;
+        double dz = az - b.xyz.d3;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * Check whether a vector is [almost] the zero vector, with the same accuracy
+     * as the {@link Vector} constructor uses
+     *
+     * @param x x component
+     * @param y y component
+     * @param z z component
+     * @return true if all the components are [almost] zero
+     */
+    public static boolean isZeroVector(double x, double y, double z) {
+        return isZero(x) && isZero(y) && isZero(z);
+    }
+
+    /**
+     * Build a unit vector object in the direction of the given components. This is
+     * the bridge from the kernels back to the immutable API - it costs exactly one
+     * vector object.
+     *
+     * @param x x component
+     * @param y y component
+     * @param z z component
+     * @return the normalized vector
+     * @throws IllegalArgumentException if the components form a zero vector
+     */
+    public static Vector unitVector(double x, double y, double z) {
+        if (isZeroVector(x, y, z))
+            throw new IllegalArgumentException("Invalid parameter: Vector cannot have zero length");
+        double scale = 1 / Math.sqrt(x * x + y * y + z * z);
+        return new Vector(new Double3(x * scale, y * scale, z * scale), true);
+    }
+}
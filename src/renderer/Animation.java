@@ -0,0 +1,154 @@
+package renderer;
+
+import primitives.Point;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Animation renderer: renders a sequence of frames, each with its own camera
+ * along a camera path, on one fork/join pool.<br/>
+ * The frames' cameras share one ray tracer and so one prepared scene (with its
+ * BVH). Each frame is rendered by recursive subdivision of its image in the
+ * pool, and several frames are rendered at once, so the pool stays busy when
+ * a frame is too small to keep all its threads busy. A frame is handed to the
+ * listener as soon as it is done - the frames may complete out of order.<br/>
+ * The animation keeps the poses of the frames only: each frame is rendered by
+ * a copy of its camera with an image of its own, allocated when the frame
+ * starts and released when the listener returns.
+ * Frames sharing a {@link ReprojectionCache} are rendered in order, one at a
+ * time.
+ */
+public class Animation {
+    /** A frame is small when it has less tiles than this per pool thread */
+    private static final int SMALL_FRAME_TILES_PER_THREAD = 4;
+    /** Frames in flight when the frames are large - the next frame renders while one is written */
+    private static final int LARGE_FRAMES_IN_FLIGHT = 2;
+
+    /** The cameras of the frames - their poses */
+    private final List<Camera> frames;
+    /** The pool rendering the frames and their tiles */
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    /**
+     * Listener of the completed frames
+     */
+    @FunctionalInterface
+    public interface FrameListener {
+        /**
+         * Called from a rendering thread when a frame is rendered
+         *
+         * @param frame  the number of the frame
+         * @param camera the camera of the frame holding its image
+         */
+        void frameDone(int frame, Camera camera);
+    }
+
+    /**
+     * Create an animation along a camera path
+     *
+     * @param frames the cameras of the frames, in order
+     * @throws IllegalArgumentException if there are no frames, or a camera
+     *                                  does not render every pixel at once in
+     *                                  memory (it is set for passes, a time
+     *                                  budget, workers, a checkpoint, an
+     *                                  out-of-core image, metrics or progress
+     *                                  printing)
+     */
+    public Animation(List<Camera> frames) {
+        if (frames.isEmpty())
+            throw new IllegalArgumentException("Animation must have frames");
+        frames.forEach(Camera::requirePoolRender);
+        this.frames = List.copyOf(frames);
+    }
+
+    /**
+     * Create a turntable animation: the camera rotates around a target point
+     * about the vertical axis by equal steps (see {@link Camera#rotatedAroundTarget})
+     *
+     * @param camera       the camera of the first frame
+     * @param target       the target point around which the camera rotates
+     * @param frameCount   the amount of frames
+     * @param totalDegrees the rotation angle of the whole animation in degrees
+     * @return the animation
+     */
+    public static Animation turntable(Camera camera, Point target, int frameCount, double totalDegrees) {
+        if (frameCount < 1)
+            throw new IllegalArgumentException("Frame count must be positive");
+        List<Camera> path = new ArrayList<>(frameCount);
+        for (int i = 0; i < frameCount; ++i)
+            path.add(camera.posedAroundTarget(target, totalDegrees * i / frameCount));
+        return new Animation(path);
+    }
+
+    /**
+     * Set the pool rendering the frames and their tiles (the common pool by default)
+     *
+     * @param pool the pool
+     * @return the animation
+     */
+    public Animation setPool(ForkJoinPool pool) {
+        this.pool = pool;
+        return this;
+    }
+
+    /**
+     * Amount of frames
+     *
+     * @return the amount of frames
+     */
+    public int getFrameCount() {
+        return frames.size();
+    }
+
+    /**
+     * Render the frames and write each one to an image file named by the base
+     * name and the frame number (name_0000, name_0001, ...) when it is done
+     *
+     * @param name the base name of the image files
+     */
+    public void render(String name) {
+        render((frame, camera) -> camera.writeToImage(String.format("%s_%04d", name, frame)));
+    }
+
+    /**
+     * Render the frames, handing each one to the listener when it is done. The
+     * amount of frames rendered at once is bounded, so the images of all the
+     * frames are not kept in memory together.
+     *
+     * @param listener the listener of the completed frames - the camera it gets
+     *                 is a copy of the frame's camera, whose image is released
+     *                 when the listener returns
+     */
+    public void render(FrameListener listener) {
+        Camera first = frames.get(0);
+        int threads = pool.getParallelism();
+        int tiles = new PixelManager(first.getNy(), first.getNx(), first.getTileSize(), 0).tilesCount();
+        int inFlight = first.getReprojectionCache() != null ? 1 // each frame reuses the previous one
+                : tiles < threads * SMALL_FRAME_TILES_PER_THREAD ? threads : LARGE_FRAMES_IN_FLIGHT;
+
+        Semaphore slots = new Semaphore(inFlight);
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(frames.size());
+        try {
+            for (int i = 0; i < frames.size(); ++i) {
+                slots.acquire();
+                int frame = i;
+                tasks.add(pool.submit(() -> {
+                    try {
+                        listener.frameDone(frame, frames.get(frame).withImage().renderImageInPool());
+                    } finally {
+                        slots.release();
+                    }
+                }));
+            }
+            for (ForkJoinTask<?> task : tasks) task.join();
+        } catch (InterruptedException e) {
+            tasks.forEach(task -> task.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Rendering was interrupted", e);
+        }
+    }
+}
@@ -65,10 +65,13 @@ public class Blackboard {
         List<Point> points = new ArrayList<>(gridResolution * gridResolution);
         for (int i = 0; i < gridResolution; i++) {
             for (int j = 0; j < gridResolution; j++) {
-                points.add(topLeft
-                        .add(vRight.scale((i + RANDOM.nextDouble()) * cellSize))
-                        .add(vUp.scale(-(j + RANDOM.nextDouble()) * cellSize))
-                );
+                // topLeft + vRight * right + vUp * up - by components, one point per sample
+                double right = (i + RANDOM.nextDouble()) * cellSize;
+                double up = -(j + RANDOM.nextDouble()) * cellSize;
+                points.add(new Point(
+                        topLeft.getX() + vRight.getX() * right + vUp.getX() * up,
+                        topLeft.getY() + vRight.getY() * right + vUp.getY() * up,
+                        topLeft.getZ() + vRight.getZ() * right + vUp.getZ() * up));
             }
         }
 
@@ -5,8 +5,21 @@ import scene.*;
 import java.util.MissingResourceException;
 import lighting.*;
 import geometries.*;
+import java.io.Serializable;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Supplier;
 import java.util.stream.IntStream;
 
 import static java.lang.Math.abs;
@@ -15,7 +28,10 @@ import static java.lang.Math.abs;
 /**
  * Camera class represents a camera in the 3D space
  */
-public class Camera implements Cloneable {
+public class Camera implements Cloneable, Serializable {
+    /** Version of the serialized form */
+    private static final long serialVersionUID = 1L;
+
     private Point p0;
     private Vector vUp;
     private Vector vTo;
@@ -25,7 +41,10 @@ public class Camera implements Cloneable {
     private double height = 0d;
     private double distance = 0d;
 
-    private ImageWriter imageWriter;
+    private transient ImageWriter imageWriter;
+    private transient FrameBuffer frameBuffer = null;
+    private ToneMapping toneMapping = null;
+    private double exposure = 1;
     private RayTracerBase rayTracer;
 
     private int nX = 1;
@@ -34,10 +53,90 @@ public class Camera implements Cloneable {
     // === multithreading & progress tracking fields ===
     private int threadsCount       = 0;
     private static final int SPARE_THREADS = 2;
+    private static final int VIRTUAL_THREADS = -3;
+    private static final int FORK_JOIN = -4;
+    private transient ExecutorService executor = null;
     private double printInterval   = 0;
-    private PixelManager pixelManager = new PixelManager(0,0,0);
+    private int tileSize           = 16;
+
+    // === progressive rendering ===
+    private int progressiveStride = 1;
+    private int passStride        = 1;
+    private transient PassListener passListener = null;
+
+    // === distributed rendering ===
+    private transient List<InetSocketAddress> workers = List.of();
+    private transient int workerTimeout = 30_000;
+
+    // === checkpoint ===
+    private transient Path checkpointFile = null;
+    private transient boolean resumeCheckpoint = false;
+    private transient RenderCheckpoint checkpoint = null;
+
+    // === render metrics ===
+    private transient boolean collectMetrics = false;
+    private transient RenderMetrics.Recorder recorder = null;
+    private transient RenderMetrics metrics = null;
+
+    // === cost heatmap ===
+    private transient CostHeatmap.Metric heatmapMetric = null;
+    private transient CostHeatmap heatmap = null;
+
+    // === region of interest ===
+    private transient PixelManager.Tile region = null;
+    private transient PixelMask regionMask = null;
+
+    // === out-of-core image ===
+    private transient Path outOfCoreFile = null;
+    private transient ImageFormat outOfCoreFormat = null;
+    private transient TiledImage tiledImage = null;
+
+    // === temporal reprojection ===
+    private transient ReprojectionCache reprojectionCache = null;
+
+    // === time budget ===
+    private static final int BUDGET_SAMPLES_PER_AXIS = 16;
+    private static final double BUDGET_SAFETY = 0.8;
+    private static final int BUDGET_STRIDE = 8;
+    private long timeBudget = 0;
+    private long deadline   = 0;
+
+    // === adaptive anti-aliasing ===
+    private int antiAliasingDepth       = 0;
+    private double antiAliasingThreshold = 0;
+    private transient PixelManager pixelManager = new PixelManager(0,0,1,0);
 
 
+    /**
+     * Listener of the passes of progressive rendering
+     */
+    @FunctionalInterface
+    public interface PassListener {
+        /**
+         * Called after each pass of progressive rendering, when the image holds
+         * a complete preview
+         *
+         * @param camera the camera rendering the image
+         * @param stride the distance between the pixels traced so far (1 after the last pass)
+         */
+        void passDone(Camera camera, int stride);
+    }
+
+    /**
+     * Mask of the pixels to render in a region of the image
+     */
+    @FunctionalInterface
+    public interface PixelMask {
+        /**
+         * Check whether a pixel is rendered
+         *
+         * @param x the x index of the pixel
+         * @param y the y index of the pixel
+         * @return true if the pixel is rendered
+         */
+        boolean contains(int x, int y);
+    }
+
     /**
      * Camera constructor
      */
@@ -134,6 +233,60 @@ public class Camera implements Cloneable {
         return nY;
     }
 
+    /**
+     * Camera getter
+     *
+     * @return the size of the tiles' side in pixels
+     */
+    int getTileSize() {
+        return tileSize;
+    }
+
+    /**
+     * Camera getter
+     *
+     * @return the reprojection cache shared with the previous frames (null if none)
+     */
+    ReprojectionCache getReprojectionCache() {
+        return reprojectionCache;
+    }
+
+    /**
+     * Camera getter
+     *
+     * @return the high dynamic range frame buffer (null if the pixels are written to the image directly)
+     */
+    FrameBuffer getFrameBuffer() {
+        return frameBuffer;
+    }
+
+    /**
+     * The metrics of the last render, if collected (see {@link Builder#setMetrics})
+     *
+     * @return the metrics, null if not collected or nothing was rendered yet
+     */
+    public RenderMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * The cost heatmap of the last render, if measured (see {@link Builder#setHeatmap})
+     *
+     * @return the heatmap, null if not measured
+     */
+    public CostHeatmap getHeatmap() {
+        return heatmap;
+    }
+
+    /**
+     * Camera getter
+     *
+     * @return the image writer holding the rendered pixels
+     */
+    ImageWriter getImageWriter() {
+        return imageWriter;
+    }
+
     /**
      * construct a ray through a pixel
      *
@@ -144,18 +297,29 @@ public class Camera implements Cloneable {
      * @return the ray that passes through the pixel
      */
     public Ray constructRay(int nX, int nY, int j, int i) {
-        Point pIJ = p0;
-        double yI = -(i - (nY - 1) / 2d) * height / nY;
-        double xJ = (j - (nX - 1) / 2d) * width / nX;
+        return constructRay(nX, nY, j - (nX - 1) / 2d, i - (nY - 1) / 2d);
+    }
 
-        //check if xJ or yI are not zero, so we will not add zero vector
-        if (!Util.isZero(xJ)) pIJ = pIJ.add(vRight.scale(xJ));
-        if (!Util.isZero(yI)) pIJ = pIJ.add(vUp.scale(yI));
+    /**
+     * construct a ray through a point of the view plane
+     *
+     * @param nX the number of pixels in the x direction
+     * @param nY the number of pixels in the y direction
+     * @param x  the x of the point relative to the view plane center, in pixels
+     * @param y  the y of the point relative to the view plane center, in pixels (downwards)
+     * @return the ray that passes through the point
+     */
+    private Ray constructRay(int nX, int nY, double x, double y) {
+        double yI = -y * height / nY;
+        double xJ = x * width / nX;
 
-        // we need to move the point in the direction of vTo by distance
-        pIJ = pIJ.add(vTo.scale(distance));
+        // the direction from p0 to the pixel center: vTo*distance + vRight*xJ + vUp*yI,
+        // calculated by components so that no intermediate point or vector is created
+        double dX = vTo.getX() * distance + vRight.getX() * xJ + vUp.getX() * yI;
+        double dY = vTo.getY() * distance + vRight.getY() * xJ + vUp.getY() * yI;
+        double dZ = vTo.getZ() * distance + vRight.getZ() * xJ + vUp.getZ() * yI;
 
-        return new Ray(p0, pIJ.subtract(p0).normalize());
+        return new Ray(p0, VectorMath.unitVector(dX, dY, dZ));
     }
 
 
@@ -166,21 +330,22 @@ public class Camera implements Cloneable {
      */
     /** Single‐threaded rendering. */
     public Camera renderImageNoThreads() {
-        for (int i = 0; i < imageWriter.getNy(); i++) {
-            for (int j = 0; j < imageWriter.getNx(); j++) {
-                castRay(j, i);
-            }
+        pixelManager = new PixelManager(nY, nX, tileSize, printInterval);
+        return renderImageTiles();
+    }
+
+    /** Single‐threaded rendering of the tiles of the current pixel manager. */
+    private Camera renderImageTiles() {
+        for (int i = 0; i < pixelManager.tilesCount(); i++) {
+            renderTile(pixelManager.tile(i));
         }
         return this;
     }
 
     /** Parallel streams rendering. */
     private Camera renderImageStream() {
-        int nx = imageWriter.getNx();
-        int ny = imageWriter.getNy();
-        IntStream.range(0, ny).parallel()
-                .forEach(i -> IntStream.range(0, nx).parallel()
-                        .forEach(j -> castRay(j, i)));
+        IntStream.range(0, pixelManager.tilesCount()).parallel()
+                .forEach(i -> renderTile(pixelManager.tile(i)));
         return this;
     }
 
@@ -190,36 +355,639 @@ public class Camera implements Cloneable {
         List<Thread> threads = new LinkedList<>();
         for (int t = 0; t < threadsCount; t++) {
             threads.add(new Thread(() -> {
-                PixelManager.Pixel p;
-                while ((p = pixelManager.nextPixel()) != null) {
-                    castRay(p.col(), p.row());
+                PixelManager.Tile tile;
+                while (!Thread.currentThread().isInterrupted() && (tile = pixelManager.nextTile()) != null) {
+                    renderTile(tile);
                 }
             }));
         }
         threads.forEach(Thread::start);
-        for (Thread t : threads) {
-        try { t.join(); } catch (InterruptedException ignored) {}
-    }
+        try {
+            for (Thread t : threads) t.join();
+        } catch (InterruptedException e) {
+            threads.forEach(Thread::interrupt);
+            joinUninterruptibly(threads); // the workers finish their current tiles before the image is released
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Rendering was interrupted", e);
+        }
         return this;
 }
 
+    /**
+     * Wait for threads to end, ignoring interrupts
+     *
+     * @param threads the threads
+     */
+    private static void joinUninterruptibly(List<Thread> threads) {
+        for (Thread thread : threads) {
+            while (thread.isAlive()) {
+                try {
+                    thread.join();
+                } catch (InterruptedException ignored) {
+                    // keep waiting - the caller restores the interrupt status
+                }
+            }
+        }
+    }
+
+    /**
+     * Fork/join task rendering a region of the image: a region larger than a
+     * tile is split in two halves across its longer side, and the halves are
+     * forked, so the idle workers of the pool steal the remaining work of the
+     * busy ones wherever the pixels are expensive.
+     */
+    private class RegionRender extends RecursiveAction {
+        /** Version of the serialized form */
+        private static final long serialVersionUID = 1L;
+        /** The region - first column and row, and the column and row following it */
+        private final int col0, row0, col1, row1;
+
+        /**
+         * Create the task of a region
+         * @param col0 first pixel column
+         * @param row0 first pixel row
+         * @param col1 pixel column following the region
+         * @param row1 pixel row following the region
+         */
+        RegionRender(int col0, int row0, int col1, int row1) {
+            this.col0 = col0;
+            this.row0 = row0;
+            this.col1 = col1;
+            this.row1 = row1;
+        }
+
+        @Override
+        protected void compute() {
+            int cols = col1 - col0;
+            int rows = row1 - row0;
+            if (cols <= tileSize && rows <= tileSize) {
+                renderTile(new PixelManager.Tile(col0, row0, col1, row1));
+            } else if (cols >= rows) {
+                int middle = col0 + halfTiles(cols);
+                invokeAll(new RegionRender(col0, row0, middle, row1), new RegionRender(middle, row0, col1, row1));
+            } else {
+                int middle = row0 + halfTiles(rows);
+                invokeAll(new RegionRender(col0, row0, col1, middle), new RegionRender(col0, middle, col1, row1));
+            }
+        }
+    }
+
+    /**
+     * Half of a region's side rounded to whole tiles, so the regions are split
+     * along the tiles' grid
+     *
+     * @param pixels the size of the region's side in pixels
+     * @return the size of the first half in pixels
+     */
+    private int halfTiles(int pixels) {
+        return (pixels + tileSize - 1) / tileSize / 2 * tileSize;
+    }
+
+    /** Fork/join rendering by recursive subdivision of the image. */
+    private Camera renderImageForkJoin() {
+        PixelManager.Tile bounds = bounds();
+        ForkJoinPool.commonPool().invoke(new RegionRender(bounds.col0(), bounds.row0(), bounds.col1(), bounds.row1()));
+        return this;
+    }
+
+    /**
+     * Render the image by fork/join subdivision in the pool of the calling
+     * task, so the frames of an animation and their tiles share one pool
+     *
+     * @return the camera
+     */
+    Camera renderImageInPool() {
+        RenderTrace.Span span = RenderTrace.begin("render", "render image", null);
+        boolean counting = startHeatmap();
+        try {
+            if (reprojectionCache != null) reprojectionCache.beginFrame(this);
+            pixelManager = new PixelManager(nY, nX, tileSize, 0);
+            new RegionRender(0, 0, nX, nY).invoke();
+            if (reprojectionCache != null) reprojectionCache.endFrame();
+        } finally {
+            if (counting) RenderMetrics.stopCounting();
+            RenderTrace.end(span);
+        }
+        return this;
+    }
+
+    /**
+     * Check that the camera may be rendered by {@link #renderImageInPool()} -
+     * every pixel at once, in memory
+     *
+     * @throws IllegalArgumentException if the camera is set for passes, a time
+     *                                  budget, workers, a checkpoint, an
+     *                                  out-of-core image, metrics or progress
+     *                                  printing
+     */
+    void requirePoolRender() {
+        if (progressiveStride > 1 || passListener != null || timeBudget > 0 || !workers.isEmpty()
+                || checkpointFile != null || outOfCoreFile != null || collectMetrics || printInterval > 0)
+            throw new IllegalArgumentException("A camera rendered in a pool renders every pixel at once in memory -"
+                    + " without passes, a time budget, workers, a checkpoint, an out-of-core image, metrics"
+                    + " or progress printing");
+    }
+
+    /**
+     * Prepare the cost heatmap, if measured, for a render - clear it (the
+     * pixels of the region only when a region is rendered), and turn the
+     * counters on for a counted metric
+     *
+     * @return true if the counters were turned on (to be turned off at the end)
+     */
+    private boolean startHeatmap() {
+        if (heatmap == null) return false;
+        if (region == null) heatmap.clear();
+        else heatmap.clear(region, regionMask);
+        if (!heatmap.isCounted()) return false;
+        RenderMetrics.startCounting();
+        return true;
+    }
+
+    /** Virtual‐thread‐per‐tile rendering. */
+    private Camera renderImageVirtualThreads() {
+        try (ExecutorService virtualThreads = Executors.newVirtualThreadPerTaskExecutor()) {
+            return renderImageExecutor(virtualThreads);
+        }
+    }
+
+    /**
+     * Rendering of each tile as a task of an executor service - the service is
+     * not shut down, so it may be shared by many renders
+     *
+     * @param executor the executor service
+     * @return the camera
+     */
+    private Camera renderImageExecutor(ExecutorService executor) {
+        List<Future<?>> tasks = new ArrayList<>(pixelManager.tilesCount());
+        for (int i = 0; i < pixelManager.tilesCount(); i++) {
+            PixelManager.Tile tile = pixelManager.tile(i);
+            tasks.add(executor.submit(() -> renderTile(tile)));
+        }
+        try {
+            for (Future<?> task : tasks) task.get();
+        } catch (InterruptedException e) {
+            tasks.forEach(task -> task.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Rendering was interrupted", e);
+        } catch (ExecutionException e) {
+            tasks.forEach(task -> task.cancel(true));
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw new IllegalStateException("Rendering failed", e.getCause());
+        }
+        return this;
+    }
+
 /**
  * Render the image using the chosen strategy:
+ *   executor set      → tasks of the executor service
  *   threadsCount = 0  → no threads
  *                 -1 → parallel streams
+ *                 -3 → virtual thread per tile
+ *                 -4 → fork/join recursive subdivision
  *                 >0 → raw threads
  */
 
 public Camera renderImage() {
-    pixelManager = new PixelManager(nY, nX, printInterval);
-
-    return switch (threadsCount) {
-        case  0  -> renderImageNoThreads();
-        case -1  -> renderImageStream();
-        default  -> renderImageRawThreads();
-    };
+    boolean counting = startHeatmap();
+    try {
+        return renderMeasured("render image", this::renderImageWhole);
+    } finally {
+        if (counting) RenderMetrics.stopCounting();
+    }
 }
 
+    /**
+     * Render within a span of the trace, collecting the metrics of the render
+     * if set
+     *
+     * @param name   the name of the span
+     * @param render the render
+     * @return the camera
+     */
+    private Camera renderMeasured(String name, Supplier<Camera> render) {
+        RenderTrace.Span span = RenderTrace.begin("render", name, null);
+        try {
+            if (!collectMetrics) return render.get();
+            recorder = RenderMetrics.start();
+            try {
+                return render.get();
+            } finally {
+                metrics = recorder.finish();
+                recorder = null;
+            }
+        } finally {
+            RenderTrace.end(span);
+        }
+    }
+
+    /**
+     * Render the whole image - out of core, or as a frame of the reprojection
+     * cache if set
+     *
+     * @return the camera
+     */
+    private Camera renderImageWhole() {
+        if (outOfCoreFile != null) return renderImageOutOfCore();
+        if (reprojectionCache == null) return renderImageFrame();
+        reprojectionCache.beginFrame(this);
+        renderImageFrame();
+        reprojectionCache.endFrame();
+        return this;
+    }
+
+    /**
+     * Render the image, with the checkpoint if set
+     *
+     * @return the camera
+     */
+    private Camera renderImageFrame() {
+        if (checkpointFile != null) return renderImageCheckpointed();
+        return renderImageMode();
+    }
+
+    /**
+     * Render the image in the chosen mode
+     *
+     * @return the camera
+     */
+    private Camera renderImageMode() {
+        if (!workers.isEmpty()) return renderImageDistributed();
+        if (timeBudget > 0) return renderImageBudgeted();
+        if (progressiveStride > 1) return renderImageProgressive();
+        return renderImagePass();
+    }
+
+    /**
+     * Render a region of the image again - after a change of the scene - into
+     * the image rendered before: only the tiles meeting the region are
+     * scheduled, cut to the region, and the pixels out of the region keep
+     * their colors. The chosen mode of rendering is used, without the
+     * checkpoint, and the metrics, if collected, are of the region's render.
+     * The cost heatmap, if measured, is measured again in the region.
+     *
+     * @param col0 first pixel column of the region
+     * @param row0 first pixel row of the region
+     * @param col1 pixel column following the region
+     * @param row1 pixel row following the region
+     * @return the camera
+     */
+    public Camera renderRegion(int col0, int row0, int col1, int row1) {
+        return renderRegion(col0, row0, col1, row1, null);
+    }
+
+    /**
+     * Render the pixels of a mask in a region of the image again - after a
+     * change of the scene - into the image rendered before (see
+     * {@link #renderRegion(int, int, int, int)}). The mask is not sent to
+     * workers, so it is not used with distributed rendering.
+     *
+     * @param col0 first pixel column of the region
+     * @param row0 first pixel row of the region
+     * @param col1 pixel column following the region
+     * @param row1 pixel row following the region
+     * @param mask the pixels of the region to render (null for all)
+     * @return the camera
+     */
+    public Camera renderRegion(int col0, int row0, int col1, int row1, PixelMask mask) {
+        if (col0 < 0 || row0 < 0 || col1 > nX || row1 > nY || col0 >= col1 || row0 >= row1)
+            throw new IllegalArgumentException("Region must be a non-empty rectangle inside the image");
+        if (imageWriter == null)
+            throw new IllegalStateException("Out-of-core image has no image to render a region into");
+        if (reprojectionCache != null)
+            throw new IllegalStateException("A region is not a frame of the reprojection cache");
+        if (mask != null && !workers.isEmpty())
+            throw new IllegalStateException("A mask is not used with distributed rendering");
+        region = new PixelManager.Tile(col0, row0, col1, row1);
+        regionMask = mask;
+        boolean counting = startHeatmap();
+        try {
+            return renderMeasured("render region", this::renderImageMode);
+        } finally {
+            if (counting) RenderMetrics.stopCounting();
+            region = null;
+            regionMask = null;
+        }
+    }
+
+    /**
+     * The region of the image being rendered
+     *
+     * @return the region, the whole image if no region is rendered
+     */
+    private PixelManager.Tile bounds() {
+        return region != null ? region : new PixelManager.Tile(0, 0, nX, nY);
+    }
+
+    /**
+     * Render the image with a checkpoint: the pixels of the tiles completed in
+     * a previous run are restored and those tiles are skipped, and each tile
+     * completed now is stored in the checkpoint file
+     *
+     * @return the camera
+     */
+    private Camera renderImageCheckpointed() {
+        try (RenderCheckpoint opened = new RenderCheckpoint(checkpointFile, nX, nY, tileSize, resumeCheckpoint)) {
+            checkpoint = opened;
+            checkpoint.restore(new PixelManager(nY, nX, tileSize, 0), imageWriter);
+            return renderImageMode();
+        } finally {
+            checkpoint = null;
+        }
+    }
+
+    /**
+     * Render the image into an out-of-core image, which streams the rows of
+     * tiles to the image file as they complete - the tiles are handed out row
+     * by row, so the rows complete about in order
+     *
+     * @return the camera
+     */
+    private Camera renderImageOutOfCore() {
+        try (TiledImage opened = new TiledImage(outOfCoreFile, outOfCoreFormat, nX, nY, tileSize)) {
+            tiledImage = opened;
+            return renderImagePass();
+        } finally {
+            tiledImage = null;
+        }
+    }
+
+    /**
+     * Render the pixels of the current pass with the chosen strategy
+     *
+     * @return the camera
+     */
+    private Camera renderImagePass() {
+        pixelManager = new PixelManager(bounds(), tileSize, tiledImage != null, printInterval);
+        if (executor != null) return renderImageExecutor(executor);
+
+        return switch (threadsCount) {
+            case  0  -> renderImageTiles();
+            case -1  -> renderImageStream();
+            case VIRTUAL_THREADS -> renderImageVirtualThreads();
+            case FORK_JOIN -> renderImageForkJoin();
+            default  -> renderImageRawThreads();
+        };
+    }
+
+    /**
+     * Progressive rendering: the first pass traces one pixel of each block of
+     * stride x stride pixels and fills the block with its color, each following
+     * pass halves the stride and traces the pixels not traced yet, so no pixel
+     * is traced twice and the image after the last pass is the same as without
+     * passes
+     *
+     * @return the camera
+     */
+    private Camera renderImageProgressive() {
+        try {
+            for (passStride = progressiveStride; passStride >= 1; passStride /= 2) {
+                renderImagePass();
+                if (passListener != null) passListener.passDone(this, passStride);
+            }
+        } finally {
+            passStride = 1;
+        }
+        return this;
+    }
+
+    /**
+     * Distributed rendering: the tiles are rendered by worker processes (see
+     * {@link RenderWorker}) and assembled here
+     *
+     * @return the camera
+     */
+    private Camera renderImageDistributed() {
+        pixelManager = new PixelManager(bounds(), tileSize, false, printInterval);
+        new TileCoordinator(this, pixelManager, imageWriter, workers, workerTimeout, checkpoint).render();
+        return this;
+    }
+
+    /**
+     * Render the pixels of a tile without writing them - for distributed rendering
+     *
+     * @param tile the tile
+     * @return the packed RGB of the tile's pixels, row by row
+     */
+    int[] renderTilePixels(PixelManager.Tile tile) {
+        int[] pixels = new int[tile.pixels()];
+        int i = 0;
+        for (int y = tile.row0(); y < tile.row1(); y++)
+            for (int x = tile.col0(); x < tile.col1(); x++)
+                pixels[i++] = ImageWriter.toRgb(pixelColor(x, y));
+        return pixels;
+    }
+
+    /**
+     * Quality settings of a time budgeted render
+     *
+     * @param grid  the resolution of the soft shadows' grid (the tracer's if it
+     *              has no soft shadows)
+     * @param depth the anti-aliasing depth
+     * @param level the maximum recursion level (0 if the tracer has no quality settings)
+     */
+    private record Quality(int grid, int depth, int level) {
+    }
+
+    /**
+     * Time budgeted rendering: the cost of a pixel is measured on a sparse sample
+     * of the image, and the quality is lowered step by step until the whole
+     * image is expected to fit the budget - first the soft shadows' grid, then
+     * the anti-aliasing depth, then the recursion level (the grid and the level
+     * halved, the depth one less). The last step may overshoot (and the first
+     * measurement is slowed by the warm up), so the setting it lowered is then
+     * raised back as far as the image is expected to fit - estimated from the
+     * costs measured before and after the step, without measuring again (the
+     * cost of the grid grows with its square, that of the level linearly). The
+     * image is then rendered progressively, and the refinement
+     * passes stop at the deadline, so the image is complete (coarser where not
+     * refined). The first coarse pass is always completed.<br/>
+     * The quality is adjusted on a copy of the ray tracer for this render, so
+     * the tracer, which other cameras may share, is not changed.
+     *
+     * @return the camera
+     */
+    private Camera renderImageBudgeted() {
+        long start = System.nanoTime();
+        SimpleRayTracer tracer = rayTracer instanceof SimpleRayTracer simple ? simple : null;
+        RayTracerBase savedTracer = rayTracer;
+        int savedDepth = antiAliasingDepth;
+        int savedStride = progressiveStride;
+        try {
+            Quality quality = new Quality(tracer == null ? 0 : tracer.getGridResolution(), antiAliasingDepth,
+                    tracer == null ? 0 : tracer.getMaxLevel());
+            Quality failed = null;
+            double failedCost = 0;
+            double cost = measurePixelCost();
+            for (Quality lower; cost > affordablePixelCost(start) && (lower = lowerQuality(quality, tracer)) != null; ) {
+                failed = quality;
+                failedCost = cost;
+                setQuality(quality = lower, tracer);
+                cost = measurePixelCost();
+            }
+            double affordable = affordablePixelCost(start);
+            if (failed != null && cost <= affordable)
+                setQuality(raiseQuality(quality, cost, failed, failedCost, affordable), tracer);
+            if (progressiveStride == 1) progressiveStride = Math.min(BUDGET_STRIDE, Integer.lowestOneBit(tileSize));
+            deadline = start + timeBudget;
+            return renderImageProgressive();
+        } finally {
+            deadline = 0;
+            progressiveStride = savedStride;
+            antiAliasingDepth = savedDepth;
+            rayTracer = savedTracer;
+        }
+    }
+
+    /**
+     * Measure the cost of a pixel on a sparse grid of pixels with the current
+     * quality
+     *
+     * @return the mean time of a pixel in nanoseconds
+     */
+    private double measurePixelCost() {
+        PixelManager.Tile bounds = bounds();
+        int stepX = Math.max(1, (bounds.col1() - bounds.col0()) / BUDGET_SAMPLES_PER_AXIS);
+        int stepY = Math.max(1, (bounds.row1() - bounds.row0()) / BUDGET_SAMPLES_PER_AXIS);
+        long begin = System.nanoTime();
+        int samples = 0;
+        for (int y = bounds.row0() + stepY / 2; y < bounds.row1(); y += stepY)
+            for (int x = bounds.col0() + stepX / 2; x < bounds.col1(); x += stepX) {
+                pixelColor(x, y);
+                samples++;
+            }
+        return (double) (System.nanoTime() - begin) / samples;
+    }
+
+    /**
+     * The cost of a pixel with which the whole region is expected to fit the
+     * rest of the time budget
+     *
+     * @param start the start time of the rendering
+     * @return the time of a pixel in nanoseconds
+     */
+    private double affordablePixelCost(long start) {
+        return (start + timeBudget - System.nanoTime()) * BUDGET_SAFETY * renderingThreads() / bounds().pixels();
+    }
+
+    /**
+     * Render with quality settings - the ray tracer is replaced by a copy with
+     * the settings
+     *
+     * @param quality the quality settings
+     * @param tracer  the configured ray tracer, null if it has no quality settings
+     */
+    private void setQuality(Quality quality, SimpleRayTracer tracer) {
+        antiAliasingDepth = quality.depth();
+        if (tracer != null) rayTracer = tracer.withQuality(quality.grid(), quality.level());
+    }
+
+    /**
+     * Lower the rendering quality by one step - of the first setting which may
+     * be lowered
+     *
+     * @param quality the current quality settings
+     * @param tracer  the configured ray tracer, null if it has no quality settings
+     * @return the lower quality settings, null if the quality is already the lowest
+     */
+    private static Quality lowerQuality(Quality quality, SimpleRayTracer tracer) {
+        if (tracer != null && tracer.isSoftShadows() && quality.grid() > 2)
+            return new Quality(Math.max(2, quality.grid() / 2), quality.depth(), quality.level());
+        if (quality.depth() > 0)
+            return new Quality(quality.grid(), quality.depth() - 1, quality.level());
+        if (tracer != null && quality.level() > 1)
+            return new Quality(quality.grid(), quality.depth(), quality.level() / 2);
+        return null;
+    }
+
+    /**
+     * Raise the setting lowered by the last step of lowering the quality back
+     * as far as the pixel is expected to be affordable - the cost between the
+     * two measured qualities is estimated as growing with the square of the
+     * soft shadows' grid, or linearly with the recursion level (the
+     * anti-aliasing depth is lowered by one, so there is nothing between)
+     *
+     * @param fit        the quality after the last step, which is affordable
+     * @param fitCost    the measured cost of a pixel with that quality
+     * @param failed     the quality before the last step, which is not
+     * @param failedCost the measured cost of a pixel with that quality
+     * @param affordable the affordable cost of a pixel
+     * @return the highest quality expected to be affordable
+     */
+    private static Quality raiseQuality(Quality fit, double fitCost, Quality failed, double failedCost,
+                                        double affordable) {
+        boolean grid = fit.grid() != failed.grid();
+        int low = grid ? fit.grid() : fit.level();
+        int high = grid ? failed.grid() : failed.level();
+        for (int value = high - 1; value > low; --value) {
+            double share = grid ? (double) (value * value - low * low) / (high * high - low * low)
+                    : (double) (value - low) / (high - low);
+            if (fitCost + (failedCost - fitCost) * share <= affordable)
+                return grid ? new Quality(value, fit.depth(), fit.level()) : new Quality(fit.grid(), fit.depth(), value);
+        }
+        return fit;
+    }
+
+    /**
+     * The amount of threads the chosen strategy renders with
+     *
+     * @return the amount of threads
+     */
+    private int renderingThreads() {
+        if (executor == null && threadsCount == 0) return 1;
+        int cores = Runtime.getRuntime().availableProcessors();
+        return executor == null && threadsCount > 0 ? Math.min(threadsCount, cores) : cores;
+    }
+
+    /**
+     * Check whether a pixel is traced in the current pass: its indices are
+     * multiples of the pass stride, and it was not traced in a coarser pass
+     *
+     * @param x the x index of the pixel
+     * @param y the y index of the pixel
+     * @return true if the pixel is traced in the pass
+     */
+    private boolean isPassPixel(int x, int y) {
+        if (x % passStride != 0 || y % passStride != 0) return false;
+        int coarser = passStride * 2;
+        return passStride == progressiveStride || x % coarser != 0 || y % coarser != 0;
+    }
+
+    /**
+     * Render the pixels of a tile and report them done once - a tile completed
+     * in the checkpoint is skipped, and a tile completed now is stored in it
+     * @param tile the tile
+     */
+    private void renderTile(PixelManager.Tile tile) {
+        if (checkpoint == null || !checkpoint.isDone(tile)) {
+            RenderTrace.Span span = RenderTrace.beginTile(tile);
+            RenderMetrics.Work work = recorder == null ? null : recorder.beginTile();
+            boolean complete = true;
+            int cast = 0;
+            for (int y = tile.row0(); y < tile.row1(); y++) {
+                if (deadline != 0 && passStride < progressiveStride && System.nanoTime() > deadline) {
+                    complete = false; // out of time - the pixels keep the color of the previous pass
+                    break;
+                }
+                for (int x = tile.col0(); x < tile.col1(); x++) {
+                    if ((passStride == 1 && progressiveStride == 1 || isPassPixel(x, y))
+                            && (regionMask == null || regionMask.contains(x, y))) {
+                        if (heatmap == null) castRay(x, y, tile);
+                        else castMeasuredRay(x, y, tile);
+                        ++cast;
+                    }
+                }
+            }
+            if (frameBuffer != null) // tone mapped per tile - the image is up to date for previews and checkpoints
+                frameBuffer.resolve(tile.col0(), tile.row0(), tile.col1(), tile.row1(), imageWriter, toneMapping, exposure);
+            if (checkpoint != null && complete && passStride == 1) checkpoint.save(tile, imageWriter);
+            if (tiledImage != null) tiledImage.tileDone(tile);
+            if (work != null) recorder.endTile(work, cast);
+            RenderTrace.end(span);
+        }
+        pixelManager.pixelsDone(tile.pixels());
+    }
+
     /**
      * Print a grid on the image
      *
@@ -228,6 +996,7 @@ public Camera renderImage() {
      * @return         the camera
      */
     public Camera printGrid(int interval, Color color) {
+        requireImage();
         for (int i = 0; i < imageWriter.getNy(); i++) {
             for (int j = 0; j < imageWriter.getNx(); j++) {
                 if (i % interval == 0 || j % interval == 0) {
@@ -248,21 +1017,185 @@ public Camera renderImage() {
      * @return the camera
      */
     public Camera writeToImage(String pictureFileName) {
-        imageWriter.writeToImage(pictureFileName);
+        requireImage().writeToImage(pictureFileName);
         return this;
     }
 
+    /**
+     * The image in memory
+     *
+     * @return the image writer
+     * @throws IllegalStateException if the image is out-of-core - it is written
+     *                               to its file as it is rendered
+     */
+    private ImageWriter requireImage() {
+        if (imageWriter == null)
+            throw new IllegalStateException("Out-of-core image is written to " + outOfCoreFile + " while rendered");
+        return imageWriter;
+    }
+
+    /**
+     * Write the image to a file in a format - the floating point format is
+     * written from the high dynamic range frame buffer if there is one
+     *
+     * @param pictureFileName the name of the file (without extension)
+     * @param format          the file format
+     * @return the camera
+     */
+    public Camera writeToImage(String pictureFileName, ImageFormat format) {
+        requireImage().writeToImage(pictureFileName, format, frameBuffer);
+        return this;
+    }
+
+    /**
+     * Write the image to a file in the background: the pixels are copied and
+     * written by an output thread, so the next image may be rendered at once
+     *
+     * @param pictureFileName the name of the file (without extension)
+     * @param format          the file format
+     * @return the completion of the writing
+     */
+    public CompletableFuture<Void> writeToImageAsync(String pictureFileName, ImageFormat format) {
+        return requireImage().writeToImageAsync(pictureFileName, format, frameBuffer);
+    }
+
     /**
      * Cast a ray through a pixel
      * @param x the x index of the pixel
      * @param y the y index of the pixel
+     * @param tile the tile of the pixel - a progressive preview block is
+     *             filled within it only, so no other thread's tile is written
      */
-    private void castRay(int x, int y) {
+    private void castRay(int x, int y, PixelManager.Tile tile) {
         if(x < 0|| x >= nX || y < 0 || y >= nY)
             throw new IllegalArgumentException("x and y must be inside the image bounds");
 
-        imageWriter.writePixel(x,y,rayTracer.traceRay(constructRay(nX, nY, x, y)));
-        pixelManager.pixelDone();
+        Color color = pixelColor(x, y);
+        if (passStride == 1) {
+            writePixel(x, y, color);
+            return;
+        }
+        // progressive preview - fill the block of the pixel until it is refined
+        for (int i = y; i < Math.min(y + passStride, tile.row1()); i++)
+            for (int j = x; j < Math.min(x + passStride, tile.col1()); j++)
+                if (regionMask == null || regionMask.contains(j, i))
+                    writePixel(j, i, color);
+    }
+
+    /**
+     * Cast a ray through a pixel and add its cost to the heatmap
+     * @param x the x index of the pixel
+     * @param y the y index of the pixel
+     * @param tile the tile of the pixel
+     */
+    private void castMeasuredRay(int x, int y, PixelManager.Tile tile) {
+        long before = heatmap.read();
+        castRay(x, y, tile);
+        heatmap.add(x, y, heatmap.read() - before);
+    }
+
+    /**
+     * Write the color of a pixel - into the frame buffer if there is one,
+     * otherwise into the out-of-core image or the image
+     * @param x     the x index of the pixel
+     * @param y     the y index of the pixel
+     * @param color the color of the pixel
+     */
+    private void writePixel(int x, int y, Color color) {
+        if (frameBuffer != null)
+            frameBuffer.setPixel(x, y, color);
+        else if (tiledImage != null)
+            tiledImage.writePixel(x, y, ImageWriter.toRgb(color));
+        else
+            imageWriter.writePixel(x, y, color);
+    }
+
+    /**
+     * Calculate the color of a pixel
+     * @param x the x index of the pixel
+     * @param y the y index of the pixel
+     * @return the color of the pixel
+     */
+    private Color pixelColor(int x, int y) {
+        if (reprojectionCache != null && antiAliasingDepth == 0 && rayTracer instanceof SimpleRayTracer tracer)
+            return reprojectionCache.pixelColor(tracer, primaryRay(constructRay(nX, nY, x, y)), x, y);
+        return antiAliasingDepth == 0
+                ? rayTracer.traceRay(primaryRay(constructRay(nX, nY, x, y)))
+                : adaptivePixelColor(x, y);
+    }
+
+    /**
+     * Count a ray cast by the camera as a primary ray, while the render is measured
+     * @param ray the ray
+     * @return the ray
+     */
+    private static Ray primaryRay(Ray ray) {
+        RenderMetrics.RayCounters rays = RenderMetrics.rays();
+        if (rays != null) rays.primary++;
+        return ray;
+    }
+
+    /**
+     * Calculate the color of a pixel by adaptive supersampling: rays are traced
+     * through the pixel's corners, and a square whose corner colors differ
+     * is divided into four squares recursively, up to the configured depth
+     * @param x the x index of the pixel
+     * @param y the y index of the pixel
+     * @return the average color of the pixel
+     */
+    private Color adaptivePixelColor(int x, int y) {
+        double cX = x - (nX - 1) / 2d;
+        double cY = y - (nY - 1) / 2d;
+        return adaptiveSquareColor(cX, cY, 0.5, antiAliasingDepth,
+                traceSample(cX - 0.5, cY - 0.5), traceSample(cX + 0.5, cY - 0.5),
+                traceSample(cX - 0.5, cY + 0.5), traceSample(cX + 0.5, cY + 0.5));
+    }
+
+    /**
+     * Calculate the average color of a square of the view plane from the colors
+     * of its corners, dividing it while the corners contrast too much
+     * @param cX     the x of the square's center, in pixels
+     * @param cY     the y of the square's center, in pixels
+     * @param half   half of the square's side, in pixels
+     * @param depth  the allowed amount of further divisions
+     * @param topLeft     the color at the top left corner
+     * @param topRight    the color at the top right corner
+     * @param bottomLeft  the color at the bottom left corner
+     * @param bottomRight the color at the bottom right corner
+     * @return the average color of the square
+     */
+    private Color adaptiveSquareColor(double cX, double cY, double half, int depth,
+                                      Color topLeft, Color topRight, Color bottomLeft, Color bottomRight) {
+        Color average = topLeft.add(topRight, bottomLeft, bottomRight).reduce(4);
+        if (depth == 0
+                || topLeft.difference(average) <= antiAliasingThreshold
+                && topRight.difference(average) <= antiAliasingThreshold
+                && bottomLeft.difference(average) <= antiAliasingThreshold
+                && bottomRight.difference(average) <= antiAliasingThreshold)
+            return average;
+
+        // the five new samples - the middle of each side and the center
+        Color top = traceSample(cX, cY - half);
+        Color left = traceSample(cX - half, cY);
+        Color center = traceSample(cX, cY);
+        Color right = traceSample(cX + half, cY);
+        Color bottom = traceSample(cX, cY + half);
+        double quarter = half / 2;
+        return adaptiveSquareColor(cX - quarter, cY - quarter, quarter, depth - 1, topLeft, top, left, center)
+                .add(adaptiveSquareColor(cX + quarter, cY - quarter, quarter, depth - 1, top, topRight, center, right),
+                        adaptiveSquareColor(cX - quarter, cY + quarter, quarter, depth - 1, left, center, bottomLeft, bottom),
+                        adaptiveSquareColor(cX + quarter, cY + quarter, quarter, depth - 1, center, right, bottom, bottomRight))
+                .reduce(4);
+    }
+
+    /**
+     * Trace a ray through a point of the view plane
+     * @param x the x of the point relative to the view plane center, in pixels
+     * @param y the y of the point relative to the view plane center, in pixels (downwards)
+     * @return the color of the ray
+     */
+    private Color traceSample(double x, double y) {
+        return rayTracer.traceRay(primaryRay(constructRay(nX, nY, x, y)));
     }
 
     /**
@@ -300,6 +1233,95 @@ public Camera renderImage() {
 
 
 
+    /**
+     * A copy of the camera rotated around a target point about the vertical
+     * axis and looking at the target - a frame of a turntable animation. Unlike
+     * {@link #rotateCameraAroundTarget}, the copy shares the ray tracer, and so
+     * the prepared scene, of this camera, and it has an image of its own. The
+     * copy renders every pixel at once - without passes, a time budget, workers,
+     * a checkpoint, an out-of-core image, metrics or progress printing.
+     *
+     * @param target       the target point around which the camera rotates
+     * @param angleDegrees the angle in degrees to rotate the camera
+     * @return the rotated camera
+     */
+    public Camera rotatedAroundTarget(Point target, double angleDegrees) {
+        Camera frame = posedAroundTarget(target, angleDegrees);
+        frame.allocateImage();
+        return frame;
+    }
+
+    /**
+     * The pose of {@link #rotatedAroundTarget} - a copy of the camera rotated
+     * around a target point, without an image, to be rendered by
+     * {@link #withImage()} copies
+     *
+     * @param target       the target point around which the camera rotates
+     * @param angleDegrees the angle in degrees to rotate the camera
+     * @return the rotated camera without an image
+     */
+    Camera posedAroundTarget(Point target, double angleDegrees) {
+        Vector radiusVec = p0.subtract(target);
+
+        double x = radiusVec.dotProduct(Vector.AXIS_X);
+        double z = radiusVec.dotProduct(Vector.AXIS_Z);
+
+        double angleRad = Math.toRadians(angleDegrees);
+        double rotatedX = x * Math.cos(angleRad) + z * Math.sin(angleRad);
+        double rotatedZ = -x * Math.sin(angleRad) + z * Math.cos(angleRad);
+
+        Camera frame;
+        try {
+            frame = (Camera) clone();
+        } catch (CloneNotSupportedException e) {
+            throw new RuntimeException(e);
+        }
+        frame.p0 = target.add(new Vector(rotatedX, 0, rotatedZ));
+        frame.vTo = target.subtract(frame.p0).normalize();
+        frame.vRight = frame.vTo.crossProduct(Vector.AXIS_Y).normalize();
+        frame.vUp = frame.vRight.crossProduct(frame.vTo).normalize();
+        frame.imageWriter = null;
+        frame.frameBuffer = null;
+        frame.heatmap = null;
+        frame.progressiveStride = 1;
+        frame.timeBudget = 0;
+        frame.workers = List.of();
+        frame.checkpointFile = null;
+        frame.outOfCoreFile = null;
+        frame.passListener = null;
+        frame.collectMetrics = false;
+        frame.printInterval = 0;
+        return frame;
+    }
+
+    /**
+     * A copy of the camera with a new image of its own - and a frame buffer
+     * and a heatmap when the camera has them. The copy shares the ray tracer,
+     * and so the prepared scene, of this camera.
+     *
+     * @return the copy
+     */
+    Camera withImage() {
+        Camera frame;
+        try {
+            frame = (Camera) clone();
+        } catch (CloneNotSupportedException e) {
+            throw new RuntimeException(e);
+        }
+        frame.allocateImage();
+        return frame;
+    }
+
+    /**
+     * Allocate a new image for the camera - and a frame buffer for tone
+     * mapping and a heatmap when measured
+     */
+    private void allocateImage() {
+        imageWriter = new ImageWriter(nX, nY);
+        frameBuffer = toneMapping == null ? null : new FrameBuffer(nX, nY);
+        heatmap = heatmapMetric == null ? null : new CostHeatmap(nX, nY, heatmapMetric);
+    }
+
     /**
      * Camera builder
      */
@@ -404,6 +1426,21 @@ public Camera renderImage() {
             return this;
         }
 
+        /**
+         * Set a ray tracer shared with other cameras - the cameras trace one
+         * prepared scene, and the tracer's settings (soft shadows, recursion
+         * level) apply to all of them
+         *
+         * @param rayTracer the ray tracer
+         * @return the camera builder
+         */
+        public Builder setRayTracer(RayTracerBase rayTracer) {
+            if (rayTracer == null)
+                throw new IllegalArgumentException("Ray tracer must not be null");
+            camera.rayTracer = rayTracer;
+            return this;
+        }
+
         public Builder setSoftShadows(boolean status){
             if (camera.rayTracer instanceof SimpleRayTracer) {
                 ((SimpleRayTracer) camera.rayTracer).setSoftShadows(status) ;
@@ -470,14 +1507,16 @@ public Camera renderImage() {
 
         /**
          * Configure multithreading:Add commentMore actions
+         *   -4 → fork/join recursive subdivision of the image
+         *   -3 → a virtual thread per tile
          *   -2 → auto (cores – SPARE_THREADS)
          *   -1 → parallel streams
          *    0 → off
          *   >0 → exact thread count
          */
         public Builder setMultithreading(int threads) {
-            if (threads < -2)
-                throw new IllegalArgumentException("Multithreading parameter must be ≥ -2");
+            if (threads < FORK_JOIN)
+                throw new IllegalArgumentException("Multithreading parameter must be ≥ -4");
             if (threads == -2) {
                 int cores = Runtime.getRuntime().availableProcessors() - SPARE_THREADS;
                 camera.threadsCount = Math.max(1, cores);
@@ -487,6 +1526,220 @@ public Camera renderImage() {
             return this;
         }
 
+        /**
+         * Render on worker processes (see {@link RenderWorker}): the camera with
+         * the scene is sent to each worker once, then the tiles are handed out
+         * to the workers and their pixels assembled. Tiles of a failed or too
+         * slow worker are reassigned; whatever the workers do not render is
+         * rendered locally. Takes precedence over the other rendering modes.
+         *
+         * @param workers the workers' addresses (none for local rendering)
+         * @return the camera builder
+         */
+        public Builder setWorkers(InetSocketAddress... workers) {
+            camera.workers = List.of(workers);
+            return this;
+        }
+
+        /**
+         * Reuse the diffuse pixels of the previous frame of an animation over a
+         * static scene: the cache reprojects them into this camera and only the
+         * disoccluded and view dependent pixels are traced fully (see
+         * {@link ReprojectionCache}). The frames sharing the cache are rendered
+         * one after another; the cache is ignored with anti-aliasing.
+         *
+         * @param cache the cache shared by the frames (null for none)
+         * @return the camera builder
+         */
+        public Builder setReprojectionCache(ReprojectionCache cache) {
+            camera.reprojectionCache = cache;
+            return this;
+        }
+
+        /**
+         * Collect the metrics of each render (see {@link RenderMetrics}): the
+         * rays by category, the intersection work, the throughput and the work
+         * of each thread, reported by {@link Camera#getMetrics()} after
+         * {@link Camera#renderImage()}. Off by default - the counting is then
+         * skipped.
+         *
+         * @param collect true to collect the metrics
+         * @return the camera builder
+         */
+        public Builder setMetrics(boolean collect) {
+            camera.collectMetrics = collect;
+            return this;
+        }
+
+        /**
+         * Measure the cost of each pixel in a heatmap (see {@link CostHeatmap}),
+         * reported by {@link Camera#getHeatmap()} after {@link Camera#renderImage()}
+         * - the time, the intersection tests or the rays spent on the pixel.
+         * Off by default.
+         *
+         * @param metric the measure of the cost, null for no heatmap
+         * @return the camera builder
+         */
+        public Builder setHeatmap(CostHeatmap.Metric metric) {
+            camera.heatmapMetric = metric;
+            return this;
+        }
+
+        /**
+         * Render out of core, for images too large for the memory: the pixels
+         * are kept in a memory-mapped temporary file next to the image file,
+         * and the rows of tiles are written to the image file in order as they
+         * complete, while the rendering goes on. The image is not held in
+         * memory, so it is not written by {@link Camera#writeToImage}. The
+         * floating point format cannot be streamed.
+         *
+         * @param file   the image file (null to render the image in memory)
+         * @param format the image file format - PNG, PPM or RAW
+         * @return the camera builder
+         */
+        public Builder setOutOfCore(Path file, ImageFormat format) {
+            if (file != null && format == ImageFormat.PFM)
+                throw new IllegalArgumentException("PFM cannot be written out of core");
+            camera.outOfCoreFile = file;
+            camera.outOfCoreFormat = format;
+            return this;
+        }
+
+        /**
+         * Keep the completed tiles in a memory-mapped checkpoint file while
+         * rendering, so a render interrupted by a crash or a preemption may be
+         * resumed. When resuming, the tiles completed in the file are restored
+         * and not rendered again; the file must have been written by a render
+         * of the same resolution and tile size (the scene is not checked).
+         *
+         * @param file   the checkpoint file (null for no checkpoint)
+         * @param resume true to resume from the existing file, false to start a new one
+         * @return the camera builder
+         */
+        public Builder setCheckpoint(Path file, boolean resume) {
+            camera.checkpointFile = file;
+            camera.resumeCheckpoint = resume;
+            return this;
+        }
+
+        /**
+         * Set the time a worker may take to connect and to return a tile
+         * before its tiles are reassigned
+         *
+         * @param timeout the timeout
+         * @return the camera builder
+         */
+        public Builder setWorkerTimeout(Duration timeout) {
+            if (timeout.isNegative() || timeout.isZero())
+                throw new IllegalArgumentException("Worker timeout must be positive");
+            camera.workerTimeout = (int) Math.min(Integer.MAX_VALUE, timeout.toMillis());
+            return this;
+        }
+
+        /**
+         * Render on an external executor service - each tile is a task. The
+         * service is not shut down by the camera, so one pool may be shared by
+         * many renders to bound their total CPU usage. When set, it takes
+         * precedence over the multithreading setting.
+         *
+         * @param executor the executor service (null to use the multithreading setting)
+         * @return the camera builder
+         */
+        public Builder setExecutor(ExecutorService executor) {
+            camera.executor = executor;
+            return this;
+        }
+
+        /**
+         * Set the size of the square tiles of pixels which the rendering threads
+         * take one at a time
+         *
+         * @param size the size of the tile's side in pixels
+         * @return the camera builder
+         */
+        public Builder setTileSize(int size) {
+            if (size < 1)
+                throw new IllegalArgumentException("Tile size must be positive");
+            camera.tileSize = size;
+            return this;
+        }
+
+        /**
+         * Limit the rendering to a wall-clock time budget. The camera measures
+         * the cost of a pixel first and lowers the quality (soft shadows' grid,
+         * anti-aliasing depth, recursion level) until the image is expected to
+         * fit, then renders progressively and stops refining at the deadline,
+         * always producing a complete image.
+         *
+         * @param budget the time budget (zero for no limit)
+         * @return the camera builder
+         */
+        public Builder setTimeBudget(Duration budget) {
+            if (budget.isNegative())
+                throw new IllegalArgumentException("Time budget must be non-negative");
+            camera.timeBudget = budget.toNanos();
+            return this;
+        }
+
+        /**
+         * Enable progressive rendering: the first pass traces every stride-th
+         * pixel in each direction and fills the blocks between them, every
+         * following pass halves the stride, until the last pass completes the
+         * image. No pixel is traced twice. The listener is called after each pass.
+         *
+         * @param initialStride the stride of the first pass - a power of 2 dividing the tile size (1 turns
+         *                      progressive rendering off)
+         * @param listener      the listener of the passes (may be null)
+         * @return the camera builder
+         */
+        public Builder setProgressive(int initialStride, PassListener listener) {
+            if (initialStride < 1 || Integer.bitCount(initialStride) != 1)
+                throw new IllegalArgumentException("Progressive stride must be a power of 2");
+            camera.progressiveStride = initialStride;
+            camera.passListener = listener;
+            return this;
+        }
+
+        /**
+         * Enable adaptive anti-aliasing: rays are traced through the corners of
+         * each pixel, and a pixel (or a part of it) whose corners contrast more
+         * than the threshold is divided into four, recursively. A depth of 2
+         * samples the edges as densely as 16 rays per pixel, while flat areas
+         * cost 4 rays per pixel.
+         *
+         * @param maxDepth  maximum amount of divisions (0 turns anti-aliasing off)
+         * @param threshold the contrast (in the 0..255 color scale) above which a square is divided
+         * @return the camera builder
+         */
+        public Builder setAdaptiveAntiAliasing(int maxDepth, double threshold) {
+            if (maxDepth < 0)
+                throw new IllegalArgumentException("Anti-aliasing depth must be non-negative");
+            if (threshold < 0)
+                throw new IllegalArgumentException("Anti-aliasing threshold must be non-negative");
+            camera.antiAliasingDepth = maxDepth;
+            camera.antiAliasingThreshold = threshold;
+            return this;
+        }
+
+        /**
+         * Render into a high dynamic range frame buffer: the pixels' colors are
+         * kept off-heap as floating point components, with no limit or
+         * quantization, and are converted to the 8 bit image by the tone mapping
+         * operator as each tile is done. Distributed rendering and a checkpoint
+         * keep the 8 bit pixels only.
+         *
+         * @param toneMapping the tone mapping operator (null to write the image directly)
+         * @param exposure    the scale of the colors before the tone mapping
+         * @return the camera builder
+         */
+        public Builder setToneMapping(ToneMapping toneMapping, double exposure) {
+            if (exposure <= 0)
+                throw new IllegalArgumentException("Exposure must be positive");
+            camera.toneMapping = toneMapping;
+            camera.exposure = exposure;
+            return this;
+        }
+
         /**
         * Enable progress printing every `interval` percent (0 = off).Add commentMore actions
         */
@@ -590,7 +1843,23 @@ public Camera renderImage() {
             if (camera.nY <= 0)
                 throw new IllegalArgumentException("nY must be positive");
 
-            camera.imageWriter = new ImageWriter(camera.nX, camera.nY);
+            if (camera.tileSize % camera.progressiveStride != 0)
+                throw new IllegalArgumentException("Progressive stride must divide the tile size - a preview block"
+                        + " is filled within its tile");
+
+            if (camera.outOfCoreFile == null)
+                camera.imageWriter = new ImageWriter(camera.nX, camera.nY);
+            else if (camera.toneMapping != null || camera.progressiveStride > 1 || camera.timeBudget > 0
+                    || !camera.workers.isEmpty() || camera.checkpointFile != null || camera.reprojectionCache != null)
+                throw new IllegalArgumentException("Out-of-core rendering renders each pixel once, into the file -"
+                        + " without tone mapping, passes, a time budget, workers, a checkpoint or reprojection");
+            if (camera.toneMapping != null)
+                camera.frameBuffer = new FrameBuffer(camera.nX, camera.nY);
+            if (camera.heatmapMetric != null && (camera.outOfCoreFile != null || !camera.workers.isEmpty()))
+                throw new IllegalArgumentException("A cost heatmap measures the pixels rendered here in memory -"
+                        + " not out of core or by workers");
+            camera.heatmap = camera.heatmapMetric == null ? null
+                    : new CostHeatmap(camera.nX, camera.nY, camera.heatmapMetric);
 
             if(camera.rayTracer == null)
                 camera.rayTracer = new SimpleRayTracer(null);
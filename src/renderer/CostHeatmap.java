@@ -0,0 +1,191 @@
+package renderer;
+
+import geometries.TraversalCounters;
+
+import java.util.Arrays;
+
+/**
+ * Heatmap of the cost of the pixels of a render - the time, the intersection
+ * tests or the rays spent on each pixel (including its anti-aliasing samples
+ * and all the secondary rays). It shows the geometry dominating the render
+ * time, such as a mirror, a dense mesh or a badly bounded geometry.<br/>
+ * The cost of a pixel is measured around its casting, by the thread rendering
+ * it. The counted metrics use the per thread counters of {@link RenderMetrics}
+ * and {@link TraversalCounters}, which are on while the render is measured.
+ * The heatmap image maps the costs on a black - blue - red - yellow - white
+ * scale up to the 99th percentile of the costs, so a few extreme pixels do not
+ * darken the rest; the pixels not rendered are black.
+ */
+public final class CostHeatmap {
+    /**
+     * The measure of the cost of a pixel
+     */
+    public enum Metric {
+        /** Time spent on the pixel in nanoseconds */
+        TIME,
+        /** Bounding box and primitive intersection tests of the pixel */
+        INTERSECTION_TESTS,
+        /** Rays traced for the pixel - primary, shadow and secondary */
+        RAYS
+    }
+
+    /** The percentile of the costs mapped to the top of the scale */
+    private static final double SCALE_PERCENTILE = 0.99;
+    /** The colors of the scale, evenly spaced from no cost to the top */
+    private static final int[] SCALE = { 0x000000, 0x2020C0, 0xD02020, 0xF0E020, 0xFFFFFF };
+
+    /** The measure of the cost */
+    private final Metric metric;
+    /** Horizontal resolution of the image */
+    private final int nX;
+    /** Vertical resolution of the image */
+    private final int nY;
+    /** The cost of each pixel, row by row - each pixel written by the thread rendering it */
+    private final float[] costs;
+
+    /**
+     * Create a heatmap with no cost
+     * @param nX     horizontal resolution of the image
+     * @param nY     vertical resolution of the image
+     * @param metric the measure of the cost
+     */
+    CostHeatmap(int nX, int nY, Metric metric) {
+        this.nX = nX;
+        this.nY = nY;
+        this.metric = metric;
+        costs = new float[Math.multiplyExact(nX, nY)];
+    }
+
+    /**
+     * The measure of the cost
+     * @return the metric
+     */
+    public Metric getMetric() { return metric; }
+
+    /**
+     * View Plane X axis resolution
+     * @return the amount of horizontal pixels
+     */
+    public int getNx() { return nX; }
+
+    /**
+     * View Plane Y axis resolution
+     * @return the amount of vertical pixels
+     */
+    public int getNy() { return nY; }
+
+    /**
+     * Check whether the metric needs the counters to be on
+     * @return true for the counted metrics
+     */
+    boolean isCounted() { return metric != Metric.TIME; }
+
+    /**
+     * Read the measure of the calling thread - the difference of two readings
+     * around the casting of a pixel is its cost
+     * @return the reading
+     */
+    long read() {
+        return switch (metric) {
+            case TIME -> System.nanoTime();
+            case INTERSECTION_TESTS -> {
+                TraversalCounters counters = TraversalCounters.current();
+                yield counters.getBoxTests() + counters.getPrimitiveTests();
+            }
+            case RAYS -> RenderMetrics.threadRays();
+        };
+    }
+
+    /**
+     * Add to the cost of a pixel
+     * @param x    X axis index of the pixel
+     * @param y    Y axis index of the pixel
+     * @param cost the cost
+     */
+    void add(int x, int y, long cost) {
+        costs[y * nX + x] += cost;
+    }
+
+    /**
+     * Reset the costs of all the pixels to none
+     */
+    void clear() {
+        Arrays.fill(costs, 0f);
+    }
+
+    /**
+     * Reset the costs of the pixels of a region to none
+     * @param region the region
+     * @param mask   the pixels of the region to reset (null for all)
+     */
+    void clear(PixelManager.Tile region, Camera.PixelMask mask) {
+        for (int y = region.row0(); y < region.row1(); ++y)
+            for (int x = region.col0(); x < region.col1(); ++x)
+                if (mask == null || mask.contains(x, y)) costs[y * nX + x] = 0f;
+    }
+
+    /**
+     * The cost of a pixel
+     * @param  x X axis index of the pixel
+     * @param  y Y axis index of the pixel
+     * @return   the cost
+     */
+    public double getCost(int x, int y) {
+        return costs[y * nX + x];
+    }
+
+    /**
+     * The total cost of the pixels
+     * @return the sum of the costs
+     */
+    public double getTotalCost() {
+        double total = 0;
+        for (float cost : costs) total += cost;
+        return total;
+    }
+
+    /**
+     * The highest cost of a pixel
+     * @return the cost
+     */
+    public double getMaxCost() {
+        float max = 0;
+        for (float cost : costs) max = Math.max(max, cost);
+        return max;
+    }
+
+    /**
+     * Write the heatmap image to a PNG file in the images directory
+     * @param imageName the name of the file (without extension)
+     */
+    public void writeToImage(String imageName) {
+        float[] sorted = costs.clone();
+        Arrays.sort(sorted);
+        double top = sorted[Math.min(sorted.length - 1, (int) (sorted.length * SCALE_PERCENTILE))];
+        if (top <= 0) top = sorted[sorted.length - 1];
+
+        ImageWriter image = new ImageWriter(nX, nY);
+        for (int y = 0; y < nY; ++y)
+            for (int x = 0; x < nX; ++x)
+                image.writePixel(x, y, top <= 0 ? 0 : scaleColor(costs[y * nX + x] / top));
+        image.writeToImage(imageName);
+    }
+
+    /**
+     * The color of a relative cost on the scale
+     * @param  value the cost relative to the top of the scale (clamped to 0..1)
+     * @return       packed RGB of the color
+     */
+    static int scaleColor(double value) {
+        double position = Math.max(0, Math.min(1, value)) * (SCALE.length - 1);
+        int low = Math.min((int) position, SCALE.length - 2);
+        double t = position - low;
+        int rgb = 0;
+        for (int shift = 16; shift >= 0; shift -= 8) {
+            int from = SCALE[low] >> shift & 0xFF;
+            int to = SCALE[low + 1] >> shift & 0xFF;
+            rgb |= (int) Math.round(from + (to - from) * t) << shift;
+        }
+        return rgb;
+    }
+}
@@ -0,0 +1,156 @@
+package renderer;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import primitives.Color;
+import primitives.Double3;
+
+/**
+ * High dynamic range frame buffer: per pixel floating point red, green and
+ * blue components, kept off-heap in direct buffers. A pixel holds the single
+ * color the camera computed for it (anti-aliased already). The components are
+ * not limited or quantized - the conversion to 8 bit RGB (see
+ * {@link ToneMapping}) is done only for output.<br/>
+ * No lock is taken: the rendering threads write different pixels (each thread
+ * renders its own tiles). The pixels are kept in bands of rows, each band in
+ * a buffer of its own, so an image may be larger than a single buffer.
+ */
+final class FrameBuffer {
+    /** Floats per pixel - red, green and blue */
+    private static final int FLOATS = 3;
+    /** Bytes per pixel */
+    private static final int PIXEL_BYTES = FLOATS * Float.BYTES;
+
+    /** Horizontal resolution of the image */
+    private final int nX;
+    /** Vertical resolution of the image */
+    private final int nY;
+    /** Rows of pixels per band */
+    private final int bandRows;
+    /** The bands of rows */
+    private final ByteBuffer[] bands;
+
+    /**
+     * Create a frame buffer of black pixels
+     * @param nX horizontal resolution of the image
+     * @param nY vertical resolution of the image
+     */
+    FrameBuffer(int nX, int nY) {
+        this.nX = nX;
+        this.nY = nY;
+        bandRows = Math.max(1, Math.min(nY, Integer.MAX_VALUE / PIXEL_BYTES / nX));
+        bands = new ByteBuffer[(nY + bandRows - 1) / bandRows];
+        for (int i = 0; i < bands.length; ++i) {
+            int rows = Math.min(bandRows, nY - i * bandRows);
+            bands[i] = ByteBuffer.allocateDirect(rows * nX * PIXEL_BYTES).order(ByteOrder.nativeOrder());
+        }
+    }
+
+    /**
+     * View Plane X axis resolution
+     * @return the amount of horizontal pixels
+     */
+    int getNx() { return nX; }
+
+    /**
+     * View Plane Y axis resolution
+     * @return the amount of vertical pixels
+     */
+    int getNy() { return nY; }
+
+    /**
+     * The band of a row
+     * @param  y the row
+     * @return   the buffer of the row's band
+     */
+    private ByteBuffer band(int y) { return bands[y / bandRows]; }
+
+    /**
+     * Offset of a pixel in its band
+     * @param  x X axis index of the pixel
+     * @param  y Y axis index of the pixel
+     * @return   the offset in bytes
+     */
+    private int offset(int x, int y) { return (y % bandRows * nX + x) * PIXEL_BYTES; }
+
+    /**
+     * Set the color of a pixel
+     * @param x     X axis index of the pixel
+     * @param y     Y axis index of the pixel
+     * @param color the color
+     */
+    void setPixel(int x, int y, Color color) {
+        Double3 rgb = color.getRgb();
+        int offset = offset(x, y);
+        band(y).putFloat(offset, (float) rgb.d1())
+                .putFloat(offset + Float.BYTES, (float) rgb.d2())
+                .putFloat(offset + 2 * Float.BYTES, (float) rgb.d3());
+    }
+
+    /**
+     * A component of the color of a pixel
+     * @param  x       X axis index of the pixel
+     * @param  y       Y axis index of the pixel
+     * @param  channel the component - 0 for red, 1 for green, 2 for blue
+     * @return         the component
+     */
+    float getComponent(int x, int y, int channel) {
+        return band(y).getFloat(offset(x, y) + channel * Float.BYTES);
+    }
+
+    /**
+     * The color of a pixel
+     * @param  x X axis index of the pixel
+     * @param  y Y axis index of the pixel
+     * @return   the color
+     */
+    Color getPixel(int x, int y) {
+        return new Color(getComponent(x, y, 0), getComponent(x, y, 1), getComponent(x, y, 2));
+    }
+
+    /**
+     * Convert a rectangle of pixels into 8 bit RGB and write them into an image
+     * @param col0        first pixel column
+     * @param row0        first pixel row
+     * @param col1        pixel column following the rectangle
+     * @param row1        pixel row following the rectangle
+     * @param imageWriter the image
+     * @param toneMapping the tone mapping operator
+     * @param exposure    the scale of the components before the tone mapping
+     */
+    void resolve(int col0, int row0, int col1, int row1, ImageWriter imageWriter,
+                 ToneMapping toneMapping, double exposure) {
+        int width = col1 - col0;
+        int[] rgb = new int[width * (row1 - row0)];
+        int i = 0;
+        for (int y = row0; y < row1; ++y) {
+            ByteBuffer band = band(y);
+            int end = offset(col1, y);
+            for (int offset = offset(col0, y); offset < end; offset += PIXEL_BYTES)
+                rgb[i++] = toneMapping.toRgb(band.getFloat(offset), band.getFloat(offset + Float.BYTES),
+                        band.getFloat(offset + 2 * Float.BYTES), exposure);
+        }
+        imageWriter.writePixels(col0, row0, col1, row1, rgb);
+    }
+
+    /**
+     * Copy the frame buffer
+     * @return a new frame buffer with the same pixels
+     */
+    FrameBuffer copy() {
+        FrameBuffer copy = new FrameBuffer(nX, nY);
+        for (int i = 0; i < bands.length; ++i)
+            copy.bands[i].put(0, bands[i], 0, bands[i].capacity());
+        return copy;
+    }
+
+    /**
+     * Reset all the pixels to black
+     */
+    void clear() {
+        for (ByteBuffer band : bands)
+            for (int i = 0; i < band.capacity(); i += Float.BYTES)
+                band.putInt(i, 0);
+    }
+}
@@ -0,0 +1,29 @@
+package renderer;
+
+/**
+ * Formats of the image files
+ */
+public enum ImageFormat {
+    /** Compressed PNG - the smallest file, the slowest to write */
+    PNG("png"),
+    /** Uncompressed binary PPM (P6) - 8 bit RGB */
+    PPM("ppm"),
+    /**
+     * Uncompressed little-endian PFM - 32 bit floating point RGB (1.0 for
+     * printed white), of the high dynamic range frame buffer when there is one
+     */
+    PFM("pfm"),
+    /** Raw dump of the packed 32 bit RGB pixels, little-endian, row by row, with no header */
+    RAW("raw");
+
+    /** The file name extension */
+    final String extension;
+
+    /**
+     * Create a format
+     * @param extension the file name extension
+     */
+    ImageFormat(String extension) {
+        this.extension = extension;
+    }
+}
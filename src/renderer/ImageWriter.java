@@ -1,11 +1,21 @@
 package renderer;
 
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import java.io.*;
-
-import javax.imageio.ImageIO;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import primitives.Color;
+import primitives.Double3;
 
 /**
  * Image writer class combines accumulation of pixel color matrix and finally
@@ -26,8 +36,32 @@ final class ImageWriter {
     */
    private static final String FOLDER_PATH = System.getProperty("user.dir") + "/images";
 
+   /**
+    * The PNG encoder - compresses strips of the image in parallel; level 4
+    * compresses nearly as well as the default level in a third of the time
+    */
+   static final PngEncoder     PNG_ENCODER = new PngEncoder(4);
+   /** Size of the buffer of the floating point format's writing in bytes */
+   private static final int    WRITE_BUFFER   = 1 << 20;
+   /** Amount of images waiting for the output thread before the caller writes by itself */
+   private static final int    OUTPUT_QUEUE   = 2;
+   /**
+    * The output thread writing images in the background - it ends when idle,
+    * and the caller writes an image by itself when too many are waiting
+    */
+   private static final ThreadPoolExecutor OUTPUT = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS,
+         new ArrayBlockingQueue<>(OUTPUT_QUEUE), r -> new Thread(r, "image-output"),
+         new ThreadPoolExecutor.CallerRunsPolicy());
+
+   static { OUTPUT.allowCoreThreadTimeOut(true); }
+
    /** Image generation buffer (the matrix of the pixels) */
    private final BufferedImage image;
+   /**
+    * The packed RGB pixels of the image buffer, row by row - written directly,
+    * bypassing the color model of the image
+    */
+   private final int[]         pixels;
 
    // ***************** Constructors ********************** //
    /**
@@ -40,6 +74,7 @@ final class ImageWriter {
       this.nY = nY;
 
       image   = new BufferedImage(nX, nY, BufferedImage.TYPE_INT_RGB);
+      pixels  = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
    }
 
    // ***************** Getters ********************** //
@@ -58,16 +93,108 @@ final class ImageWriter {
    // ***************** Operations ******************** //
 
    /**
-    * Function writeToImage produces unoptimized png file of the image according
+    * Function writeToImage produces a png file (encoded in parallel) of the image according
     * to pixel color matrix in the directory of the project
     * @param imageName the name of png file
     */
-   void writeToImage(String imageName) {
+   void writeToImage(String imageName) { writeToImage(imageName, ImageFormat.PNG, null); }
+
+   /**
+    * Function writeToImage produces an image file of the pixel color matrix in
+    * the given format in the directory of the project
+    * @param imageName the name of the file (without extension)
+    * @param format    the file format
+    * @param hdr       the high dynamic range pixels for the floating point
+    *                  format (null to convert the 8 bit pixels)
+    */
+   void writeToImage(String imageName, ImageFormat format, FrameBuffer hdr) {
+      Path file = Path.of(FOLDER_PATH, imageName + '.' + format.extension);
+      RenderTrace.Span span = RenderTrace.begin("image", "write " + format, imageName);
       try {
-         File file = new File(FOLDER_PATH + '/' + imageName + ".png");
-         ImageIO.write(image, "png", file);
+         switch (format) {
+            case PNG -> PNG_ENCODER.write(file, pixels, nX, nY);
+            case PFM -> writePfm(file, hdr);
+            case PPM, RAW -> {
+               try (ScanlineWriter writer = new ScanlineWriter(file, format, nX, nY)) {
+                  writer.write(pixels, nY);
+               }
+            }
+         }
       } catch (IOException e) {
          throw new IllegalStateException("I/O error - may be missing directory " + FOLDER_PATH, e);
+      } finally {
+         RenderTrace.end(span);
+      }
+   }
+
+   /**
+    * Write the image in the background: the pixels are copied, so the image
+    * may be rendered again at once, and the output thread writes the copy.
+    * When the output thread falls behind, the caller writes the image by itself.
+    * @param  imageName the name of the file (without extension)
+    * @param  format    the file format
+    * @param  hdr       the high dynamic range pixels for the floating point
+    *                   format (null to convert the 8 bit pixels)
+    * @return           the completion of the writing
+    */
+   CompletableFuture<Void> writeToImageAsync(String imageName, ImageFormat format, FrameBuffer hdr) {
+      ImageWriter copy = new ImageWriter(nX, nY);
+      System.arraycopy(pixels, 0, copy.pixels, 0, pixels.length);
+      FrameBuffer hdrCopy = hdr == null || format != ImageFormat.PFM ? null : hdr.copy();
+      return CompletableFuture.runAsync(() -> copy.writeToImage(imageName, format, hdrCopy), OUTPUT);
+   }
+
+   /**
+    * Open a file for writing, replacing an existing file
+    * @param  file the file
+    * @return      the file channel
+    * @throws IOException if the file cannot be opened
+    */
+   private static FileChannel create(Path file) throws IOException {
+      return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+   }
+
+   /**
+    * Write the buffer to the channel if it has no room for more bytes
+    * @param  channel the channel
+    * @param  buffer  the buffer
+    * @param  bytes   amount of bytes to be put next
+    * @throws IOException on a writing error
+    */
+   private static void flush(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+      if (buffer.remaining() >= bytes) return;
+      buffer.flip();
+      while (buffer.hasRemaining()) channel.write(buffer);
+      buffer.clear();
+   }
+
+   /**
+    * Write the image as little-endian PFM - the rows from bottom to top as the
+    * format requires, 1.0 for printed white
+    * @param  file the file
+    * @param  hdr  the high dynamic range pixels (null to convert the 8 bit pixels)
+    * @throws IOException on a writing error
+    */
+   private void writePfm(Path file, FrameBuffer hdr) throws IOException {
+      try (FileChannel channel = create(file)) {
+         ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+         buffer.put(("PF\n" + nX + " " + nY + "\n-1.0\n").getBytes(StandardCharsets.US_ASCII));
+         for (int y = nY - 1; y >= 0; --y)
+            for (int x = 0; x < nX; ++x) {
+               flush(channel, buffer, 3 * Float.BYTES);
+               if (hdr != null) {
+                  buffer.putFloat(hdr.getComponent(x, y, 0) / 255)
+                        .putFloat(hdr.getComponent(x, y, 1) / 255)
+                        .putFloat(hdr.getComponent(x, y, 2) / 255);
+               } else {
+                  int rgb = pixels[y * nX + x];
+                  buffer.putFloat((rgb >> 16 & 0xFF) / 255f)
+                        .putFloat((rgb >> 8 & 0xFF) / 255f)
+                        .putFloat((rgb & 0xFF) / 255f);
+               }
+            }
+         flush(channel, buffer, WRITE_BUFFER);
       }
    }
 
@@ -78,6 +205,69 @@ final class ImageWriter {
     * @param yIndex Y axis index of the pixel
     * @param color  final color of the pixel
     */
-   void writePixel(int xIndex, int yIndex, Color color) { image.setRGB(xIndex, yIndex, color.getColor().getRGB()); }
+   void writePixel(int xIndex, int yIndex, Color color) { pixels[yIndex * nX + xIndex] = toRgb(color); }
+
+   /**
+    * The function writes a pixel given as a packed RGB integer (as returned by
+    * {@link java.awt.Color#getRGB()}) into the image buffer
+    * @param xIndex X axis index of the pixel
+    * @param yIndex Y axis index of the pixel
+    * @param rgb    packed RGB of the pixel
+    */
+   void writePixel(int xIndex, int yIndex, int rgb) { pixels[yIndex * nX + xIndex] = rgb & 0xFFFFFF; }
+
+   /**
+    * The function writes a rectangle of pixels given as packed RGB integers,
+    * row by row, into the image buffer - a row at a time
+    * @param col0 first pixel column
+    * @param row0 first pixel row
+    * @param col1 pixel column following the rectangle
+    * @param row1 pixel row following the rectangle
+    * @param rgb  packed RGB of the pixels, row by row
+    */
+   void writePixels(int col0, int row0, int col1, int row1, int[] rgb) {
+      int width = col1 - col0;
+      for (int y = row0, i = 0; y < row1; ++y, i += width)
+         System.arraycopy(rgb, i, pixels, y * nX + col0, width);
+   }
+
+   /**
+    * The function reads a rectangle of pixels from the image buffer
+    * @param  col0 first pixel column
+    * @param  row0 first pixel row
+    * @param  col1 pixel column following the rectangle
+    * @param  row1 pixel row following the rectangle
+    * @return      packed RGB of the pixels, row by row
+    */
+   int[] getPixels(int col0, int row0, int col1, int row1) {
+      int width = col1 - col0;
+      int[] rgb = new int[width * (row1 - row0)];
+      for (int y = row0, i = 0; y < row1; ++y, i += width)
+         System.arraycopy(pixels, y * nX + col0, rgb, i, width);
+      return rgb;
+   }
+
+   /**
+    * Convert a color to packed RGB as {@link Color#getColor()} does - any
+    * component bigger than 255 is set to 255 - without creating a
+    * java.awt.Color object
+    * @param  color the color
+    * @return       packed RGB of the color
+    */
+   static int toRgb(Color color) {
+      Double3 rgb = color.getRgb();
+      int r = (int) rgb.d1();
+      int g = (int) rgb.d2();
+      int b = (int) rgb.d3();
+      return (r > 255 ? 255 : r) << 16 | (g > 255 ? 255 : g) << 8 | (b > 255 ? 255 : b);
+   }
+
+   /**
+    * The function reads a pixel from the image buffer
+    * @param  xIndex X axis index of the pixel
+    * @param  yIndex Y axis index of the pixel
+    * @return        packed RGB of the pixel
+    */
+   int getPixel(int xIndex, int yIndex) { return pixels[yIndex * nX + xIndex]; }
 
 }
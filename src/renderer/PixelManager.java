@@ -1,38 +1,59 @@
 package renderer;
 
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
 /**
  * PixelManager is a helper class. It is used for multi-threading in the
  * renderer and
  * for follow up its progress.<br/>
- * A Camera uses one pixel manager object and several Pixel objects - one in
- * each thread.
+ * The image is divided into square tiles which are handed out to the threads
+ * by an atomic counter, in Morton (Z-curve) order of the tiles so that the
+ * tiles rendered at the same time are close to each other in the scene (or
+ * row by row, for an image streamed to its file as it is rendered). A
+ * thread reports its progress once per tile, so no lock is taken per pixel.
  * @author Dan Zilberstein
  */
 class PixelManager {
     /**
-     * Immutable class for object containing allocated pixel (with its row and
-     * column numbers)
-     * @param col pixel column number
-     * @param row pixel row number
+     * Immutable class for object containing allocated tile of pixels
+     * @param col0 first pixel column number
+     * @param row0 first pixel row number
+     * @param col1 pixel column number following the tile
+     * @param row1 pixel row number following the tile
      */
-    record Pixel(int col, int row) {
+    record Tile(int col0, int row0, int col1, int row1) {
+        /**
+         * Amount of pixels in the tile
+         * @return the amount of pixels
+         */
+        int pixels() { return (col1 - col0) * (row1 - row0); }
     }
 
-    /** Maximum rows of pixels */
-    private final int maxRows;
-    /** Maximum columns of pixels */
-    private final int maxCols;
-    /** Total amount of pixels in the generated image */
+    /** The region of the image to render */
+    private final Tile region;
+    /** Total amount of pixels in the generated region */
     private final long totalPixels;
+    /** Size of the tiles' side in pixels */
+    private final int tileSize;
+    /** First tile column of the region */
+    private final int firstTileCol;
+    /** First tile row of the region */
+    private final int firstTileRow;
+    /** Amount of tile columns of the region */
+    private final int tileCols;
+    /** Amount of tiles */
+    private final int tilesCount;
+    /** Tile numbers (row by row) in the order they are handed out, null for row by row order */
+    private final int[] tileOrder;
 
-    /** Currently processed row of pixels */
-    private volatile int cRow          = 0;
-    /** Currently processed column of pixels */
-    private volatile int cCol          = -1;
+    /** Index of the next tile to hand out in the tile order */
+    private final AtomicInteger nextTile = new AtomicInteger();
     /** Amount of pixels that have been processed */
-    private volatile long pixels        = 0L;
+    private final LongAdder pixels = new LongAdder();
     /** Last printed progress update percentage */
-    private volatile int lastPrinted   = 0;
+    private final AtomicInteger lastPrinted = new AtomicInteger();
 
     /** Flag of debug printing of progress percentage */
     private final boolean print;
@@ -40,71 +61,141 @@ class PixelManager {
     private long printInterval = 100L;
     /** Printing format */
     private static final String PRINT_FORMAT  = "%5.1f%%\n";
-    /**
-     * Mutual exclusion object for synchronizing next pixel allocation between
-     * threads
-     */
-    private final Object mutexNext     = new Object();
-    /**
-     * Mutual exclusion object for printing progress percentage in console window
-     * by different threads
-     */
-    private final Object mutexPixels   = new Object();
 
     /**
      * Initialize pixel manager data for multi-threading
      * @param maxRows  the amount of pixel rows
      * @param maxCols  the amount of pixel columns
+     * @param tileSize the size of the tiles' side in pixels
      * @param interval print time interval in seconds, 0 if printing is not
      *                 required
      */
-    PixelManager(int maxRows, int maxCols, double... interval) {
+    PixelManager(int maxRows, int maxCols, int tileSize, double... interval) {
+        this(maxRows, maxCols, tileSize, false, interval);
+    }
+
+    /**
+     * Initialize pixel manager data for multi-threading
+     * @param maxRows       the amount of pixel rows
+     * @param maxCols       the amount of pixel columns
+     * @param tileSize      the size of the tiles' side in pixels
+     * @param scanlineOrder true to hand out the tiles row by row (so the rows of
+     *                      tiles complete in order), false for Morton order
+     * @param interval      print time interval in seconds, 0 if printing is not
+     *                      required
+     */
+    PixelManager(int maxRows, int maxCols, int tileSize, boolean scanlineOrder, double... interval) {
+        this(new Tile(0, 0, maxCols, maxRows), tileSize, scanlineOrder, interval);
+    }
+
+    /**
+     * Initialize pixel manager data for multi-threading of a region of the
+     * image: the tiles of the image's tile grid meeting the region are handed
+     * out, cut to the region
+     * @param region        the region of the image
+     * @param tileSize      the size of the tiles' side in pixels
+     * @param scanlineOrder true to hand out the tiles row by row (so the rows of
+     *                      tiles complete in order), false for Morton order
+     * @param interval      print time interval in seconds, 0 if printing is not
+     *                      required
+     */
+    PixelManager(Tile region, int tileSize, boolean scanlineOrder, double... interval) {
         if (interval.length > 1)
             throw new IllegalArgumentException("only up to one interval argument is allowed");
-        this.maxRows  = maxRows;
-        this.maxCols  = maxCols;
-        totalPixels   = (long) maxRows * maxCols;
+        if (tileSize < 1)
+            throw new IllegalArgumentException("tile size must be positive");
+        this.region   = region;
+        this.tileSize = tileSize;
+        totalPixels   = (long) (region.col1() - region.col0()) * (region.row1() - region.row0());
+        firstTileCol  = region.col0() / tileSize;
+        firstTileRow  = region.row0() / tileSize;
+        tileCols      = (region.col1() + tileSize - 1) / tileSize - firstTileCol;
+        int tileRows  = (region.row1() + tileSize - 1) / tileSize - firstTileRow;
+        tilesCount    = Math.toIntExact((long) tileCols * tileRows);
+        tileOrder     = scanlineOrder ? null : mortonOrder(tileCols, tileRows);
         printInterval = interval.length == 0 ? printInterval : (long) (interval[0] * 10);
         print         = printInterval != 0;
         if (print) System.out.printf(PRINT_FORMAT, 0d);
     }
 
     /**
-     * Function for thread-safe manipulating of main follow up Pixel object - this
-     * function is critical section for all the threads, and the pixel manager data
-     * is the shared data of this critical section.<br/>
-     * The function provides next available pixel number each call.
+     * Order the tiles along the Morton (Z-order) curve: the code of a tile is its
+     * column and row numbers with their bits interleaved
+     * @param cols amount of tile columns
+     * @param rows amount of tile rows
+     * @return the tile numbers (row by row numbering) sorted by their codes
      */
-    Pixel nextPixel() {
-        synchronized (mutexNext) {
-            if (cRow == maxRows) return null;
-
-            ++cCol;
-            if (cCol < maxCols)
-                return new Pixel(cCol, cRow);
-
-            cCol = 0;
-            ++cRow;
-            if (cRow < maxRows)
-                return new Pixel(cCol, cRow);
-        }
-        return null;
+    private static int[] mortonOrder(int cols, int rows) {
+        long[] keys = new long[cols * rows];
+        for (int row = 0; row < rows; ++row)
+            for (int col = 0; col < cols; ++col) {
+                int tile = row * cols + col;
+                keys[tile] = (spreadBits(col) | spreadBits(row) << 1) << 32 | tile;
+            }
+        Arrays.sort(keys);
+
+        int[] order = new int[keys.length];
+        for (int i = 0; i < keys.length; ++i)
+            order[i] = (int) keys[i];
+        return order;
     }
 
-    /** Finish pixel processing by updating and printing of progress percentage */
-    void pixelDone() {
-        boolean flag       = false;
-        int     percentage = 0;
-        synchronized (mutexPixels) {
-            ++pixels;
-            if (print) {
-                percentage = (int) (1000L * pixels / totalPixels);
-                if (percentage - lastPrinted >= printInterval) {
-                    lastPrinted = percentage;
-                    flag        = true;
-                }
-            }
-        }
-        if (flag) System.out.printf(PRINT_FORMAT, percentage / 10d);
+    /**
+     * Spread the lower 16 bits of a number to the even bit positions
+     * @param value the number
+     * @return the spread bits
+     */
+    private static long spreadBits(int value) {
+        long x = value & 0xFFFFL;
+        x = (x | x << 8) & 0x00FF00FFL;
+        x = (x | x << 4) & 0x0F0F0F0FL;
+        x = (x | x << 2) & 0x33333333L;
+        x = (x | x << 1) & 0x55555555L;
+        return x;
+    }
+
+    /**
+     * Amount of tiles in the image
+     * @return the amount of tiles
+     */
+    int tilesCount() { return tilesCount; }
+
+    /**
+     * Get a tile by its place in the order the tiles are handed out
+     * @param index the place of the tile in the order
+     * @return the tile
+     */
+    Tile tile(int index) {
+        int tile = tileOrder == null ? index : tileOrder[index];
+        int col0 = (firstTileCol + tile % tileCols) * tileSize;
+        int row0 = (firstTileRow + tile / tileCols) * tileSize;
+        return new Tile(Math.max(col0, region.col0()), Math.max(row0, region.row0()),
+                Math.min(col0 + tileSize, region.col1()), Math.min(row0 + tileSize, region.row1()));
+    }
+
+    /**
+     * Thread-safe allocation of the next tile to be rendered - a single atomic
+     * increment, no lock is taken.<br/>
+     * The function provides next available tile each call.
+     * @return the next tile, or null if all the tiles have been handed out
+     */
+    Tile nextTile() {
+        int index = nextTile.getAndIncrement();
+        return index < tilesCount ? tile(index) : null;
+    }
+
+    /**
+     * Finish processing of several pixels (normally a tile) by updating and
+     * printing of progress percentage
+     * @param count the amount of pixels processed
+     */
+    void pixelsDone(int count) {
+        pixels.add(count);
+        if (!print) return;
+
+        int percentage = (int) (1000L * pixels.sum() / totalPixels);
+        int last       = lastPrinted.get();
+        if (percentage - last >= printInterval && lastPrinted.compareAndSet(last, percentage))
+            System.out.printf(PRINT_FORMAT, percentage / 10d);
     }
-}
\ No newline at end of file
+}
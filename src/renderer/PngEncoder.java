@@ -0,0 +1,443 @@
+package renderer;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Parallel PNG encoder of 8 bit RGB images.<br/>
+ * The image is divided into strips of rows, which are filtered and deflated in
+ * parallel, each strip into a raw deflate stream of its own. The streams are
+ * concatenated into a single zlib stream: every strip but the last ends with a
+ * sync flush (on a byte boundary, the stream not final), and each strip's
+ * compressor is preset with the last 32K of the preceding strip's filtered
+ * data as its dictionary - exactly the history the decompressor has there, so
+ * the matches across the strips' boundaries are kept. The Adler-32 checksums
+ * of the strips are combined into the checksum of the whole stream. Each
+ * strip is written as an IDAT chunk of its own, in order, as it completes.
+ */
+final class PngEncoder {
+    /** The PNG file signature */
+    private static final byte[] SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+    /** The deflate window - the size of the preset dictionary */
+    private static final int WINDOW = 32 * 1024;
+    /** Approximate size of a strip's filtered data in bytes */
+    private static final int STRIP_BYTES = 1 << 20;
+    /** The Adler-32 modulus */
+    private static final int ADLER_BASE = 65521;
+    /** Bytes per pixel - RGB */
+    private static final int PIXEL_BYTES = 3;
+
+    /** The compression level of the deflater */
+    private final int level;
+
+    /**
+     * A deflated strip
+     * @param data    the raw deflate stream of the strip
+     * @param adler   the Adler-32 checksum of the strip's filtered data
+     * @param length  the length of the strip's filtered data
+     */
+    private record Strip(byte[] data, long adler, long length) { }
+
+    /**
+     * Create an encoder
+     * @param level the compression level of the deflater (0..9 or {@link Deflater#DEFAULT_COMPRESSION})
+     */
+    PngEncoder(int level) {
+        this.level = level;
+    }
+
+    /**
+     * Encode an image into a PNG file
+     * @param  file   the file
+     * @param  pixels the packed RGB pixels, row by row
+     * @param  nX     the width of the image
+     * @param  nY     the height of the image
+     * @throws IOException on a writing error
+     */
+    void write(Path file, int[] pixels, int nX, int nY) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16)) {
+            write(out, pixels, nX, nY);
+        }
+    }
+
+    /**
+     * Encode an image as PNG into a stream
+     * @param  out    the stream
+     * @param  pixels the packed RGB pixels, row by row
+     * @param  nX     the width of the image
+     * @param  nY     the height of the image
+     * @throws IOException on a writing error
+     */
+    void write(OutputStream out, int[] pixels, int nX, int nY) throws IOException {
+        int rowBytes = 1 + nX * PIXEL_BYTES;
+        int stripRows = Math.max(1, STRIP_BYTES / rowBytes);
+        int dictionaryRows = (WINDOW + rowBytes - 1) / rowBytes;
+
+        List<CompletableFuture<Strip>> strips = new ArrayList<>();
+        for (int row0 = 0; row0 < nY; row0 += stripRows) {
+            int first = row0;
+            int last = Math.min(nY, row0 + stripRows);
+            strips.add(CompletableFuture.supplyAsync(
+                    () -> deflate(pixels, nX, first, last, dictionaryRows, last == nY)));
+        }
+
+        DataOutputStream data = new DataOutputStream(out);
+        writeHeader(data, nX, nY);
+        writeChunk(data, "IDAT", new byte[] { 0x78, (byte) 0x9C }, 2); // zlib header - deflate, 32K window
+
+        long adler = 1;
+        try {
+            for (CompletableFuture<Strip> future : strips) {
+                Strip strip = future.join();
+                writeChunk(data, "IDAT", strip.data(), strip.data().length);
+                adler = combineAdler(adler, strip.adler(), strip.length());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw new IllegalStateException("PNG encoding failed", e.getCause());
+        }
+        byte[] trailer = new byte[4];
+        putInt(trailer, 0, (int) adler);
+        writeChunk(data, "IDAT", trailer, 4);
+        writeChunk(data, "IEND", new byte[0], 0);
+        data.flush();
+    }
+
+    /**
+     * Start encoding an image whose rows are given in order, a band of rows at
+     * a time, so the whole image is never in memory
+     * @param  out the stream - closed when the writer is closed
+     * @param  nX  the width of the image
+     * @param  nY  the height of the image
+     * @return     the writer of the rows
+     * @throws IOException on a writing error
+     */
+    RowWriter open(OutputStream out, int nX, int nY) throws IOException {
+        return new RowWriter(out, nX, nY);
+    }
+
+    /**
+     * Streaming PNG encoder: the bands of rows are filtered and compressed into
+     * one zlib stream as they come, and the compressed data is written as IDAT
+     * chunks of a bounded size
+     */
+    final class RowWriter implements AutoCloseable {
+        /** The stream */
+        private final DataOutputStream out;
+        /** The width of the image */
+        private final int nX;
+        /** The height of the image */
+        private final int nY;
+        /** The compressor - with the zlib header and checksum */
+        private final Deflater deflater = new Deflater(level);
+        /** The compressed data of the next chunk */
+        private final byte[] chunk = new byte[STRIP_BYTES / 4];
+        /** The bytes of the last row written */
+        private final byte[] previous;
+        /** Amount of rows written */
+        private int rows = 0;
+
+        /**
+         * Start encoding an image - write the signature and the header
+         * @param  out the stream
+         * @param  nX  the width of the image
+         * @param  nY  the height of the image
+         * @throws IOException on a writing error
+         */
+        private RowWriter(OutputStream out, int nX, int nY) throws IOException {
+            this.out = new DataOutputStream(out);
+            this.nX = nX;
+            this.nY = nY;
+            previous = new byte[nX * PIXEL_BYTES];
+            writeHeader(this.out, nX, nY);
+        }
+
+        /**
+         * Encode the next rows of the image
+         * @param  pixels the packed RGB pixels of the rows, row by row
+         * @param  count  amount of rows
+         * @throws IOException on a writing error
+         */
+        void write(int[] pixels, int count) throws IOException {
+            if (rows + count > nY)
+                throw new IllegalArgumentException("More rows than the height of the image");
+            deflater.setInput(filter(pixels, nX, 0, count, previous));
+            unpack(pixels, nX, count - 1, previous);
+            rows += count;
+            while (!deflater.needsInput()) flushChunk(deflater.deflate(chunk));
+        }
+
+        /**
+         * Write the compressed data of a chunk if any
+         * @param  length the length of the data
+         * @throws IOException on a writing error
+         */
+        private void flushChunk(int length) throws IOException {
+            if (length > 0) writeChunk(out, "IDAT", chunk, length);
+        }
+
+        /**
+         * Finish the image - the rest of the compressed data and the end chunk -
+         * and close the stream
+         * @throws IOException on a writing error
+         * @throws IllegalStateException if not all the rows were written
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                if (rows != nY)
+                    throw new IllegalStateException("Image has " + rows + " rows of " + nY);
+                deflater.finish();
+                while (!deflater.finished()) flushChunk(deflater.deflate(chunk));
+                writeChunk(out, "IEND", new byte[0], 0);
+            } finally {
+                deflater.end();
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * Write the signature and the header chunk of an image
+     * @param  out the stream
+     * @param  nX  the width of the image
+     * @param  nY  the height of the image
+     * @throws IOException on a writing error
+     */
+    private static void writeHeader(DataOutputStream out, int nX, int nY) throws IOException {
+        out.write(SIGNATURE);
+        byte[] header = new byte[13];
+        putInt(header, 0, nX);
+        putInt(header, 4, nY);
+        header[8] = 8;  // bit depth
+        header[9] = 2;  // color type - RGB
+        writeChunk(out, "IHDR", header, header.length);
+    }
+
+    /**
+     * Filter and deflate a strip of rows
+     * @param  pixels         the packed RGB pixels, row by row
+     * @param  nX             the width of the image
+     * @param  row0           first row of the strip
+     * @param  row1           row following the strip
+     * @param  dictionaryRows amount of preceding rows covering the deflate window
+     * @param  last           true for the last strip of the image
+     * @return                the deflated strip
+     */
+    private Strip deflate(int[] pixels, int nX, int row0, int row1, int dictionaryRows, boolean last) {
+        RenderTrace.Span span = RenderTrace.begin("image", "deflate strip", "rows " + row0 + " - " + row1);
+        byte[] filtered = filter(pixels, nX, row0, row1);
+        Deflater deflater = new Deflater(level, true);
+        try {
+            if (row0 > 0) {
+                byte[] history = filter(pixels, nX, Math.max(0, row0 - dictionaryRows), row0);
+                int length = Math.min(WINDOW, history.length);
+                deflater.setDictionary(history, history.length - length, length);
+            }
+            deflater.setInput(filtered);
+            byte[] buffer = new byte[Math.max(1024, filtered.length / 2)];
+            int size = 0;
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    if (size == buffer.length) buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                    size += deflater.deflate(buffer, size, buffer.length - size);
+                }
+            } else {
+                int count;
+                do { // sync flush - until the deflater does not fill the whole room
+                    if (size == buffer.length) buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                    count = deflater.deflate(buffer, size, buffer.length - size, Deflater.SYNC_FLUSH);
+                    size += count;
+                } while (size == buffer.length);
+            }
+
+            Adler32 adler = new Adler32();
+            adler.update(filtered);
+            return new Strip(Arrays.copyOf(buffer, size), adler.getValue(), filtered.length);
+        } finally {
+            deflater.end();
+            RenderTrace.end(span);
+        }
+    }
+
+    /**
+     * Filter rows of the image: each row gets the filter (none, sub, up,
+     * average or Paeth) with the smallest sum of absolute filtered values
+     * @param  pixels the packed RGB pixels, row by row
+     * @param  nX     the width of the image
+     * @param  row0   first row
+     * @param  row1   row following the last
+     * @return        the filtered rows, each preceded by its filter type
+     */
+    private static byte[] filter(int[] pixels, int nX, int row0, int row1) {
+        byte[] previous = new byte[nX * PIXEL_BYTES];
+        if (row0 > 0) unpack(pixels, nX, row0 - 1, previous);
+        return filter(pixels, nX, row0, row1, previous);
+    }
+
+    /**
+     * Filter rows of the image following a given row
+     * @param  pixels   the packed RGB pixels, row by row
+     * @param  nX       the width of the image
+     * @param  row0     first row
+     * @param  row1     row following the last
+     * @param  previous the bytes of the row preceding the first (zeros for the
+     *                  first row of the image) - overwritten
+     * @return          the filtered rows, each preceded by its filter type
+     */
+    private static byte[] filter(int[] pixels, int nX, int row0, int row1, byte[] previous) {
+        int lineBytes = nX * PIXEL_BYTES;
+        byte[] filtered = new byte[(row1 - row0) * (lineBytes + 1)];
+        byte[] current = new byte[lineBytes];
+        byte[][] candidates = new byte[5][lineBytes];
+
+        int out = 0;
+        for (int y = row0; y < row1; ++y) {
+            unpack(pixels, nX, y, current);
+            filterLine(current, previous, candidates);
+            int best = 0;
+            long bestSum = Long.MAX_VALUE;
+            for (int type = 0; type < candidates.length; ++type) {
+                long sum = 0;
+                for (byte value : candidates[type]) sum += Math.abs(value);
+                if (sum < bestSum) {
+                    bestSum = sum;
+                    best = type;
+                }
+            }
+            filtered[out++] = (byte) best;
+            System.arraycopy(candidates[best], 0, filtered, out, lineBytes);
+            out += lineBytes;
+
+            byte[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return filtered;
+    }
+
+    /**
+     * Filter a line by each of the filter types
+     * @param current    the line
+     * @param previous   the preceding line (zeros for the first line)
+     * @param candidates the line filtered by each filter type
+     */
+    private static void filterLine(byte[] current, byte[] previous, byte[][] candidates) {
+        byte[] none = candidates[0], sub = candidates[1], up = candidates[2], average = candidates[3],
+                paeth = candidates[4];
+        System.arraycopy(current, 0, none, 0, current.length);
+        for (int i = 0; i < PIXEL_BYTES; ++i) {
+            int x = current[i] & 0xFF, b = previous[i] & 0xFF;
+            sub[i] = (byte) x;
+            up[i] = (byte) (x - b);
+            average[i] = (byte) (x - (b >> 1));
+            paeth[i] = (byte) (x - b); // the predictor of the first pixel is the upper byte
+        }
+        for (int i = PIXEL_BYTES; i < current.length; ++i) {
+            int x = current[i] & 0xFF, a = current[i - PIXEL_BYTES] & 0xFF;
+            int b = previous[i] & 0xFF, c = previous[i - PIXEL_BYTES] & 0xFF;
+            sub[i] = (byte) (x - a);
+            up[i] = (byte) (x - b);
+            average[i] = (byte) (x - (a + b >> 1));
+            paeth[i] = (byte) (x - paeth(a, b, c));
+        }
+    }
+
+    /**
+     * Unpack a row of packed RGB pixels into bytes
+     * @param pixels the packed RGB pixels, row by row
+     * @param nX     the width of the image
+     * @param y      the row
+     * @param line   the bytes of the row - red, green and blue per pixel
+     */
+    private static void unpack(int[] pixels, int nX, int y, byte[] line) {
+        for (int x = 0, i = y * nX, j = 0; x < nX; ++x, ++i) {
+            int rgb = pixels[i];
+            line[j++] = (byte) (rgb >> 16);
+            line[j++] = (byte) (rgb >> 8);
+            line[j++] = (byte) rgb;
+        }
+    }
+
+    /**
+     * The Paeth predictor
+     * @param  a the left byte
+     * @param  b the upper byte
+     * @param  c the upper left byte
+     * @return   the predicted byte
+     */
+    private static int paeth(int a, int b, int c) {
+        int p = a + b - c;
+        int pa = Math.abs(p - a);
+        int pb = Math.abs(p - b);
+        int pc = Math.abs(p - c);
+        return pa <= pb && pa <= pc ? a : pb <= pc ? b : c;
+    }
+
+    /**
+     * Combine the Adler-32 checksums of two consecutive blocks of data into the
+     * checksum of both (as zlib's adler32_combine)
+     * @param  adler1  the checksum of the first block
+     * @param  adler2  the checksum of the second block
+     * @param  length2 the length of the second block
+     * @return         the checksum of the blocks together
+     */
+    static long combineAdler(long adler1, long adler2, long length2) {
+        long remainder = length2 % ADLER_BASE;
+        long sum1 = adler1 & 0xFFFF;
+        long sum2 = remainder * sum1 % ADLER_BASE;
+        sum1 += (adler2 & 0xFFFF) + ADLER_BASE - 1;
+        sum2 += (adler1 >> 16 & 0xFFFF) + (adler2 >> 16 & 0xFFFF) + ADLER_BASE - remainder;
+        if (sum1 >= ADLER_BASE) sum1 -= ADLER_BASE;
+        if (sum1 >= ADLER_BASE) sum1 -= ADLER_BASE;
+        if (sum2 >= 2L * ADLER_BASE) sum2 -= 2L * ADLER_BASE;
+        if (sum2 >= ADLER_BASE) sum2 -= ADLER_BASE;
+        return sum1 | sum2 << 16;
+    }
+
+    /**
+     * Write a chunk with its length and CRC
+     * @param  out    the stream
+     * @param  type   the chunk type
+     * @param  data   the chunk data
+     * @param  length the length of the data
+     * @throws IOException on a writing error
+     */
+    private static void writeChunk(DataOutputStream out, String type, byte[] data, int length) throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data, 0, length);
+        out.writeInt(length);
+        out.write(typeBytes);
+        out.write(data, 0, length);
+        out.writeInt((int) crc.getValue());
+    }
+
+    /**
+     * Put a big-endian integer into an array
+     * @param array  the array
+     * @param offset the offset of the integer
+     * @param value  the integer
+     */
+    private static void putInt(byte[] array, int offset, int value) {
+        array[offset] = (byte) (value >> 24);
+        array[offset + 1] = (byte) (value >> 16);
+        array[offset + 2] = (byte) (value >> 8);
+        array[offset + 3] = (byte) value;
+    }
+}
@@ -3,11 +3,15 @@ package renderer;
 import primitives.Color;
 import primitives.Ray;
 import scene.Scene;
+import java.io.Serializable;
 
 /**
  * Abstract class for ray tracing
  */
-public abstract class RayTracerBase {
+public abstract class RayTracerBase implements Serializable {
+    /** Version of the serialized form */
+    private static final long serialVersionUID = 1L;
+
     /**
      * The scene to be rendered
      */
@@ -0,0 +1,136 @@
+package renderer;
+
+import scene.Scene;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Batch renderer of several views of one scene - stereo pairs, cube map faces,
+ * multi-view shots: the cameras of the views share one ray tracer, and so one
+ * prepared scene (with its BVH), built once before the batch, and their images
+ * are rendered together on one fork/join pool. Each view is rendered by
+ * recursive subdivision of its image, and all the views are submitted at once,
+ * so their tiles are interleaved by the pool's work stealing and the threads
+ * stay busy until the last tile of the last view.
+ */
+public class RenderBatch {
+    /** The ray tracer shared by the views */
+    private final RayTracerBase rayTracer;
+    /** The cameras of the views */
+    private final List<Camera> views = new ArrayList<>();
+    /** The pool rendering the views and their tiles */
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    /**
+     * Listener of the completed views
+     */
+    @FunctionalInterface
+    public interface ViewListener {
+        /**
+         * Called from a rendering thread when a view is rendered
+         *
+         * @param view   the number of the view (in the order of adding)
+         * @param camera the camera of the view holding its image
+         */
+        void viewDone(int view, Camera camera);
+    }
+
+    /**
+     * Create a batch of views of a scene, traced by one simple ray tracer
+     *
+     * @param scene the scene - prepared (with its BVH built) before
+     */
+    public RenderBatch(Scene scene) {
+        this(new SimpleRayTracer(scene));
+    }
+
+    /**
+     * Create a batch of views traced by a ray tracer
+     *
+     * @param rayTracer the ray tracer shared by the views
+     */
+    public RenderBatch(RayTracerBase rayTracer) {
+        if (rayTracer == null)
+            throw new IllegalArgumentException("Ray tracer must not be null");
+        this.rayTracer = rayTracer;
+    }
+
+    /**
+     * The ray tracer shared by the views - for its settings
+     *
+     * @return the ray tracer
+     */
+    public RayTracerBase getRayTracer() {
+        return rayTracer;
+    }
+
+    /**
+     * Add a view: its camera is built with the shared ray tracer
+     *
+     * @param builder the builder of the view's camera
+     * @return the batch
+     * @throws IllegalArgumentException if the camera does not render every
+     *                                  pixel at once in memory (it is set for
+     *                                  passes, a time budget, workers, a
+     *                                  checkpoint, an out-of-core image, metrics
+     *                                  or progress printing), or it has a
+     *                                  reprojection cache
+     */
+    public RenderBatch add(Camera.Builder builder) {
+        Camera camera = builder.setRayTracer(rayTracer).build();
+        camera.requirePoolRender();
+        if (camera.getReprojectionCache() != null)
+            throw new IllegalArgumentException("Views of a batch are not frames of a reprojection cache");
+        views.add(camera);
+        return this;
+    }
+
+    /**
+     * The cameras of the views, in the order of adding
+     *
+     * @return the cameras
+     */
+    public List<Camera> getViews() {
+        return List.copyOf(views);
+    }
+
+    /**
+     * Set the pool rendering the views and their tiles (the common pool by default)
+     *
+     * @param pool the pool
+     * @return the batch
+     */
+    public RenderBatch setPool(ForkJoinPool pool) {
+        this.pool = pool;
+        return this;
+    }
+
+    /**
+     * Render the views and write each one to an image file named by the base
+     * name and the view number (name_0, name_1, ...) when it is done
+     *
+     * @param name the base name of the image files
+     */
+    public void render(String name) {
+        render((view, camera) -> camera.writeToImage(name + "_" + view));
+    }
+
+    /**
+     * Render the views, handing each one to the listener when it is done
+     *
+     * @param listener the listener of the completed views
+     */
+    public void render(ViewListener listener) {
+        if (views.isEmpty())
+            throw new IllegalStateException("Batch has no views");
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(views.size());
+        for (int i = 0; i < views.size(); ++i) {
+            int view = i;
+            tasks.add(pool.submit(() -> listener.viewDone(view, views.get(view).renderImageInPool())));
+        }
+        for (ForkJoinTask<?> task : tasks) task.join();
+    }
+}
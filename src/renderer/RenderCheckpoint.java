@@ -0,0 +1,155 @@
+package renderer;
+
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Checkpoint of a long render: the pixels of the completed tiles are kept in a
+ * memory-mapped file, so they survive a crash or a preemption of the process
+ * and the rendering may be resumed, skipping the tiles already done.<br/>
+ * The file holds a header (the image and tile sizes), a manifest with a flag
+ * per tile (row by row) and the packed RGB of the pixels (row by row). The
+ * flag of a tile is set only after its pixels are stored. The data reaches the
+ * disk by the operating system even if the process is killed; it is forced to
+ * the disk when the checkpoint is closed.
+ */
+final class RenderCheckpoint implements AutoCloseable {
+    /** File signature ("RCKP") */
+    private static final int MAGIC = 0x52434B50;
+    /** File format version */
+    private static final int VERSION = 1;
+    /** Header size in bytes - magic, version, nX, nY and tile size */
+    private static final int HEADER_SIZE = 5 * Integer.BYTES;
+
+    /** Horizontal resolution of the image */
+    private final int nX;
+    /** Size of the tiles' side in pixels */
+    private final int tileSize;
+    /** Amount of tile columns */
+    private final int tileCols;
+    /** Offset of the pixels in the file */
+    private final int pixelsOffset;
+
+    /** The file channel */
+    private final FileChannel channel;
+    /** The mapped file */
+    private final MappedByteBuffer buffer;
+    /** The pixels in the mapped file */
+    private final IntBuffer pixels;
+
+    /**
+     * Open a checkpoint file
+     * @param  file     the checkpoint file
+     * @param  nX       horizontal resolution of the image
+     * @param  nY       vertical resolution of the image
+     * @param  tileSize the size of the tiles' side in pixels
+     * @param  resume   true to keep the tiles done in the existing file, false
+     *                  to start a new checkpoint
+     * @throws IllegalArgumentException if the image is too large for a checkpoint
+     * @throws IllegalStateException    if the existing file does not match the
+     *                                  image when resuming, or on an I/O error
+     */
+    RenderCheckpoint(Path file, int nX, int nY, int tileSize, boolean resume) {
+        this.nX       = nX;
+        this.tileSize = tileSize;
+        tileCols      = (nX + tileSize - 1) / tileSize;
+        int tiles     = tileCols * ((nY + tileSize - 1) / tileSize);
+        pixelsOffset  = HEADER_SIZE + tiles;
+        long size     = pixelsOffset + (long) nX * nY * Integer.BYTES;
+        if (size > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Image is too large for a checkpoint file");
+
+        boolean existing = resume && Files.exists(file);
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            if (!existing) channel.truncate(0);
+            else if (channel.size() != size) {
+                channel.close();
+                throw new IllegalStateException("Checkpoint " + file + " does not match the image");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } catch (IOException e) {
+            throw new IllegalStateException("I/O error in checkpoint " + file, e);
+        }
+        buffer.order(ByteOrder.BIG_ENDIAN);
+
+        if (!existing) {
+            buffer.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, nX).putInt(12, nY).putInt(16, tileSize);
+        } else if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+                || buffer.getInt(8) != nX || buffer.getInt(12) != nY || buffer.getInt(16) != tileSize) {
+            close();
+            throw new IllegalStateException("Checkpoint " + file + " does not match the image");
+        }
+        pixels = buffer.slice(pixelsOffset, (int) size - pixelsOffset).order(ByteOrder.BIG_ENDIAN).asIntBuffer();
+    }
+
+    /**
+     * The number of a tile in the manifest
+     * @param  tile the tile
+     * @return      the tile number (row by row)
+     */
+    private int tileNumber(PixelManager.Tile tile) {
+        return tile.row0() / tileSize * tileCols + tile.col0() / tileSize;
+    }
+
+    /**
+     * Check whether a tile was completed
+     * @param  tile the tile
+     * @return      true if the tile's pixels are in the checkpoint
+     */
+    boolean isDone(PixelManager.Tile tile) {
+        return buffer.get(HEADER_SIZE + tileNumber(tile)) != 0;
+    }
+
+    /**
+     * Store the pixels of a completed tile and mark it done
+     * @param tile        the tile
+     * @param imageWriter the image holding the tile's pixels
+     */
+    void save(PixelManager.Tile tile, ImageWriter imageWriter) {
+        int[] rgb = imageWriter.getPixels(tile.col0(), tile.row0(), tile.col1(), tile.row1());
+        int width = tile.col1() - tile.col0();
+        for (int y = tile.row0(), i = 0; y < tile.row1(); ++y, i += width)
+            pixels.put(y * nX + tile.col0(), rgb, i, width);
+        VarHandle.storeStoreFence(); // the pixels are stored before the flag
+        buffer.put(HEADER_SIZE + tileNumber(tile), (byte) 1);
+    }
+
+    /**
+     * Copy the pixels of the completed tiles into the image
+     * @param pixelManager the tiles of the image
+     * @param imageWriter  the image
+     */
+    void restore(PixelManager pixelManager, ImageWriter imageWriter) {
+        for (int i = 0; i < pixelManager.tilesCount(); ++i) {
+            PixelManager.Tile tile = pixelManager.tile(i);
+            if (!isDone(tile)) continue;
+            int width = tile.col1() - tile.col0();
+            int[] rgb = new int[width * (tile.row1() - tile.row0())];
+            for (int y = tile.row0(), j = 0; y < tile.row1(); ++y, j += width)
+                pixels.get(y * nX + tile.col0(), rgb, j, width);
+            imageWriter.writePixels(tile.col0(), tile.row0(), tile.col1(), tile.row1(), rgb);
+        }
+    }
+
+    /**
+     * Force the checkpoint to the disk and close the file
+     */
+    @Override
+    public void close() {
+        try {
+            buffer.force();
+            channel.close();
+        } catch (IOException e) {
+            throw new IllegalStateException("I/O error in checkpoint", e);
+        }
+    }
+}
@@ -0,0 +1,484 @@
+package renderer;
+
+import geometries.TraversalCounters;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Metrics of a render: the rays traced by category (primary, shadow,
+ * reflected, refracted), the bounding box tests, the primitive intersection
+ * tests and the BVH nodes visited, the throughput in millions of rays per
+ * second and the work of each rendering thread.<br/>
+ * While a measured render is in progress, each thread counts its rays (here)
+ * and its traversal work ({@link TraversalCounters}) into counters of its
+ * own, and the counters are read before and after each tile, so the work is
+ * merged per thread with no shared counter. The work of virtual threads - a
+ * thread per tile - is merged per slot instead: a tile takes a free slot, and
+ * there are as many slots as tiles rendered at once, so the balance is of the
+ * slots. The work done out of the tiles (such as the sampling of a time
+ * budget) is not included. When no render is measured, the counting costs a
+ * test of a flag.
+ */
+public final class RenderMetrics {
+    /** Amount of measured renders in progress - counting is on while positive */
+    private static final AtomicInteger MEASURING = new AtomicInteger();
+    /**
+     * Flag of counting the rays - set before the rendering threads are handed
+     * their tiles, which publishes it to them
+     */
+    private static boolean enabled = false;
+    /** The ray counters of each thread */
+    private static final ThreadLocal<RayCounters> RAYS = ThreadLocal.withInitial(RayCounters::new);
+
+    /** Index of the primary rays in the counter arrays */
+    private static final int PRIMARY = 0;
+    /** Index of the shadow rays in the counter arrays */
+    private static final int SHADOW = 1;
+    /** Index of the reflected rays in the counter arrays */
+    private static final int REFLECTED = 2;
+    /** Index of the refracted rays in the counter arrays */
+    private static final int REFRACTED = 3;
+    /** Index of the box tests in the counter arrays */
+    private static final int BOX_TESTS = 4;
+    /** Index of the primitive tests in the counter arrays */
+    private static final int PRIMITIVE_TESTS = 5;
+    /** Index of the node visits in the counter arrays */
+    private static final int NODE_VISITS = 6;
+    /** Index of the time in the counter arrays */
+    private static final int NANOS = 7;
+    /** Amount of counters */
+    private static final int COUNTERS = 8;
+
+    /**
+     * The ray counters of a thread
+     */
+    static final class RayCounters {
+        /** Amount of primary rays */
+        long primary = 0;
+        /** Amount of shadow rays */
+        long shadow = 0;
+        /** Amount of reflected rays */
+        long reflected = 0;
+        /** Amount of refracted rays */
+        long refracted = 0;
+    }
+
+    /**
+     * The work of a rendering thread
+     *
+     * @param thread    the name of the thread
+     * @param tiles     amount of tiles rendered
+     * @param pixels    amount of pixels rendered
+     * @param rays      amount of rays traced
+     * @param busyNanos time spent rendering tiles in nanoseconds
+     */
+    public record ThreadWork(String thread, long tiles, long pixels, long rays, long busyNanos) {
+    }
+
+    /** The totals of the counters */
+    private final long[] totals;
+    /** Amount of pixels rendered */
+    private final long pixels;
+    /** Wall-clock time of the render in nanoseconds */
+    private final long elapsedNanos;
+    /** The work of the threads */
+    private final List<ThreadWork> threads;
+
+    /**
+     * Create the metrics of a render
+     *
+     * @param totals       the totals of the counters
+     * @param pixels       amount of pixels rendered
+     * @param elapsedNanos wall-clock time of the render in nanoseconds
+     * @param threads      the work of the threads
+     */
+    private RenderMetrics(long[] totals, long pixels, long elapsedNanos, List<ThreadWork> threads) {
+        this.totals = totals;
+        this.pixels = pixels;
+        this.elapsedNanos = elapsedNanos;
+        this.threads = List.copyOf(threads);
+    }
+
+    /**
+     * The ray counters of the calling thread if counting is on
+     *
+     * @return the counters, null if counting is off
+     */
+    static RayCounters rays() {
+        return enabled ? RAYS.get() : null;
+    }
+
+    /**
+     * Start measuring a render - turn counting on
+     *
+     * @return the recorder of the render's tiles
+     */
+    static Recorder start() {
+        startCounting();
+        return new Recorder();
+    }
+
+    /**
+     * Turn counting on (the rays and the traversal work), for a measured
+     * render or another profiler of the counters
+     */
+    static void startCounting() {
+        if (MEASURING.incrementAndGet() == 1) {
+            enabled = true;
+            TraversalCounters.setEnabled(true);
+        }
+    }
+
+    /**
+     * Turn counting off unless another render is measured
+     */
+    static void stopCounting() {
+        if (MEASURING.decrementAndGet() == 0) {
+            enabled = false;
+            TraversalCounters.setEnabled(false);
+        }
+    }
+
+    /**
+     * The amount of rays traced by the calling thread so far (while counting)
+     *
+     * @return the amount of rays of all the categories
+     */
+    static long threadRays() {
+        RayCounters rays = RAYS.get();
+        return rays.primary + rays.shadow + rays.reflected + rays.refracted;
+    }
+
+    /**
+     * Recorder of the work of a measured render, per thread
+     */
+    static final class Recorder {
+        /** The start time of the render */
+        private final long start = System.nanoTime();
+        /** The work of each platform thread */
+        private final ConcurrentHashMap<Thread, Work> work = new ConcurrentHashMap<>();
+        /** The work of the slots of the virtual threads */
+        private final ConcurrentLinkedQueue<Work> slots = new ConcurrentLinkedQueue<>();
+        /** The slots of the virtual threads free to take a tile */
+        private final ConcurrentLinkedDeque<Work> freeSlots = new ConcurrentLinkedDeque<>();
+
+        /**
+         * Start the work on a tile in the calling thread
+         *
+         * @return the work of the thread, or of the slot of a virtual thread
+         */
+        Work beginTile() {
+            Thread current = Thread.currentThread();
+            Work thread;
+            if (!current.isVirtual())
+                thread = work.computeIfAbsent(current, key -> new Work(key.getName()));
+            else if ((thread = freeSlots.pollFirst()) == null) {
+                thread = new Work("virtual slot " + (slots.size() + 1));
+                slots.add(thread);
+            }
+            read(thread.mark);
+            return thread;
+        }
+
+        /**
+         * Finish the work on a tile in the calling thread - add the counters'
+         * differences from the tile's start to the thread's work
+         *
+         * @param thread the work of the thread
+         * @param pixels amount of pixels of the tile
+         */
+        void endTile(Work thread, int pixels) {
+            long[] now = new long[COUNTERS];
+            read(now);
+            for (int i = 0; i < COUNTERS; ++i) thread.sums[i] += now[i] - thread.mark[i];
+            thread.tiles++;
+            thread.pixels += pixels;
+            if (Thread.currentThread().isVirtual()) freeSlots.addFirst(thread);
+        }
+
+        /**
+         * Finish measuring the render - turn counting off unless another
+         * render is measured
+         *
+         * @return the metrics of the render
+         */
+        RenderMetrics finish() {
+            long elapsed = System.nanoTime() - start;
+            stopCounting();
+            long[] totals = new long[COUNTERS];
+            long pixels = 0;
+            List<Work> all = new ArrayList<>(work.values());
+            all.addAll(slots);
+            List<ThreadWork> threads = new ArrayList<>(all.size());
+            for (Work thread : all) {
+                for (int i = 0; i < COUNTERS; ++i) totals[i] += thread.sums[i];
+                pixels += thread.pixels;
+                threads.add(new ThreadWork(thread.name, thread.tiles, thread.pixels,
+                        thread.sums[PRIMARY] + thread.sums[SHADOW] + thread.sums[REFLECTED] + thread.sums[REFRACTED],
+                        thread.sums[NANOS]));
+            }
+            threads.sort((a, b) -> a.thread().compareTo(b.thread()));
+            return new RenderMetrics(totals, pixels, elapsed, threads);
+        }
+
+        /**
+         * Read the counters of the calling thread
+         *
+         * @param counters the array of the counters' values
+         */
+        private static void read(long[] counters) {
+            RayCounters rays = RAYS.get();
+            TraversalCounters traversal = TraversalCounters.current();
+            counters[PRIMARY] = rays.primary;
+            counters[SHADOW] = rays.shadow;
+            counters[REFLECTED] = rays.reflected;
+            counters[REFRACTED] = rays.refracted;
+            counters[BOX_TESTS] = traversal.getBoxTests();
+            counters[PRIMITIVE_TESTS] = traversal.getPrimitiveTests();
+            counters[NODE_VISITS] = traversal.getNodeVisits();
+            counters[NANOS] = System.nanoTime();
+        }
+    }
+
+    /**
+     * The work of a thread in a measured render - changed by the thread only
+     * (or by the virtual thread holding the slot)
+     */
+    static final class Work {
+        /** The name of the thread */
+        private final String name;
+        /** The counters' values at the start of the current tile */
+        private final long[] mark = new long[COUNTERS];
+        /** The sums of the counters' differences over the tiles */
+        private final long[] sums = new long[COUNTERS];
+        /** Amount of tiles rendered */
+        private long tiles = 0;
+        /** Amount of pixels rendered */
+        private long pixels = 0;
+
+        /**
+         * Create the work of a thread
+         *
+         * @param name the name of the thread
+         */
+        private Work(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * Amount of primary rays (camera rays, including anti-aliasing samples)
+     *
+     * @return the amount of rays
+     */
+    public long getPrimaryRays() {
+        return totals[PRIMARY];
+    }
+
+    /**
+     * Amount of shadow rays
+     *
+     * @return the amount of rays
+     */
+    public long getShadowRays() {
+        return totals[SHADOW];
+    }
+
+    /**
+     * Amount of reflected rays
+     *
+     * @return the amount of rays
+     */
+    public long getReflectedRays() {
+        return totals[REFLECTED];
+    }
+
+    /**
+     * Amount of refracted (transmitted) rays
+     *
+     * @return the amount of rays
+     */
+    public long getRefractedRays() {
+        return totals[REFRACTED];
+    }
+
+    /**
+     * Amount of rays of all the categories
+     *
+     * @return the amount of rays
+     */
+    public long getRays() {
+        return totals[PRIMARY] + totals[SHADOW] + totals[REFLECTED] + totals[REFRACTED];
+    }
+
+    /**
+     * Amount of bounding box tests
+     *
+     * @return the amount of tests
+     */
+    public long getBoxTests() {
+        return totals[BOX_TESTS];
+    }
+
+    /**
+     * Amount of primitive intersection tests
+     *
+     * @return the amount of tests
+     */
+    public long getPrimitiveTests() {
+        return totals[PRIMITIVE_TESTS];
+    }
+
+    /**
+     * Amount of BVH nodes visited
+     *
+     * @return the amount of nodes
+     */
+    public long getNodeVisits() {
+        return totals[NODE_VISITS];
+    }
+
+    /**
+     * Amount of pixels rendered
+     *
+     * @return the amount of pixels
+     */
+    public long getPixels() {
+        return pixels;
+    }
+
+    /**
+     * Wall-clock time of the render
+     *
+     * @return the time in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Throughput of the render
+     *
+     * @return millions of rays per second of wall-clock time
+     */
+    public double getMraysPerSecond() {
+        return elapsedNanos == 0 ? 0 : getRays() * 1e3 / elapsedNanos;
+    }
+
+    /**
+     * Balance of the work between the threads: the mean busy time of a thread
+     * divided by the busy time of the busiest thread
+     *
+     * @return the balance - 1 when the threads are equally busy
+     */
+    public double getWorkBalance() {
+        long max = 0;
+        long sum = 0;
+        for (ThreadWork thread : threads) {
+            max = Math.max(max, thread.busyNanos());
+            sum += thread.busyNanos();
+        }
+        return max == 0 ? 1 : (double) sum / threads.size() / max;
+    }
+
+    /**
+     * The work of the threads which rendered tiles, by thread name
+     *
+     * @return the work of the threads
+     */
+    public List<ThreadWork> getThreads() {
+        return threads;
+    }
+
+    /**
+     * The metrics as a JSON object
+     *
+     * @return the JSON text
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder(256 + threads.size() * 96);
+        json.append('{')
+                .append("\"elapsedMs\":").append(format(elapsedNanos / 1e6))
+                .append(",\"pixels\":").append(pixels)
+                .append(",\"rays\":{\"primary\":").append(getPrimaryRays())
+                .append(",\"shadow\":").append(getShadowRays())
+                .append(",\"reflected\":").append(getReflectedRays())
+                .append(",\"refracted\":").append(getRefractedRays())
+                .append(",\"total\":").append(getRays()).append('}')
+                .append(",\"mraysPerSecond\":").append(format(getMraysPerSecond()))
+                .append(",\"boxTests\":").append(getBoxTests())
+                .append(",\"primitiveTests\":").append(getPrimitiveTests())
+                .append(",\"nodeVisits\":").append(getNodeVisits())
+                .append(",\"workBalance\":").append(format(getWorkBalance()))
+                .append(",\"threads\":[");
+        for (int i = 0; i < threads.size(); ++i) {
+            ThreadWork thread = threads.get(i);
+            if (i > 0) json.append(',');
+            json.append("{\"thread\":\"").append(escape(thread.thread()))
+                    .append("\",\"tiles\":").append(thread.tiles())
+                    .append(",\"pixels\":").append(thread.pixels())
+                    .append(",\"rays\":").append(thread.rays())
+                    .append(",\"busyMs\":").append(format(thread.busyNanos() / 1e6)).append('}');
+        }
+        return json.append("]}").toString();
+    }
+
+    /**
+     * Write the metrics as JSON to a file
+     *
+     * @param file the file
+     */
+    public void writeJson(Path file) {
+        try {
+            Files.writeString(file, toJson(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException("I/O error in writing metrics to " + file, e);
+        }
+    }
+
+    /**
+     * Format a number for JSON
+     *
+     * @param value the number
+     * @return the number with 3 decimal places
+     */
+    static String format(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    /**
+     * Escape a string for JSON
+     *
+     * @param text the string
+     * @return the escaped string
+     */
+    static String escape(String text) {
+        StringBuilder escaped = new StringBuilder(text.length());
+        for (char c : text.toCharArray()) {
+            if (c == '"' || c == '\\') escaped.append('\\').append(c);
+            else if (c < ' ') escaped.append(String.format("\\u%04x", (int) c));
+            else escaped.append(c);
+        }
+        return escaped.toString();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+                "%d pixels in %.1f ms: %d rays (%d primary, %d shadow, %d reflected, %d refracted), "
+                        + "%.2f Mrays/s, %d box tests, %d primitive tests, %d nodes, %d threads balanced %.2f",
+                pixels, elapsedNanos / 1e6, getRays(), getPrimaryRays(), getShadowRays(), getReflectedRays(),
+                getRefractedRays(), getMraysPerSecond(), getBoxTests(), getPrimitiveTests(), getNodeVisits(),
+                threads.size(), getWorkBalance());
+    }
+}
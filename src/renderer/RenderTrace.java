@@ -0,0 +1,303 @@
+package renderer;
+
+import geometries.BVHBuilder;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Timeline trace of the work of renders: while a trace is started, the work of
+ * each thread is recorded as spans of time - the tiles rendered by each
+ * rendering thread, the renders, the phases of the BVH builds and the encoding
+ * and writing of the images. The trace is exported in the Chrome trace event
+ * format (for chrome://tracing or Perfetto), which shows the balance of the
+ * threads, the stragglers at the end of a render and the serial phases at a
+ * glance. Each span is also committed as a JFR event ({@code renderer.Span})
+ * when a flight recording enables it.<br/>
+ * Each thread records its spans into a list of its own. When no trace is
+ * started, a span costs a read of a volatile field.
+ */
+public final class RenderTrace implements AutoCloseable {
+    /** The started trace, null if none */
+    private static volatile RenderTrace active = null;
+
+    /** The start time of the trace */
+    private final long start = System.nanoTime();
+    /** The timeline of each thread */
+    private final ConcurrentHashMap<Thread, Timeline> timelines = new ConcurrentHashMap<>();
+    /** The identifier of the next thread's timeline */
+    private final AtomicInteger nextThread = new AtomicInteger(1);
+
+    /**
+     * A recorded span of time
+     *
+     * @param category the category of the work
+     * @param name     the name of the work
+     * @param detail   the details of the work, null if none
+     * @param begin    the start time in nanoseconds
+     * @param end      the end time in nanoseconds
+     */
+    private record Interval(String category, String name, String detail, long begin, long end) {
+    }
+
+    /**
+     * The spans of a thread - recorded by the thread only, and read when the
+     * trace is exported
+     */
+    private static final class Timeline {
+        /** The name of the thread */
+        private final String thread;
+        /** The identifier of the thread in the trace */
+        private final int id;
+        /** The spans of the thread */
+        private final List<Interval> intervals = new ArrayList<>();
+
+        /**
+         * Create the timeline of a thread
+         *
+         * @param thread the thread
+         * @param id     the identifier of the thread in the trace
+         */
+        private Timeline(Thread thread, int id) {
+            this.thread = thread.getName();
+            this.id = id;
+        }
+
+        /**
+         * Record a span
+         *
+         * @param interval the span
+         */
+        private synchronized void add(Interval interval) {
+            intervals.add(interval);
+        }
+
+        /**
+         * The spans recorded so far
+         *
+         * @return a copy of the spans
+         */
+        private synchronized List<Interval> intervals() {
+            return new ArrayList<>(intervals);
+        }
+    }
+
+    /**
+     * The JFR event of a span
+     */
+    @Name("renderer.Span")
+    @Label("Render Span")
+    @Category("Ray Tracer")
+    @Description("A span of the work of a render - a tile, a render, a BVH build phase or an image encoding")
+    static final class SpanEvent extends Event {
+        /** The category of the work */
+        @Label("Category")
+        String category;
+        /** The name of the work */
+        @Label("Name")
+        String name;
+        /** The details of the work */
+        @Label("Detail")
+        String detail;
+    }
+
+    /**
+     * A span of work in progress in a thread
+     */
+    static final class Span {
+        /** The timeline of the thread */
+        private final Timeline timeline;
+        /** The category of the work */
+        private final String category;
+        /** The name of the work */
+        private final String name;
+        /** The details of the work, null if none */
+        private final String detail;
+        /** The JFR event of the span */
+        private final SpanEvent event = new SpanEvent();
+        /** The start time */
+        private final long begin;
+
+        /**
+         * Start a span
+         *
+         * @param timeline the timeline of the thread
+         * @param category the category of the work
+         * @param name     the name of the work
+         * @param detail   the details of the work, null if none
+         */
+        private Span(Timeline timeline, String category, String name, String detail) {
+            this.timeline = timeline;
+            this.category = category;
+            this.name = name;
+            this.detail = detail;
+            event.begin();
+            begin = System.nanoTime();
+        }
+
+        /**
+         * End the span - record it in the trace and commit its JFR event
+         */
+        void end() {
+            long end = System.nanoTime();
+            timeline.add(new Interval(category, name, detail, begin, end));
+            event.end();
+            if (event.shouldCommit()) {
+                event.category = category;
+                event.name = name;
+                event.detail = detail;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Traces are created by {@link #start()}
+     */
+    private RenderTrace() {
+    }
+
+    /**
+     * Start tracing - one trace at a time
+     *
+     * @return the trace
+     * @throws IllegalStateException if a trace is started already
+     */
+    public static synchronized RenderTrace start() {
+        if (active != null) throw new IllegalStateException("A render trace is started already");
+        RenderTrace trace = new RenderTrace();
+        BVHBuilder.setPhaseListener((phase, objects) -> {
+            Span span = trace.span("bvh", phase, objects + " objects");
+            return span::end;
+        });
+        active = trace;
+        return trace;
+    }
+
+    /**
+     * Stop tracing - the spans in progress are still recorded when they end
+     */
+    @Override
+    public void close() {
+        synchronized (RenderTrace.class) {
+            if (active != this) return;
+            active = null;
+            BVHBuilder.setPhaseListener(null);
+        }
+    }
+
+    /**
+     * Start a span of work in the calling thread if a trace is started
+     *
+     * @param category the category of the work
+     * @param name     the name of the work
+     * @param detail   the details of the work, null if none
+     * @return the span, null if no trace is started
+     */
+    static Span begin(String category, String name, String detail) {
+        RenderTrace trace = active;
+        return trace == null ? null : trace.span(category, name, detail);
+    }
+
+    /**
+     * Start the span of a tile in the calling thread if a trace is started
+     *
+     * @param tile the tile
+     * @return the span, null if no trace is started
+     */
+    static Span beginTile(PixelManager.Tile tile) {
+        RenderTrace trace = active;
+        return trace == null ? null : trace.span("render", "tile",
+                tile.col0() + "," + tile.row0() + " - " + tile.col1() + "," + tile.row1());
+    }
+
+    /**
+     * End a span
+     *
+     * @param span the span, null if none was started
+     */
+    static void end(Span span) {
+        if (span != null) span.end();
+    }
+
+    /**
+     * Start a span of work in the calling thread
+     *
+     * @param category the category of the work
+     * @param name     the name of the work
+     * @param detail   the details of the work, null if none
+     * @return the span
+     */
+    private Span span(String category, String name, String detail) {
+        Timeline timeline = timelines.computeIfAbsent(Thread.currentThread(),
+                thread -> new Timeline(thread, nextThread.getAndIncrement()));
+        return new Span(timeline, category, name, detail);
+    }
+
+    /**
+     * Amount of spans recorded so far
+     *
+     * @return the amount of spans
+     */
+    public int getSpanCount() {
+        int count = 0;
+        for (Timeline timeline : timelines.values()) count += timeline.intervals().size();
+        return count;
+    }
+
+    /**
+     * The trace in the Chrome trace event format: a complete event per span,
+     * with its time in microseconds from the start of the trace, and the names
+     * of the threads as metadata events
+     *
+     * @return the JSON text
+     */
+    public String toJson() {
+        List<Timeline> threads = new ArrayList<>(timelines.values());
+        threads.sort((a, b) -> Integer.compare(a.id, b.id));
+        StringBuilder json = new StringBuilder(1024);
+        json.append("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+        boolean first = true;
+        for (Timeline timeline : threads) {
+            if (!first) json.append(',');
+            first = false;
+            json.append("\n{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":").append(timeline.id)
+                    .append(",\"args\":{\"name\":\"").append(RenderMetrics.escape(timeline.thread)).append("\"}}");
+            for (Interval interval : timeline.intervals()) {
+                json.append(",\n{\"name\":\"").append(RenderMetrics.escape(interval.name()))
+                        .append("\",\"cat\":\"").append(RenderMetrics.escape(interval.category()))
+                        .append("\",\"ph\":\"X\",\"ts\":").append(RenderMetrics.format((interval.begin() - start) / 1e3))
+                        .append(",\"dur\":").append(RenderMetrics.format((interval.end() - interval.begin()) / 1e3))
+                        .append(",\"pid\":1,\"tid\":").append(timeline.id);
+                if (interval.detail() != null)
+                    json.append(",\"args\":{\"detail\":\"").append(RenderMetrics.escape(interval.detail())).append("\"}");
+                json.append('}');
+            }
+        }
+        return json.append("\n]}").toString();
+    }
+
+    /**
+     * Write the trace in the Chrome trace event format to a file
+     *
+     * @param file the file
+     */
+    public void writeJson(Path file) {
+        try {
+            Files.writeString(file, toJson(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException("I/O error in writing a render trace to " + file, e);
+        }
+    }
+}
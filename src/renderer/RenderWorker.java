@@ -0,0 +1,194 @@
+package renderer;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Worker of distributed rendering (see {@link Camera.Builder#setWorkers}).<br/>
+ * A worker listens on a port. For each coordinator connection it receives the
+ * camera - with its ray tracer and the whole scene - once, replies with the
+ * amount of tiles it renders in parallel, and then renders the tiles it is
+ * sent and returns their pixels, in the order they are done.<br/>
+ * Protocol (object streams, coordinator first):
+ * <ol>
+ * <li>coordinator: the camera object</li>
+ * <li>worker: the amount of threads</li>
+ * <li>coordinator: tile number followed by its first column, first row,
+ * following column and following row - repeatedly, -1 for the end</li>
+ * <li>worker: tile number followed by the packed RGB of its pixels, row by row -
+ * for each tile</li>
+ * </ol>
+ * The camera is the only object a worker reads, and only the classes of the
+ * ray tracer's packages and the collections they hold may be read - any other
+ * class is rejected before it is created, and so is the connection (the worker
+ * replies -1 threads). The worker listens on the loopback address unless it is
+ * given an address to listen on, since the connections are not authenticated:
+ * listen on a network only within a trusted one.<br/>
+ * Run a worker process with:
+ * {@code java renderer.RenderWorker <port> [threads] [listening address]}
+ */
+public class RenderWorker implements Closeable {
+    /**
+     * The classes of the objects the camera consists of - anything else is
+     * rejected - and limits of the stream, far above the scenes of millions of
+     * triangles, so a stream cannot exhaust the memory of the worker
+     */
+    private static final ObjectInputFilter CAMERA_FILTER = ObjectInputFilter.Config.createFilter(
+            "maxdepth=1000;maxrefs=50000000;maxarray=100000000;maxbytes=4000000000;"
+                    + "renderer.*;geometries.*;primitives.*;lighting.*;scene.*;"
+                    + "java.lang.Enum;java.lang.Object;java.util.Random;java.util.LinkedList;java.util.ArrayList;"
+                    + "java.util.CollSer;java.util.ImmutableCollections$*;!*");
+
+    /** The listening socket */
+    private final ServerSocket server;
+    /** Amount of tiles rendered in parallel */
+    private final int threads;
+
+    /**
+     * Create a worker listening on a port of the loopback address - for
+     * coordinators on the same machine
+     * @param port    the port (0 for any free port)
+     * @param threads amount of tiles rendered in parallel
+     * @throws IOException if the port cannot be listened on
+     */
+    public RenderWorker(int port, int threads) throws IOException {
+        this(InetAddress.getLoopbackAddress(), port, threads);
+    }
+
+    /**
+     * Create a worker listening on a port of an address
+     * @param address the address to listen on (the connections are not
+     *                authenticated - use an address of a trusted network only)
+     * @param port    the port (0 for any free port)
+     * @param threads amount of tiles rendered in parallel
+     * @throws IOException if the port cannot be listened on
+     */
+    public RenderWorker(InetAddress address, int port, int threads) throws IOException {
+        if (address == null)
+            throw new IllegalArgumentException("Worker address must not be null");
+        if (threads < 1)
+            throw new IllegalArgumentException("Worker threads amount must be positive");
+        this.server = new ServerSocket(port, 0, address);
+        this.threads = threads;
+    }
+
+    /**
+     * Get the port the worker listens on
+     * @return the port
+     */
+    public int getPort() { return server.getLocalPort(); }
+
+    /**
+     * Get the address the worker listens on
+     * @return the address
+     */
+    public InetAddress getAddress() { return server.getInetAddress(); }
+
+    /**
+     * Serve the coordinators in a background (daemon) thread
+     * @return the worker itself
+     */
+    public RenderWorker start() {
+        Thread thread = new Thread(this::serve, "render-worker-" + getPort());
+        thread.setDaemon(true);
+        thread.start();
+        return this;
+    }
+
+    /**
+     * Serve the coordinators until the worker is closed - each connection in
+     * its own thread
+     */
+    public void serve() {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                Thread thread = new Thread(() -> handle(socket), "render-worker-job");
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                // the worker was closed
+            }
+        }
+    }
+
+    /**
+     * Render the tiles of a coordinator connection
+     * @param socket the connection
+     */
+    private void handle(Socket socket) {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try (socket) {
+            ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.flush();
+            ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(socket.getInputStream()));
+            in.setObjectInputFilter(CAMERA_FILTER);
+            Camera camera;
+            try {
+                camera = (Camera) in.readObject();
+            } catch (ObjectStreamException | ClassNotFoundException | ClassCastException e) {
+                out.writeInt(-1); // the camera is rejected
+                out.flush();
+                return;
+            }
+            out.writeInt(threads);
+            out.flush();
+
+            int tile;
+            while ((tile = in.readInt()) >= 0) {
+                int number = tile;
+                PixelManager.Tile bounds = new PixelManager.Tile(in.readInt(), in.readInt(), in.readInt(), in.readInt());
+                pool.execute(() -> send(socket, out, number, camera.renderTilePixels(bounds)));
+            }
+        } catch (IOException e) {
+            // the coordinator is gone - nothing to return the tiles to
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Return the pixels of a tile to the coordinator
+     * @param socket the connection - closed on failure
+     * @param out    the output stream of the connection
+     * @param tile   the tile number
+     * @param pixels the packed RGB of the tile's pixels
+     */
+    private static void send(Socket socket, ObjectOutputStream out, int tile, int[] pixels) {
+        try {
+            synchronized (out) {
+                out.writeInt(tile);
+                for (int pixel : pixels) out.writeInt(pixel);
+                out.flush();
+            }
+        } catch (IOException e) {
+            try { socket.close(); } catch (IOException ignored) { /* already broken */ }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+    }
+
+    /**
+     * Run a worker process
+     * @param args the port, and optionally the amount of threads (all the cores by default)
+     *             and the address to listen on (the loopback address by default)
+     * @throws IOException if the port cannot be listened on
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 3)
+            throw new IllegalArgumentException(
+                    "Usage: java renderer.RenderWorker <port> [threads] [listening address]");
+        int threads = args.length >= 2 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        InetAddress address = args.length == 3 ? InetAddress.getByName(args[2]) : InetAddress.getLoopbackAddress();
+        try (RenderWorker worker = new RenderWorker(address, Integer.parseInt(args[0]), threads)) {
+            worker.serve();
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package renderer;
+
+import geometries.Geometry;
+import primitives.Color;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.concurrent.atomic.DoubleAccumulator;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Temporal reprojection cache for camera animations over a static scene.<br/>
+ * The cache keeps the primary hit point and the color of each pixel of the
+ * previous frame whose color is view independent (diffuse surfaces - see
+ * {@link SimpleRayTracer}). A pixel of a new frame traces its primary ray
+ * only, projects the hit point into the previous frame's camera, and takes the
+ * color of the sample there when it is on the same side of the same geometry
+ * within the footprint of the pixel. The other pixels - disoccluded, view
+ * dependent (specular, reflective or transparent) or moved too far - are
+ * traced fully.<br/>
+ * The frames sharing a cache must be rendered one after another, and the scene
+ * must not change between them ({@link #clear()} drops the samples). The cache
+ * is used with the ray tracer {@link SimpleRayTracer} and without
+ * anti-aliasing. In validation mode each reused pixel is also traced fully and
+ * the difference is accumulated, to measure the error against full renders.
+ */
+public class ReprojectionCache {
+    /** Maximum distance of a reused sample from the pixel's center in the image, in pixels */
+    private static final double TOLERANCE_PIXELS = 0.75;
+
+    /** Horizontal resolution of the frames */
+    private int nX = 0;
+    /** Vertical resolution of the frames */
+    private int nY = 0;
+    /** The samples of the previous frame */
+    private Samples previous = null;
+    /** The samples of the frame being rendered */
+    private Samples current = null;
+    /** The view of the previous frame */
+    private View previousView = null;
+    /** The view of the frame being rendered */
+    private View currentView = null;
+
+    /** Flag of the validation mode */
+    private boolean validation = false;
+    /** Amount of pixels reused in the last frame */
+    private final LongAdder reused = new LongAdder();
+    /** Amount of pixels traced fully in the last frame */
+    private final LongAdder traced = new LongAdder();
+    /** Sum of the reused pixels' differences from full tracing in the last frame */
+    private final DoubleAdder errorSum = new DoubleAdder();
+    /** Maximum reused pixel's difference from full tracing in the last frame */
+    private final DoubleAccumulator errorMax = new DoubleAccumulator(Math::max, 0);
+
+    /**
+     * The view of a frame's camera - for projecting points into its pixels
+     * @param p0     the location of the camera
+     * @param vTo    the direction of the camera
+     * @param vUp    the up direction of the camera
+     * @param vRight the right direction of the camera
+     * @param scaleX pixels per unit of the view plane's width at unit distance
+     * @param scaleY pixels per unit of the view plane's height at unit distance
+     */
+    private record View(Point p0, Vector vTo, Vector vUp, Vector vRight, double scaleX, double scaleY) {
+        /**
+         * The view of a camera
+         * @param camera the camera
+         */
+        View(Camera camera) {
+            this(camera.getP0(), camera.getVTo(), camera.getVUp(), camera.getVRight(),
+                    camera.getDistance() * camera.getNx() / camera.getWidth(),
+                    camera.getDistance() * camera.getNy() / camera.getHeight());
+        }
+
+        /**
+         * Distance of a point along the direction of the camera
+         * @param  x the x of the point
+         * @param  y the y of the point
+         * @param  z the z of the point
+         * @return   the depth of the point
+         */
+        double depth(double x, double y, double z) {
+            return (x - p0.getX()) * vTo.getX() + (y - p0.getY()) * vTo.getY() + (z - p0.getZ()) * vTo.getZ();
+        }
+
+        /**
+         * The horizontal image coordinate of a point
+         * @param  x  the x of the point
+         * @param  y  the y of the point
+         * @param  z  the z of the point
+         * @param  nX horizontal resolution
+         * @return    the coordinate in pixels (0 at the center of the first column)
+         */
+        double imageX(double x, double y, double z, int nX) {
+            double right = (x - p0.getX()) * vRight.getX() + (y - p0.getY()) * vRight.getY()
+                    + (z - p0.getZ()) * vRight.getZ();
+            return right * scaleX / depth(x, y, z) + (nX - 1) / 2d;
+        }
+
+        /**
+         * The vertical image coordinate of a point
+         * @param  x  the x of the point
+         * @param  y  the y of the point
+         * @param  z  the z of the point
+         * @param  nY vertical resolution
+         * @return    the coordinate in pixels (0 at the center of the first row)
+         */
+        double imageY(double x, double y, double z, int nY) {
+            double up = (x - p0.getX()) * vUp.getX() + (y - p0.getY()) * vUp.getY() + (z - p0.getZ()) * vUp.getZ();
+            return -up * scaleY / depth(x, y, z) + (nY - 1) / 2d;
+        }
+
+        /**
+         * The index of the pixel a point is projected into
+         * @param  point the point
+         * @param  nX    horizontal resolution
+         * @param  nY    vertical resolution
+         * @return       the pixel index (row by row), -1 if the point is out of the view
+         */
+        int pixel(Point point, int nX, int nY) {
+            double x = point.getX(), y = point.getY(), z = point.getZ();
+            if (depth(x, y, z) <= 0) return -1;
+            long column = Math.round(imageX(x, y, z, nX));
+            long row = Math.round(imageY(x, y, z, nY));
+            return column < 0 || column >= nX || row < 0 || row >= nY ? -1 : (int) (row * nX + column);
+        }
+    }
+
+    /**
+     * The samples of a frame, by pixel (row by row)
+     */
+    private static final class Samples {
+        /** The geometry hit, null if no sample */
+        final Geometry[] geometries;
+        /** The coordinates of the hit points, three per pixel */
+        final double[] points;
+        /** The color of the pixel */
+        final Color[] colors;
+        /** Whether the ray hit the front of the geometry (against its normal) */
+        final boolean[] front;
+
+        /**
+         * Create empty samples
+         * @param pixels amount of pixels
+         */
+        Samples(int pixels) {
+            geometries = new Geometry[pixels];
+            points = new double[pixels * 3];
+            colors = new Color[pixels];
+            front = new boolean[pixels];
+        }
+
+        /**
+         * Store a sample
+         * @param index    the pixel index
+         * @param geometry the geometry hit
+         * @param x        the x of the hit point
+         * @param y        the y of the hit point
+         * @param z        the z of the hit point
+         * @param front    whether the ray hit the front of the geometry
+         * @param color    the color of the pixel
+         */
+        void set(int index, Geometry geometry, double x, double y, double z, boolean front, Color color) {
+            geometries[index] = geometry;
+            points[index * 3] = x;
+            points[index * 3 + 1] = y;
+            points[index * 3 + 2] = z;
+            this.front[index] = front;
+            colors[index] = color;
+        }
+    }
+
+    /**
+     * Set the validation mode: each reused pixel is also traced fully and the
+     * difference is accumulated (see {@link #getMeanError()} and {@link #getMaxError()})
+     *
+     * @param validation true to validate the reused pixels
+     * @return the cache
+     */
+    public ReprojectionCache setValidation(boolean validation) {
+        this.validation = validation;
+        return this;
+    }
+
+    /**
+     * Drop the samples - when the scene or the resolution changes
+     */
+    public void clear() {
+        previous = null;
+        current = null;
+        previousView = null;
+        currentView = null;
+        nX = 0;
+        nY = 0;
+    }
+
+    /**
+     * Amount of pixels reused in the last frame
+     *
+     * @return the amount of pixels
+     */
+    public long getReusedPixels() {
+        return reused.sum();
+    }
+
+    /**
+     * Amount of pixels traced fully in the last frame
+     *
+     * @return the amount of pixels
+     */
+    public long getTracedPixels() {
+        return traced.sum();
+    }
+
+    /**
+     * Mean difference of the reused pixels from full tracing in the last frame,
+     * in the 0..255 color scale - measured in validation mode only
+     *
+     * @return the mean difference
+     */
+    public double getMeanError() {
+        long count = reused.sum();
+        return count == 0 ? 0 : errorSum.sum() / count;
+    }
+
+    /**
+     * Maximum difference of a reused pixel from full tracing in the last frame,
+     * in the 0..255 color scale - measured in validation mode only
+     *
+     * @return the maximum difference
+     */
+    public double getMaxError() {
+        return errorMax.get();
+    }
+
+    /**
+     * Prepare the rendering of a frame
+     *
+     * @param camera the camera of the new frame
+     */
+    void beginFrame(Camera camera) {
+        if (camera.getNx() != nX || camera.getNy() != nY) {
+            clear();
+            nX = camera.getNx();
+            nY = camera.getNy();
+        }
+        current = new Samples(nX * nY);
+        currentView = new View(camera);
+        reused.reset();
+        traced.reset();
+        errorSum.reset();
+        errorMax.reset();
+    }
+
+    /**
+     * Finish the rendering of a frame - its samples become the previous frame's
+     */
+    void endFrame() {
+        previous = current;
+        previousView = currentView;
+        current = null;
+    }
+
+    /**
+     * Calculate the color of a pixel of the frame being rendered, reusing the
+     * sample of the previous frame where its primary hit is projected, when the
+     * sample is on the same surface close enough to the hit
+     *
+     * @param tracer the ray tracer
+     * @param ray    the ray through the pixel's center
+     * @param x      the x index of the pixel
+     * @param y      the y index of the pixel
+     * @return the color of the pixel
+     */
+    Color pixelColor(SimpleRayTracer tracer, Ray ray, int x, int y) {
+        int pixel = y * nX + x;
+        SimpleRayTracer.PrimaryHit hit = new SimpleRayTracer.PrimaryHit();
+        int candidate;
+        boolean found = tracer.findPrimaryHit(ray, hit); // the only traversal of the ray
+        if (previous != null && found
+                && (candidate = previousView.pixel(hit.point, nX, nY)) >= 0 && matches(candidate, hit, x, y)) {
+            Color color = previous.colors[candidate];
+            double[] points = previous.points;
+            current.set(pixel, hit.geometry, points[candidate * 3], points[candidate * 3 + 1],
+                    points[candidate * 3 + 2], previous.front[candidate], color);
+            reused.increment();
+            if (validation) {
+                double error = tracer.shadePrimaryHit(ray, hit).difference(color);
+                errorSum.add(error);
+                errorMax.accumulate(error);
+            }
+            return color;
+        }
+
+        Color color = tracer.shadePrimaryHit(ray, hit);
+        traced.increment();
+        if (hit.geometry != null && hit.viewIndependent)
+            current.set(pixel, hit.geometry, hit.point.getX(), hit.point.getY(), hit.point.getZ(),
+                    hit.vNormal < 0, color);
+        return color;
+    }
+
+    /**
+     * Check whether a primary hit matches a sample of the previous frame: the
+     * same side of the same geometry, and the point the sample's color was
+     * calculated at is projected within the tolerance from the pixel's center
+     *
+     * @param candidate the index of the sample
+     * @param hit       the primary hit
+     * @param x         the x index of the pixel
+     * @param y         the y index of the pixel
+     * @return true if the sample may be reused
+     */
+    private boolean matches(int candidate, SimpleRayTracer.PrimaryHit hit, int x, int y) {
+        if (hit.geometry != previous.geometries[candidate] || hit.vNormal == 0
+                || hit.vNormal < 0 != previous.front[candidate])
+            return false;
+        double[] points = previous.points;
+        double pX = points[candidate * 3];
+        double pY = points[candidate * 3 + 1];
+        double pZ = points[candidate * 3 + 2];
+        if (currentView.depth(pX, pY, pZ) <= 0) return false;
+        double dX = currentView.imageX(pX, pY, pZ, nX) - x;
+        double dY = currentView.imageY(pX, pY, pZ, nY) - y;
+        return dX * dX + dY * dY <= TOLERANCE_PIXELS * TOLERANCE_PIXELS;
+    }
+}
@@ -0,0 +1,117 @@
+package renderer;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streaming image file writer: the rows of the image are written in order, a
+ * band of rows at a time, so an image is written without being held in memory
+ * as a whole. The floating point format is written from the bottom row up and
+ * cannot be streamed.
+ */
+final class ScanlineWriter implements AutoCloseable {
+    /** Size of the buffer of the uncompressed formats' writing in bytes */
+    private static final int WRITE_BUFFER = 1 << 20;
+
+    /** The file format */
+    private final ImageFormat format;
+    /** The width of the image */
+    private final int nX;
+    /** The PNG encoder of the rows (PNG only) */
+    private final PngEncoder.RowWriter png;
+    /** The file channel (uncompressed formats only) */
+    private final FileChannel channel;
+    /** The buffer of the uncompressed formats' writing */
+    private final ByteBuffer buffer;
+
+    /**
+     * Create an image file and write its header
+     * @param  file   the file
+     * @param  format the file format
+     * @param  nX     the width of the image
+     * @param  nY     the height of the image
+     * @throws IOException on a writing error
+     * @throws IllegalArgumentException if the format cannot be streamed
+     */
+    ScanlineWriter(Path file, ImageFormat format, int nX, int nY) throws IOException {
+        if (format == ImageFormat.PFM)
+            throw new IllegalArgumentException("PFM rows are written bottom up and cannot be streamed");
+        this.format = format;
+        this.nX = nX;
+        if (format == ImageFormat.PNG) {
+            png = ImageWriter.PNG_ENCODER.open(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16), nX, nY);
+            channel = null;
+            buffer = null;
+            return;
+        }
+        png = null;
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        buffer = ByteBuffer.allocateDirect(WRITE_BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+        if (format == ImageFormat.PPM)
+            buffer.put(("P6\n" + nX + " " + nY + "\n255\n").getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Write the next rows of the image
+     * @param  pixels the packed RGB pixels of the rows, row by row
+     * @param  rows   amount of rows
+     * @throws IOException on a writing error
+     */
+    void write(int[] pixels, int rows) throws IOException {
+        int count = rows * nX;
+        if (png != null) {
+            png.write(pixels, rows);
+        } else if (format == ImageFormat.PPM) {
+            for (int i = 0; i < count; ++i) {
+                flush(3);
+                int rgb = pixels[i];
+                buffer.put((byte) (rgb >> 16)).put((byte) (rgb >> 8)).put((byte) rgb);
+            }
+        } else {
+            for (int i = 0; i < count; ) {
+                flush(Integer.BYTES);
+                int length = Math.min(count - i, buffer.remaining() / Integer.BYTES);
+                buffer.asIntBuffer().put(pixels, i, length);
+                buffer.position(buffer.position() + length * Integer.BYTES);
+                i += length;
+            }
+        }
+    }
+
+    /**
+     * Write the buffer to the file if it has no room for more bytes
+     * @param  bytes amount of bytes to be put next
+     * @throws IOException on a writing error
+     */
+    private void flush(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) return;
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Finish the image and close the file
+     * @throws IOException on a writing error
+     */
+    @Override
+    public void close() throws IOException {
+        if (png != null) {
+            png.close();
+            return;
+        }
+        try {
+            flush(WRITE_BUFFER);
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package renderer;
 
 
+import geometries.Geometry;
+import geometries.Intersectable.ClosestHit;
 import geometries.Intersectable.Intersection;
 import lighting.*;
 import primitives.*;
@@ -16,6 +18,8 @@ import static primitives.Util.isZero;
  * SimpleRayTracer class is the basic class for ray tracing
  */
 public class SimpleRayTracer extends RayTracerBase {
+    /** Version of the serialized form */
+    private static final long serialVersionUID = 1L;
 
     private static final double DELTA = 0.1;
     /** Shadow‐ray bias to prevent acne. */
@@ -36,6 +40,52 @@ public class SimpleRayTracer extends RayTracerBase {
      */
     private int gridResolution = 5;
 
+    /**
+     * The maximum recursion level of the reflected and refracted rays
+     */
+    private int maxLevel = MAX_CALC_COLOR_LEVEL;
+
+    /**
+     * The reusable hit records of a rendering thread: the closest hit tracker and
+     * one intersection record per recursion level, so tracing a ray allocates no
+     * record per candidate hit
+     */
+    private static final class HitRecords {
+        /** The closest hit tracker */
+        private final ClosestHit hit = new ClosestHit();
+        /** Intersection records by recursion level */
+        private final Intersection[] levels = new Intersection[MAX_CALC_COLOR_LEVEL + 1];
+
+        /**
+         * Create the records
+         */
+        private HitRecords() {
+            for (int i = 0; i < levels.length; ++i)
+                levels[i] = new Intersection();
+        }
+    }
+
+    /**
+     * The primary hit of a ray, as kept by the reprojection cache
+     */
+    static final class PrimaryHit {
+        /** The geometry hit (null if the ray missed) */
+        Geometry geometry;
+        /** The hit point */
+        Point point;
+        /** The dot product of the normal and the ray direction */
+        double vNormal;
+        /** True if the color of the point does not depend on the view direction */
+        boolean viewIndependent;
+        /** The closest intersection, in the thread's hit records - to be shaded before the thread traces again */
+        Intersection intersection;
+    }
+
+    /**
+     * The hit records per thread
+     */
+    private final transient ThreadLocal<HitRecords> hitRecords = ThreadLocal.withInitial(HitRecords::new);
+
     /**
      * Constructor to initialize the scene
      *
@@ -45,6 +95,30 @@ public class SimpleRayTracer extends RayTracerBase {
         super(scene);
     }
 
+    /**
+     * Rebuild the tracer after deserialization (in a render worker) with fresh
+     * per thread hit records
+     *
+     * @return a new tracer of the same scene with the same settings
+     */
+    private Object readResolve() {
+        return new SimpleRayTracer(scene).setSoftShadows(softShadows).setGridResolution(gridResolution)
+                .setMaxLevel(maxLevel);
+    }
+
+    /**
+     * A tracer of the same scene with other quality settings - for a render
+     * adjusting its quality without changing this tracer, which other cameras
+     * may share
+     *
+     * @param grid  the resolution of the soft shadows' grid
+     * @param level the maximum recursion level
+     * @return the new tracer
+     */
+    SimpleRayTracer withQuality(int grid, int level) {
+        return new SimpleRayTracer(scene).setSoftShadows(softShadows).setGridResolution(grid).setMaxLevel(level);
+    }
+
     /**
      * Sets whether soft shadows should be enabled or disabled.
      * Soft shadows create a more realistic lighting effect by simulating
@@ -73,18 +147,64 @@ public class SimpleRayTracer extends RayTracerBase {
 
 
     /**
-     * Finds the closest intersection of a ray with objects in the scene
+     * Sets the maximum recursion level of the reflected and refracted rays.
+     * A lower level trades reflections of reflections for speed.
      *
-     * @param ray The ray to trace
+     * @param level the maximum level, 1 for no reflected and refracted rays
+     * @return the current instance of SimpleRayTracer for method chaining
+     */
+    public SimpleRayTracer setMaxLevel(int level) {
+        if (level < 1 || level > MAX_CALC_COLOR_LEVEL)
+            throw new IllegalArgumentException("Recursion level must be between 1 and " + MAX_CALC_COLOR_LEVEL);
+        this.maxLevel = level;
+        return this;
+    }
+
+    /**
+     * Gets the maximum recursion level of the reflected and refracted rays
+     *
+     * @return the maximum level
+     */
+    public int getMaxLevel() {
+        return maxLevel;
+    }
+
+    /**
+     * Gets whether soft shadows are enabled
+     *
+     * @return true if soft shadows are enabled
+     */
+    public boolean isSoftShadows() {
+        return softShadows;
+    }
+
+    /**
+     * Gets the resolution of the grid used for soft shadow calculations
+     *
+     * @return the resolution of the grid
+     */
+    public int getGridResolution() {
+        return gridResolution;
+    }
+
+    /**
+     * Finds the closest intersection of a ray with objects in the scene.
+     * The traversal tracks the distance and the geometry only, the point, the
+     * normal and the material are calculated once for the closest hit, into the
+     * thread's record of the recursion level.
+     *
+     * @param ray   The ray to trace
+     * @param level The recursion level of the ray
      * @return The closest intersection or null if none exists
      */
-    private Intersection findClosestIntersection(Ray ray) {
+    private Intersection findClosestIntersection(Ray ray, int level) {
         try {
-            List<Intersection> intersections = scene.geometries.calculateIntersections(ray);
-            if (intersections == null) {
+            HitRecords records = hitRecords.get();
+            ClosestHit hit = records.hit.reset();
+            if (!scene.geometries.findClosestHit(ray, hit)) {
                 return null;
             }
-            return ray.findClosestIntersection(intersections);
+            return hit.fill(ray, records.levels[level]);
         } catch (IllegalArgumentException e) {
             // Handle zero vector case that can occur during intersection calculations
             return null;
@@ -108,15 +228,17 @@ public class SimpleRayTracer extends RayTracerBase {
          if (nv == 0) return Color.BLACK; // No contribution if the normal and ray direction are perpendicular
          Color color = intersection.geometry.getEmission();
          for (LightSource lightSource : scene.lights) {
-             List<Vector> vectorsL = new LinkedList<>();
              // Add the light source vector
              setLightSource(intersection, lightSource);
-             vectorsL.add(lightSource.getL(intersection.point));
-
+             List<Vector> vectorsL;
 
              // Generate a grid of vectors from the light source
              if (softShadows && lightSource instanceof PointLight pointLight) {
+                 vectorsL = new LinkedList<>();
+                 vectorsL.add(intersection.l);
                  vectorsL.addAll(pointLight.getLs(intersection.point, gridResolution));
+             } else {
+                 vectorsL = List.of(intersection.l);
              }
 
              Color colorBeam = Color.BLACK;
@@ -155,7 +277,7 @@ public class SimpleRayTracer extends RayTracerBase {
     private Color calcColor(Intersection intersection, Ray ray) {
         if (!preprocessIntersection(intersection, ray.getDirection())) return Color.BLACK;
         Color color = scene.ambientLight.getIntensity().scale(intersection.material.kA);
-        color = color.add(calcColor(intersection, MAX_CALC_COLOR_LEVEL, INITIAL_K.d1()));
+        color = color.add(calcColor(intersection, maxLevel, INITIAL_K.d1()));
         return color;
     }
 
@@ -181,12 +303,18 @@ public class SimpleRayTracer extends RayTracerBase {
      * @param level the current recursion level
      * @param k    the contribution factor
      * @param kx   the material's reflection or refraction coefficient
+     * @param reflected true for a reflected ray, false for a refracted one
      * @return the global lighting color contribution
      */
-    private Color calcColorGlobalEffect(Ray ray, int level, Double3 k, Double3 kx) {
+    private Color calcColorGlobalEffect(Ray ray, int level, Double3 k, Double3 kx, boolean reflected) {
         Double3 kkx = k.product(kx);
         if (kkx.lowerThan(MIN_CALC_COLOR_K)) return Color.BLACK;
-        Intersection intersection = findClosestIntersection(ray);
+        RenderMetrics.RayCounters rays = RenderMetrics.rays();
+        if (rays != null) {
+            if (reflected) rays.reflected++;
+            else rays.refracted++;
+        }
+        Intersection intersection = findClosestIntersection(ray, level - 1);
         if (intersection == null) return scene.background.scale(kx);
         return preprocessIntersection(intersection, ray.getDirection())
                 ? calcColor(intersection, level - 1, kkx.d1()).scale(kx) : Color.BLACK;
@@ -203,9 +331,9 @@ public class SimpleRayTracer extends RayTracerBase {
      */
     private Color calcGlobalEffects(Intersection intersection, int level, Double3 k) {
         return calcColorGlobalEffect(constractRefractedRay(intersection),
-                level, k, intersection.material.kT)
+                level, k, intersection.material.kT, false)
                 .add(calcColorGlobalEffect(constractReflectedRay(intersection),
-                        level, k, intersection.material.kR));
+                        level, k, intersection.material.kR, true));
     }
 
 
@@ -219,10 +347,55 @@ public class SimpleRayTracer extends RayTracerBase {
      */
     @Override
     public Color traceRay(Ray ray) {
-        var closestPoint = findClosestIntersection(ray);
+        var closestPoint = findClosestIntersection(ray, maxLevel);
         return closestPoint == null ? scene.background : calcColor(closestPoint, ray);
     }
 
+    /**
+     * Shades the primary hit found by {@link #findPrimaryHit} - the color of
+     * the ray as {@link #traceRay(Ray)} calculates it, without traversing the
+     * scene again - and sets its view independence. The color of a hit is view
+     * independent when the material has no specular, reflection or
+     * transparency factor - it is then the emission, the ambient light and the
+     * diffuse (shadowed) light of the point only.<br/>
+     * The hit must be shaded by the thread which found it, before it traces
+     * another ray.
+     *
+     * @param ray     the ray of the hit
+     * @param primary the primary hit
+     * @return the color of the ray
+     */
+    Color shadePrimaryHit(Ray ray, PrimaryHit primary) {
+        Intersection intersection = primary.intersection;
+        if (intersection == null) return scene.background;
+        Color color = calcColor(intersection, ray);
+        Material material = intersection.material;
+        primary.vNormal = intersection.vNormal;
+        primary.viewIndependent = material != null && material.kS.equals(Double3.ZERO)
+                && material.kR.equals(Double3.ZERO) && material.kT.equals(Double3.ZERO);
+        return color;
+    }
+
+    /**
+     * Finds the primary hit of a ray without shading it - see
+     * {@link #shadePrimaryHit}
+     *
+     * @param ray     the ray to trace
+     * @param primary the record of the primary hit to populate (the view
+     *                independence is not set)
+     * @return false if the ray missed
+     */
+    boolean findPrimaryHit(Ray ray, PrimaryHit primary) {
+        Intersection intersection = findClosestIntersection(ray, maxLevel);
+        primary.geometry = null;
+        primary.intersection = intersection;
+        if (intersection == null) return false;
+        primary.geometry = intersection.geometry;
+        primary.point = intersection.point;
+        primary.vNormal = alignZero(intersection.normal.dotProduct(ray.getDirection()));
+        return true;
+    }
+
     /**
      * Preprocesses the intersection data by setting the normal, ray direction, and dot product.
      *
@@ -233,7 +406,8 @@ public class SimpleRayTracer extends RayTracerBase {
     public boolean preprocessIntersection(Intersection intersection, Vector rayDir) {
 //        intersection.rayDir = rayDir.scale(-1);
         intersection.v = rayDir;
-        intersection.normal = intersection.geometry.getNormal(intersection.point);
+        if (intersection.normal == null) // not populated with the hit
+            intersection.normal = intersection.geometry.getNormal(intersection.point);
 //        intersection.scaleNR = alignZero(intersection.rayDir.dotProduct(intersection.normal));
         intersection.vNormal = alignZero(intersection.normal.dotProduct(intersection.v));
         return !isZero(intersection.vNormal) && intersection.material != null;
@@ -266,14 +440,18 @@ public class SimpleRayTracer extends RayTracerBase {
      * @return the specular component as Double3
      */
     private Double3 calcSpecular(Intersection intersection, Vector l ,double nl ) {
-        Vector n = intersection.normal.normalize();
-        Vector v = intersection.v.normalize(); // inverse of ray direction
+        Vector n = intersection.normal;
+        Vector v = intersection.v; // inverse of ray direction
 
-        // Calculate reflection vector R = L - 2 * (N·L) * N
-        Vector r = l.subtract(n.scale(2 * nl)).normalize();
+        // Calculate reflection vector R = L - 2 * (N·L) * N, by components -
+        // R is a unit vector since both L and N are
+        double nl2 = 2 * nl;
+        double rX = l.getX() - n.getX() * nl2;
+        double rY = l.getY() - n.getY() * nl2;
+        double rZ = l.getZ() - n.getZ() * nl2;
 
         // Calculate R·V (viewer direction)
-        double rv = r.dotProduct(v) * -1;
+        double rv = VectorMath.dot(rX, rY, rZ, v) * -1;
         if (rv <= 0)
             return Double3.ZERO; // no specular if angle > 90 degrees
 
@@ -308,8 +486,15 @@ public class SimpleRayTracer extends RayTracerBase {
      */
     private Double3 transparency(Intersection intersection, Vector vector) {
         Vector lightDirection = vector.scale(-1);/////////// -1
-        Vector delta = intersection.normal.scale(intersection.vNormal < 0 ? DELTA : -DELTA);
-        Ray shadowRay = new Ray(intersection.point.add(delta), lightDirection, intersection.normal);
+        Vector normal = intersection.normal;
+        Point point = intersection.point;
+        double delta = intersection.vNormal < 0 ? DELTA : -DELTA;
+        Point head = new Point(point.getX() + normal.getX() * delta,
+                point.getY() + normal.getY() * delta,
+                point.getZ() + normal.getZ() * delta);
+        Ray shadowRay = new Ray(head, lightDirection, normal);
+        RenderMetrics.RayCounters rays = RenderMetrics.rays();
+        if (rays != null) rays.shadow++;
         List<Intersection> shadowIntersections = scene.geometries.calculateIntersections(shadowRay);
 
         if (shadowIntersections == null) return Double3.ONE;
@@ -346,7 +531,7 @@ public class SimpleRayTracer extends RayTracerBase {
      * @return the refracted ray
      */
     private Ray constractRefractedRay(Intersection intersection) {
-        return new Ray(intersection.point, intersection.v, intersection.geometry.getNormal(intersection.point));
+        return new Ray(intersection.point, intersection.v, intersection.normal);
     }
 
     /**
@@ -357,9 +542,12 @@ public class SimpleRayTracer extends RayTracerBase {
      */
     private Ray constractReflectedRay(Intersection intersection) {
         Vector v = intersection.v;
-        Vector n = intersection.geometry.getNormal(intersection.point);
-        double vn = v.dotProduct(n);
-        return new Ray(intersection.point, v.subtract(n.scale(2 * vn)), n);
+        Vector n = intersection.normal;
+        double vn2 = 2 * v.dotProduct(n);
+        Vector r = VectorMath.unitVector(v.getX() - n.getX() * vn2,
+                v.getY() - n.getY() * vn2,
+                v.getZ() - n.getZ() * vn2);
+        return new Ray(intersection.point, r, n);
     }
 
 
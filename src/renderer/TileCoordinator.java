@@ -0,0 +1,248 @@
+package renderer;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Coordinator of distributed rendering: hands the tiles of the image out to
+ * {@link RenderWorker} processes over sockets and assembles their pixels.<br/>
+ * Each worker gets the camera (with the scene) once and then a few tiles at a
+ * time, so it is never idle waiting for the next tile. A worker which fails or
+ * does not return a tile within the timeout is dropped and its tiles go back to
+ * the queue. When the queue is empty, idle workers render copies of the tiles
+ * still being rendered by others (at most one copy per tile) - the first result
+ * wins, so a slow worker cannot hold the frame back. Tiles left when all the
+ * workers are gone are rendered locally.<br/>
+ * A camera which cannot be sent - not serializable, or rejected by a worker -
+ * is not a failing worker but a failing render: the render stops and reports
+ * it.
+ */
+class TileCoordinator {
+    /** Maximum amount of assignments of a tile while it is not done */
+    private static final int MAX_ASSIGNMENTS = 2;
+    /** Tiles in flight per worker thread */
+    private static final int TILES_PER_THREAD = 2;
+    /** Idle worker polling interval */
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    /** The camera rendering the image */
+    private final Camera camera;
+    /** The tiles of the image */
+    private final PixelManager pixelManager;
+    /** The image */
+    private final ImageWriter imageWriter;
+    /** The workers' addresses */
+    private final List<InetSocketAddress> workers;
+    /** Connection and tile timeout in milliseconds */
+    private final int timeout;
+    /** The checkpoint of the completed tiles (null if none) */
+    private final RenderCheckpoint checkpoint;
+
+    /** Tiles waiting for a worker */
+    private final ConcurrentLinkedDeque<Integer> pending = new ConcurrentLinkedDeque<>();
+    /** Per tile: 1 when its pixels were written */
+    private final AtomicIntegerArray done;
+    /** Per tile: amount of assignments to workers */
+    private final AtomicIntegerArray assignments;
+    /** Amount of tiles not done yet */
+    private final AtomicInteger remaining;
+    /** The open worker connections - closed when the image is done */
+    private final ConcurrentLinkedQueue<Socket> sockets = new ConcurrentLinkedQueue<>();
+    /** The failure of sending the camera, null if none */
+    private final AtomicReference<IllegalStateException> failure = new AtomicReference<>();
+
+    /**
+     * Prepare the distributed rendering of an image
+     * @param camera       the camera rendering the image
+     * @param pixelManager the tiles of the image
+     * @param imageWriter  the image
+     * @param workers      the workers' addresses
+     * @param timeout      connection and tile timeout in milliseconds
+     * @param checkpoint   the checkpoint of the completed tiles, which are not
+     *                     rendered again (null if none)
+     */
+    TileCoordinator(Camera camera, PixelManager pixelManager, ImageWriter imageWriter,
+                    List<InetSocketAddress> workers, int timeout, RenderCheckpoint checkpoint) {
+        this.camera = camera;
+        this.pixelManager = pixelManager;
+        this.imageWriter = imageWriter;
+        this.workers = workers;
+        this.timeout = timeout;
+        this.checkpoint = checkpoint;
+        int tiles = pixelManager.tilesCount();
+        done = new AtomicIntegerArray(tiles);
+        assignments = new AtomicIntegerArray(tiles);
+        remaining = new AtomicInteger(tiles);
+        for (int i = 0; i < tiles; ++i) {
+            PixelManager.Tile tile = pixelManager.tile(i);
+            if (checkpoint != null && checkpoint.isDone(tile)) {
+                done.set(i, 1);
+                remaining.decrementAndGet();
+                pixelManager.pixelsDone(tile.pixels());
+            } else {
+                pending.add(i);
+            }
+        }
+    }
+
+    /**
+     * Render the image on the workers, and locally what they did not render
+     * @throws IllegalStateException if the camera cannot be sent to the workers
+     */
+    void render() {
+        List<Thread> threads = new ArrayList<>(workers.size());
+        for (InetSocketAddress worker : workers)
+            threads.add(new Thread(() -> serve(worker), "render-coordinator-" + worker));
+        threads.forEach(Thread::start);
+        try {
+            for (Thread thread : threads) thread.join();
+        } catch (InterruptedException e) {
+            remaining.set(0); // stops the worker connections
+            closeConnections();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Rendering was interrupted", e);
+        }
+        if (failure.get() != null) throw failure.get();
+
+        for (int i = 0; i < pixelManager.tilesCount(); ++i)
+            if (done.get(i) == 0) {
+                PixelManager.Tile tile = pixelManager.tile(i);
+                complete(i, tile, camera.renderTilePixels(tile));
+            }
+    }
+
+    /**
+     * Feed a worker with tiles and collect their pixels until all the tiles are
+     * done or the worker fails
+     * @param worker the worker's address
+     */
+    private void serve(InetSocketAddress worker) {
+        Deque<Integer> inFlight = new ArrayDeque<>();
+        try (Socket socket = new Socket()) {
+            sockets.add(socket);
+            socket.connect(worker, timeout);
+            socket.setSoTimeout(timeout);
+            ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            try {
+                out.writeObject(camera);
+            } catch (ObjectStreamException e) {
+                fail(new IllegalStateException("The camera cannot be sent to the render workers", e));
+                return;
+            }
+            out.flush();
+            ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(socket.getInputStream()));
+            int threads = in.readInt();
+            if (threads < 0) {
+                fail(new IllegalStateException("Render worker " + worker + " rejected the camera"));
+                return;
+            }
+            int slots = threads * TILES_PER_THREAD;
+
+            while (remaining.get() > 0) {
+                Integer tile;
+                while (inFlight.size() < slots && (tile = nextTile(inFlight)) != null) {
+                    PixelManager.Tile bounds = pixelManager.tile(tile);
+                    out.writeInt(tile);
+                    out.writeInt(bounds.col0());
+                    out.writeInt(bounds.row0());
+                    out.writeInt(bounds.col1());
+                    out.writeInt(bounds.row1());
+                    inFlight.add(tile);
+                }
+                out.flush();
+                if (inFlight.isEmpty()) { // nothing to do now - maybe a failing worker returns tiles
+                    LockSupport.parkNanos(IDLE_NANOS);
+                    continue;
+                }
+
+                int number = in.readInt();
+                PixelManager.Tile bounds = pixelManager.tile(number);
+                int[] pixels = new int[bounds.pixels()];
+                for (int i = 0; i < pixels.length; ++i) pixels[i] = in.readInt();
+                inFlight.remove(number);
+                complete(number, bounds, pixels);
+            }
+            out.writeInt(-1);
+            out.flush();
+        } catch (IOException e) {
+            // the worker failed or is too slow - its tiles go back to the queue
+            for (Integer tile : inFlight) {
+                assignments.decrementAndGet(tile);
+                if (done.get(tile) == 0) pending.addFirst(tile);
+            }
+        }
+    }
+
+    /**
+     * Choose the next tile for a worker: a waiting tile, or else a copy of a
+     * tile being rendered by another worker
+     * @param inFlight the tiles the worker is rendering
+     * @return the tile number, or null if there is nothing to render
+     */
+    private Integer nextTile(Deque<Integer> inFlight) {
+        Integer tile;
+        while ((tile = pending.poll()) != null)
+            if (done.get(tile) == 0) {
+                assignments.incrementAndGet(tile);
+                return tile;
+            }
+
+        for (int i = 0; i < done.length(); ++i) {
+            int count = assignments.get(i);
+            if (done.get(i) == 0 && count < MAX_ASSIGNMENTS && !inFlight.contains(i)
+                    && assignments.compareAndSet(i, count, count + 1))
+                return i;
+        }
+        return null;
+    }
+
+    /**
+     * Write the pixels of a tile into the image, unless another worker was faster
+     * @param number the tile number
+     * @param tile   the tile
+     * @param pixels the packed RGB of the tile's pixels, row by row
+     */
+    private void complete(int number, PixelManager.Tile tile, int[] pixels) {
+        if (!done.compareAndSet(number, 0, 1)) return;
+        imageWriter.writePixels(tile.col0(), tile.row0(), tile.col1(), tile.row1(), pixels);
+        if (checkpoint != null) checkpoint.save(tile, imageWriter);
+        pixelManager.pixelsDone(tile.pixels());
+        if (remaining.decrementAndGet() == 0)
+            closeConnections(); // no need to wait for the copies still being rendered
+    }
+
+    /**
+     * Stop the render on a failure - the first failure is reported
+     * @param e the failure
+     */
+    private void fail(IllegalStateException e) {
+        failure.compareAndSet(null, e);
+        remaining.set(0); // stops the worker connections
+        closeConnections();
+    }
+
+    /**
+     * Close the workers' connections - unblocks the threads waiting for pixels
+     */
+    private void closeConnections() {
+        for (Socket socket : sockets) {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // closing anyway
+            }
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package renderer;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Out-of-core image for renders too large for the heap (or for a single
+ * array): the pixels are kept in a memory-mapped temporary file, so the
+ * operating system pages them in and out, and the image is streamed to its
+ * file as it is rendered.<br/>
+ * The image is divided into bands - rows of tiles. The packed RGB of a band's
+ * pixels are stored row by row, and the bands one after another, in several
+ * mappings of the file (a mapping is limited to 2GB). When the last tile of a
+ * band is done and all the bands above it are written, the band's rows are
+ * written to the image file by the {@link ScanlineWriter} - by the rendering
+ * thread completing it, while the other threads go on rendering. The temporary
+ * file is deleted when the image is closed.
+ */
+final class TiledImage implements AutoCloseable {
+    /** Maximum size of a mapping of the file in bytes */
+    private static final long SEGMENT_BYTES = 1L << 30;
+
+    /** Horizontal resolution of the image */
+    private final int nX;
+    /** Vertical resolution of the image */
+    private final int nY;
+    /** Size of the tiles' side in pixels - the height of a band */
+    private final int tileSize;
+    /** Amount of tile columns - the tiles of a band */
+    private final int tileCols;
+    /** Amount of bands */
+    private final int bands;
+    /** Amount of pixels of a band */
+    private final int bandPixels;
+    /** Amount of bands in a mapping */
+    private final int segmentBands;
+
+    /** The temporary file channel */
+    private final FileChannel channel;
+    /** The pixels in the mappings of the file */
+    private final IntBuffer[] segments;
+    /** The writer of the image file */
+    private final ScanlineWriter writer;
+
+    /** Amount of tiles done in each band */
+    private final AtomicIntegerArray bandTiles;
+    /** Lock of the writing of the bands */
+    private final ReentrantLock writing = new ReentrantLock();
+    /** The next band to write - changed under the writing lock */
+    private volatile int nextBand = 0;
+
+    /**
+     * Create the image and its file
+     * @param  file     the image file
+     * @param  format   the format of the image file
+     * @param  nX       horizontal resolution of the image
+     * @param  nY       vertical resolution of the image
+     * @param  tileSize the size of the tiles' side in pixels
+     * @throws IllegalArgumentException if a band is too large for a mapping, or
+     *                                  the format cannot be streamed
+     * @throws IllegalStateException    on an I/O error
+     */
+    TiledImage(Path file, ImageFormat format, int nX, int nY, int tileSize) {
+        this.nX       = nX;
+        this.nY       = nY;
+        this.tileSize = tileSize;
+        tileCols      = (nX + tileSize - 1) / tileSize;
+        bands         = (nY + tileSize - 1) / tileSize;
+        long bandBytes = (long) tileSize * nX * Integer.BYTES;
+        if (bandBytes > SEGMENT_BYTES)
+            throw new IllegalArgumentException("A row of tiles is too large for an out-of-core image");
+        bandPixels    = tileSize * nX;
+        segmentBands  = (int) (SEGMENT_BYTES / bandBytes);
+        bandTiles     = new AtomicIntegerArray(bands);
+
+        Path directory = file.toAbsolutePath().getParent();
+        try {
+            Path pixelsFile = Files.createTempFile(directory, "render", ".tiles");
+            channel = FileChannel.open(pixelsFile, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.DELETE_ON_CLOSE);
+            segments = new IntBuffer[(bands + segmentBands - 1) / segmentBands];
+            for (int s = 0; s < segments.length; ++s) {
+                long size = (long) Math.min(segmentBands, bands - s * segmentBands) * bandBytes;
+                segments[s] = channel.map(FileChannel.MapMode.READ_WRITE, s * segmentBands * bandBytes, size)
+                        .order(ByteOrder.nativeOrder()).asIntBuffer();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("I/O error in out-of-core image of " + file, e);
+        }
+        try {
+            writer = new ScanlineWriter(file, format, nX, nY);
+        } catch (IOException | RuntimeException e) {
+            closeChannel();
+            if (e instanceof RuntimeException runtime) throw runtime;
+            throw new IllegalStateException("I/O error in out-of-core image of " + file, e);
+        }
+    }
+
+    /**
+     * The index of a pixel in its mapping
+     * @param  x X axis index of the pixel
+     * @param  y Y axis index of the pixel
+     * @return   the index
+     */
+    private int index(int x, int y) {
+        return y / tileSize % segmentBands * bandPixels + y % tileSize * nX + x;
+    }
+
+    /**
+     * Write a pixel given as a packed RGB integer
+     * @param xIndex X axis index of the pixel
+     * @param yIndex Y axis index of the pixel
+     * @param rgb    packed RGB of the pixel
+     */
+    void writePixel(int xIndex, int yIndex, int rgb) {
+        segments[yIndex / tileSize / segmentBands].put(index(xIndex, yIndex), rgb & 0xFFFFFF);
+    }
+
+    /**
+     * Read a pixel
+     * @param  xIndex X axis index of the pixel
+     * @param  yIndex Y axis index of the pixel
+     * @return        packed RGB of the pixel
+     */
+    int getPixel(int xIndex, int yIndex) {
+        return segments[yIndex / tileSize / segmentBands].get(index(xIndex, yIndex));
+    }
+
+    /**
+     * Report a tile done - when its band is complete, write the complete bands
+     * following the bands written so far
+     * @param tile the tile
+     */
+    void tileDone(PixelManager.Tile tile) {
+        if (bandTiles.incrementAndGet(tile.row0() / tileSize) < tileCols) return;
+        // a thread writing already checks the next band again after it unlocks
+        do {
+            if (!writing.tryLock()) return;
+            try {
+                while (isNextBandDone()) writeBand(nextBand++);
+            } finally {
+                writing.unlock();
+            }
+        } while (isNextBandDone());
+    }
+
+    /**
+     * Check whether the next band to write is complete
+     * @return true if the next band may be written
+     */
+    private boolean isNextBandDone() {
+        int band = nextBand;
+        return band < bands && bandTiles.get(band) == tileCols;
+    }
+
+    /**
+     * Write a complete band to the image file
+     * @param band the band
+     */
+    private void writeBand(int band) {
+        RenderTrace.Span span = RenderTrace.begin("image", "write band", "band " + band);
+        int rows = Math.min(tileSize, nY - band * tileSize);
+        int[] pixels = new int[rows * nX];
+        segments[band / segmentBands].get(band % segmentBands * bandPixels, pixels);
+        try {
+            writer.write(pixels, rows);
+        } catch (IOException e) {
+            throw new IllegalStateException("I/O error in writing an out-of-core image", e);
+        } finally {
+            RenderTrace.end(span);
+        }
+    }
+
+    /**
+     * Check whether the whole image is written to its file
+     * @return true if all the bands are written
+     */
+    boolean isComplete() {
+        return nextBand == bands;
+    }
+
+    /**
+     * Finish the image file and delete the temporary file
+     * @throws IllegalStateException if the image was not rendered completely
+     *                               (its file is closed partial), or on an I/O error
+     */
+    @Override
+    public void close() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            throw new IllegalStateException("I/O error in writing an out-of-core image", e);
+        } finally {
+            closeChannel();
+        }
+    }
+
+    /**
+     * Close the temporary file, which deletes it
+     */
+    private void closeChannel() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new IllegalStateException("I/O error in out-of-core image", e);
+        }
+    }
+}
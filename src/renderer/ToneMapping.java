@@ -0,0 +1,38 @@
+package renderer;
+
+/**
+ * Tone mapping operators converting the high dynamic range color components
+ * of the frame buffer (0..255 for printed white, or more for lights) into the
+ * displayable range 0..255
+ */
+public enum ToneMapping {
+    /** Components above 255 are clipped to 255 - the classic conversion */
+    CLAMP {
+        @Override
+        double map(double component) { return Math.min(component, 255); }
+    },
+    /** Reinhard operator c / (1 + c) on the components scaled to 0..1 - no clipping */
+    REINHARD {
+        @Override
+        double map(double component) { return 255 * component / (255 + component); }
+    };
+
+    /**
+     * Map a color component into the displayable range
+     * @param  component the component (non-negative)
+     * @return           the mapped component in range 0..255
+     */
+    abstract double map(double component);
+
+    /**
+     * Convert a color into a packed 8 bit RGB integer
+     * @param  r        red component
+     * @param  g        green component
+     * @param  b        blue component
+     * @param  exposure the scale of the components before the mapping
+     * @return          the packed RGB
+     */
+    int toRgb(double r, double g, double b, double exposure) {
+        return (int) map(r * exposure) << 16 | (int) map(g * exposure) << 8 | (int) map(b * exposure);
+    }
+}
@@ -5,13 +5,17 @@ import lighting.AmbientLight;
 import lighting.LightSource;
 import primitives.Color;
 
+import java.io.Serializable;
 import java.util.LinkedList;
 import java.util.List;
 
 /**
  * Scene class represents a scene in the 3D space
  */
-public class Scene {
+public class Scene implements Serializable {
+    /** Version of the serialized form */
+    private static final long serialVersionUID = 1L;
+
     /**
      * name of the scene
      */
@@ -30,8 +34,10 @@ public class Scene {
     public Geometries geometries = new Geometries();
 
     /**
-     * lights in the scene
+     * lights in the scene (serializable lights in a serializable list for a
+     * distributed render)
      */
+    @SuppressWarnings("serial")
     public List<LightSource> lights = new LinkedList<>();
 
     /**
@@ -0,0 +1,144 @@
+package geometries;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import primitives.*;
+
+/**
+ * Testing the compiled (flat) BVH
+ */
+class LinearBVHTests {
+
+    /**
+     * Build a deterministic scene of spheres and triangles
+     * @return the geometries
+     */
+    private static List<Intersectable> createObjects() {
+        Random random = new Random(42);
+        List<Intersectable> objects = new ArrayList<>();
+        for (int i = 0; i < 60; ++i) {
+            Point p = new Point(random.nextGaussian() * 50, random.nextGaussian() * 50, random.nextGaussian() * 50);
+            if (i % 2 == 0)
+                objects.add(new Sphere(p, 2 + random.nextDouble() * 5));
+            else
+                objects.add(new Triangle(p, p.add(new Vector(8, 0, 1)), p.add(new Vector(0, 8, 2))));
+        }
+        return objects;
+    }
+
+    /**
+     * Sort points for comparing intersections found in different order
+     * @param points the points (null allowed)
+     * @return sorted list or an empty list
+     */
+    private static List<Point> sorted(List<Point> points) {
+        if (points == null) return List.of();
+        return points.stream().sorted(Comparator.comparingDouble(Point::getX)
+                .thenComparingDouble(Point::getY).thenComparingDouble(Point::getZ)).toList();
+    }
+
+    /**
+     * Test method for {@link geometries.LinearBVH#findIntersections(primitives.Ray)}.
+     */
+    @Test
+    void testFindIntersections() {
+        List<Intersectable> objects = createObjects();
+        Geometries flat = new Geometries(objects.toArray(new Intersectable[0]));
+        Intersectable doubleBVH = BVHBuilder.buildBVH(new ArrayList<>(objects), Precision.DOUBLE);
+        Intersectable floatBVH = BVHBuilder.buildBVH(new ArrayList<>(objects), Precision.FLOAT);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: both precisions find exactly the intersections of the plain collection
+        Random random = new Random(7);
+        int hits = 0;
+        for (int i = 0; i < 2000; ++i) {
+            Point head = new Point(random.nextGaussian() * 50, random.nextGaussian() * 50, 300);
+            Vector direction = new Vector(random.nextGaussian() * 0.1, random.nextGaussian() * 0.1, -1);
+            Ray ray = new Ray(head, direction);
+            List<Point> expected = sorted(flat.findIntersections(ray));
+            if (!expected.isEmpty()) ++hits;
+            assertEquals(expected, sorted(doubleBVH.findIntersections(ray)), "Double precision BVH lost intersections");
+            assertEquals(expected, sorted(floatBVH.findIntersections(ray)), "Single precision BVH lost intersections");
+        }
+        assertTrue(hits > 100, "The test rays should hit the scene");
+
+        // =============== Boundary Values Tests ==================
+        // TC10: ray grazing the bounds of a single sphere tangentially
+        Sphere sphere = new Sphere(new Point(0.1, 0.1, 0.1), 1);
+        Intersectable tangent = BVHBuilder.buildBVH(new ArrayList<>(List.of(sphere, new Sphere(new Point(10, 10, 10), 1))),
+                Precision.FLOAT);
+        Ray ray = new Ray(new Point(1.1, 0.1, 5), new Vector(0, 0, -1));
+        assertEquals(sorted(sphere.findIntersections(ray)), sorted(tangent.findIntersections(ray)),
+                "Tangent ray must behave as without BVH");
+
+        // TC11: ray through the shared edge of two batched triangles keeps their edge policy
+        Point p1 = new Point(0, 0, 0), p2 = new Point(2, 0, 0), p3 = new Point(0, 2, 0), p4 = new Point(2, 2, 0);
+        Ray edgeRay = new Ray(new Point(1, 1, 1), new Vector(0, 0, -1));
+        Intersectable strict = BVHBuilder.buildBVH(
+                new ArrayList<>(List.of(new Triangle(p1, p2, p3), new Triangle(p2, p4, p3))), Precision.DOUBLE);
+        assertNull(strict.findIntersections(edgeRay), "Strict triangles must not count the shared edge");
+        Intersectable watertight = BVHBuilder.buildBVH(new ArrayList<>(List.of(
+                new Triangle(p1, p2, p3).setWatertight(true), new Triangle(p2, p4, p3).setWatertight(true))),
+                Precision.DOUBLE);
+        assertEquals(2, watertight.findIntersections(edgeRay).size(),
+                "Each watertight triangle counts the shared edge");
+    }
+
+    /**
+     * Test method for {@link geometries.Intersectable#findClosestHit(primitives.Ray, Intersectable.ClosestHit)}.
+     */
+    @Test
+    void testFindClosestHit() {
+        List<Intersectable> objects = createObjects();
+        Geometries flat = new Geometries(objects.toArray(new Intersectable[0]));
+        Intersectable bvh = BVHBuilder.buildBVH(new ArrayList<>(objects), Precision.FLOAT);
+        Intersectable.ClosestHit hit = new Intersectable.ClosestHit();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the closest hit of the plain collection and of the compiled tree is
+        // the closest of all the intersections
+        Random random = new Random(11);
+        for (int i = 0; i < 2000; ++i) {
+            Point head = new Point(random.nextGaussian() * 50, random.nextGaussian() * 50, 300);
+            Ray ray = new Ray(head, new Vector(random.nextGaussian() * 0.1, random.nextGaussian() * 0.1, -1));
+            Intersectable.Intersection expected = ray.findClosestIntersection(flat.calculateIntersections(ray));
+            for (Intersectable geometries : List.of(flat, bvh)) {
+                boolean found = geometries.findClosestHit(ray, hit.reset());
+                assertEquals(expected != null, found, "Wrong closest hit existence");
+                if (expected == null) continue;
+                assertSame(expected.geometry, hit.geometry, "Wrong closest geometry");
+                assertEquals(head.distance(expected.point), hit.t, 1e-9, "Wrong closest distance");
+                Intersectable.Intersection record = hit.fill(ray, new Intersectable.Intersection());
+                assertEquals(expected.point, record.point, "Wrong closest point");
+                assertEquals(expected.geometry.getNormal(expected.point), record.normal, "Wrong normal");
+            }
+        }
+
+        // =============== Boundary Values Tests ==================
+        // TC10: a hit beyond the distance limit is ignored
+        Ray ray = new Ray(new Point(0.1, 0.1, 20), new Vector(0, 0, -1));
+        Sphere sphere = new Sphere(Point.ZERO, 1);
+        assertTrue(sphere.findClosestHit(ray, hit.reset()), "The sphere must be hit");
+        assertEquals(ray.getPoint(hit.t), hit.fill(ray, new Intersectable.Intersection()).point, "Wrong hit point");
+        assertFalse(sphere.findClosestHit(ray, hit.reset(10)), "A hit beyond the limit must be ignored");
+    }
+
+    /**
+     * Test method for {@link geometries.LinearBVH#LinearBVH(Intersectable, primitives.Precision)}.
+     */
+    @Test
+    void testConstructor() {
+        // TC01: the compiled tree keeps the precision and has the nodes of a binary tree
+        List<Intersectable> objects = createObjects();
+        LinearBVH bvh = (LinearBVH) BVHBuilder.buildBVH(objects, Precision.FLOAT);
+        assertEquals(Precision.FLOAT, bvh.getPrecision(), "Wrong precision");
+        assertEquals(1, bvh.getNodeCount() % 2, "A binary tree has an odd amount of nodes");
+    }
+}
@@ -4,6 +4,8 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+
 import primitives.*;
 
 /**
@@ -84,4 +86,66 @@ class PolygonTests {
          assertEquals(0d, result.dotProduct(pts[i].subtract(pts[i == 0 ? 3 : i - 1])), DELTA,
                       "Polygon's normal is not orthogonal to one of the edges");
    }
+   /** Test method for {@link geometries.Polygon#findIntersections(primitives.Ray)}. */
+   @Test
+   void testFindIntersections() {
+      Polygon pol = new Polygon(new Point(0, 0, 0), new Point(2, 0, 0), new Point(2, 2, 0), new Point(0, 2, 0));
+      Vector  v   = new Vector(0, 0, -1);
+
+      // ============ Equivalence Partitions Tests ==============
+      // TC01: Ray passes inside the polygon
+      assertEquals(List.of(new Point(1, 1, 0)), pol.findIntersections(new Ray(new Point(1, 1, 1), v)),
+                   "Ray inside the polygon - wrong intersection");
+
+      // TC02: Ray passes outside the polygon against an edge
+      assertNull(pol.findIntersections(new Ray(new Point(3, 1, 1), v)), "Ray outside against an edge");
+
+      // TC03: Ray passes outside the polygon against a vertex
+      assertNull(pol.findIntersections(new Ray(new Point(3, 3, 1), v)), "Ray outside against a vertex");
+
+      // TC04: Ray starts after the polygon
+      assertNull(pol.findIntersections(new Ray(new Point(1, 1, -1), v)), "Ray starts after the polygon");
+
+      // TC05: Ray passes inside a tiny polygon far from its head - the edge tolerance does not scale with the edges
+      Polygon tiny = new Polygon(new Point(0, 0, -10), new Point(1e-6, 0, -10), new Point(1e-6, 1e-6, -10),
+                                 new Point(0, 1e-6, -10));
+      assertNotNull(tiny.findIntersections(new Ray(Point.ZERO, new Vector(5e-7, 5e-7, -10))),
+                    "Ray inside a tiny polygon missed");
+
+      // =============== Boundary Values Tests ==================
+      // TC10: Ray passes through an edge
+      assertNull(pol.findIntersections(new Ray(new Point(2, 1, 1), v)), "Ray through an edge");
+
+      // TC11: Ray passes through a vertex
+      assertNull(pol.findIntersections(new Ray(new Point(2, 2, 1), v)), "Ray through a vertex");
+
+      // TC12: Ray passes on the continuation of an edge
+      assertNull(pol.findIntersections(new Ray(new Point(3, 0, 1), v)), "Ray on edge's continuation");
+
+      // TC13: Ray is parallel to the polygon
+      assertNull(pol.findIntersections(new Ray(new Point(1, 1, 1), new Vector(1, 0, 0))), "Parallel ray");
+   }
+
+   /** Test method for {@link geometries.Polygon#setWatertight(boolean)}. */
+   @Test
+   void testWatertight() {
+      // Two triangles sharing the edge (0,0,0)-(1,1,0) - ray exactly through the common edge
+      Point    a     = new Point(0, 0, 0);
+      Point    b     = new Point(1, 1, 0);
+      Triangle t1    = new Triangle(a, new Point(1, 0, 0), b);
+      Triangle t2    = new Triangle(b, new Point(0, 1, 0), a);
+      Ray      ray   = new Ray(new Point(0.3, 0.3, 1), new Vector(0, 0, -1));
+
+      // TC01: by default an edge is not a part of any of the triangles
+      assertNull(t1.findIntersections(ray), "Edge hit must be outside by default");
+      assertNull(t2.findIntersections(ray), "Edge hit must be outside by default");
+
+      // TC02: watertight - the ray must hit at least one of the triangles
+      t1.setWatertight(true);
+      t2.setWatertight(true);
+      var r1 = t1.findIntersections(ray);
+      var r2 = t2.findIntersections(ray);
+      assertTrue(r1 != null || r2 != null, "Ray leaked through the common edge");
+      assertEquals(new Point(0.3, 0.3, 0), (r1 != null ? r1 : r2).getFirst(), "Wrong edge intersection");
+   }
 }
@@ -0,0 +1,75 @@
+package renderer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.*;
+import lighting.*;
+import primitives.*;
+import scene.Scene;
+
+/**
+ * Testing animation rendering
+ */
+class AnimationTests {
+    /** The target of the turntable */
+    private final Point target = new Point(0, 0, -100);
+    /** Camera builder for the tests */
+    private final Camera.Builder cameraBuilder = Camera.getBuilder()
+            .setLocation(Point.ZERO).setDirection(target)
+            .setVpDistance(100).setVpSize(150, 150)
+            .setResolution(40, 30).setTileSize(8);
+
+    /**
+     * Test method for {@link renderer.Animation#render(Animation.FrameListener)}.
+     */
+    @Test
+    void testTurntable() {
+        Scene scene = new Scene("Animation test scene");
+        scene.geometries.add(new Sphere(target, 50).setEmission(new Color(30, 60, 200))
+                        .setMaterial(new Material().setKD(0.5).setKS(0.5).setShininess(30)),
+                new Sphere(new Point(60, 0, -100), 20).setEmission(new Color(200, 60, 30)));
+        scene.lights.add(new PointLight(new Color(500, 300, 0), new Point(-50, -50, 25)));
+        Camera camera = cameraBuilder.setRayTracer(scene, RayTracerType.SIMPLE).build();
+        Animation animation = Animation.turntable(camera, target, 6, 180);
+        AtomicIntegerArray done = new AtomicIntegerArray(6);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: each frame is the image of the camera rotated separately
+        animation.setPool(new ForkJoinPool(3)).render((frame, frameCamera) -> {
+            done.incrementAndGet(frame);
+            ImageWriter expected = Camera.rotateCameraAroundTarget(camera, target, 30d * frame, scene)
+                    .setTileSize(8).build().renderImage().getImageWriter();
+            ImageWriter actual = frameCamera.getImageWriter();
+            for (int y = 0; y < 30; ++y)
+                for (int x = 0; x < 40; ++x)
+                    assertEquals(expected.getPixel(x, y), actual.getPixel(x, y),
+                            "Wrong pixel " + x + "," + y + " of frame " + frame);
+        });
+        for (int i = 0; i < 6; ++i)
+            assertEquals(1, done.get(i), "Frame " + i + " not rendered once");
+
+        // TC02: the images of the frames are released once they are handed over
+        List<WeakReference<ImageWriter>> images = new CopyOnWriteArrayList<>();
+        animation.render((frame, frameCamera) -> images.add(new WeakReference<>(frameCamera.getImageWriter())));
+        assertEquals(6, images.size(), "Frames not rendered");
+        for (int i = 0; i < 10 && images.stream().anyMatch(image -> image.get() != null); ++i) System.gc();
+        assertTrue(images.stream().allMatch(image -> image.get() == null), "Frame images kept by the animation");
+
+        // =============== Boundary Values Tests ==================
+        // TC10: an animation without frames
+        assertThrows(IllegalArgumentException.class,
+                () -> Animation.turntable(camera, target, 0, 180), "Animation without frames");
+
+        // TC11: a frame rendered otherwise than every pixel at once in memory
+        Camera measured = cameraBuilder.setMetrics(true).build();
+        assertThrows(IllegalArgumentException.class, () -> new Animation(List.of(measured)), "Frame with metrics");
+    }
+}
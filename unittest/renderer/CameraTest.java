@@ -1,12 +1,15 @@
 package renderer;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import org.junit.jupiter.api.Test;
 
+import geometries.Sphere;
+import lighting.PointLight;
 import primitives.*;
 import renderer.*;
-//import scene.Scene;
+import scene.Scene;
 
 /**
  * Testing Camera Class
@@ -63,4 +66,45 @@ class CameraTest {
 
     }
 
-}
\ No newline at end of file
+    /**
+     * Test method for {@link renderer.Camera#renderImage()} interrupted.
+     */
+    @Test
+    void testInterruptedRender() throws InterruptedException {
+        Scene scene = new Scene("Interrupt test scene");
+        scene.geometries.add(new Sphere(new Point(0, 0, -100), 50).setEmission(new Color(30, 60, 200))
+                .setMaterial(new Material().setKD(0.5).setKS(0.5).setShininess(30)));
+        scene.lights.add(new PointLight(new Color(500, 300, 0), new Point(-50, -50, 25)));
+        Camera camera = cameraBuilder.setVpSize(150, 150).setVpDistance(100).setResolution(400, 400)
+                .setRayTracer(scene, RayTracerType.SIMPLE).setMultithreading(2).setTileSize(200).build();
+
+        // TC01: the rendering threads have ended when the interrupted render returns - large tiles keep them busy
+        Thread render = new Thread(() -> {
+            try {
+                camera.renderImage();
+            } catch (IllegalStateException interrupted) {
+                // expected unless the render completed first
+            }
+        });
+        render.start();
+        Thread.sleep(20);
+        render.interrupt();
+        render.join();
+        int[] pixels = pixels(camera.getImageWriter());
+        Thread.sleep(100);
+        assertArrayEquals(pixels, pixels(camera.getImageWriter()), "Image written after the render returned");
+    }
+
+    /**
+     * Copy the pixels of an image
+     * @param  image the image
+     * @return       the packed RGB of the pixels
+     */
+    private static int[] pixels(ImageWriter image) {
+        int[] pixels = new int[image.getNx() * image.getNy()];
+        for (int y = 0; y < image.getNy(); ++y)
+            for (int x = 0; x < image.getNx(); ++x)
+                pixels[y * image.getNx() + x] = image.getPixel(x, y);
+        return pixels;
+    }
+}
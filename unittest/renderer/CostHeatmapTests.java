@@ -0,0 +1,97 @@
+package renderer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.*;
+import lighting.*;
+import primitives.*;
+import scene.Scene;
+
+/**
+ * Testing the cost heatmap of a render
+ */
+class CostHeatmapTests {
+    /** Camera builder for the tests */
+    private final Camera.Builder cameraBuilder = Camera.getBuilder()
+            .setLocation(Point.ZERO).setDirection(new Vector(0, 0, -1), new Vector(0, 1, 0))
+            .setVpDistance(100).setVpSize(200, 200)
+            .setResolution(40, 30).setTileSize(8)
+            .setMultithreading(2);
+
+    /**
+     * Test method for {@link renderer.Camera#getHeatmap()}.
+     */
+    @Test
+    void testHeatmap() {
+        // a mirror sphere on the left and small spheres on the right, in a BVH
+        Scene scene = new Scene("Heatmap test scene");
+        List<Intersectable> objects = new ArrayList<>();
+        objects.add(new Sphere(new Point(-50, 0, -100), 30).setEmission(new Color(30, 60, 200))
+                .setMaterial(new Material().setKD(0.5).setKS(0.5).setShininess(30).setKr(0.5)));
+        for (int i = 0; i < 4; ++i)
+            objects.add(new Sphere(new Point(30 + 15 * i, 0, -100), 5).setEmission(new Color(100, 30, 30))
+                    .setMaterial(new Material().setKD(0.5)));
+        scene.geometries.add(BVHBuilder.buildBVH(objects, Precision.DOUBLE));
+        scene.lights.add(new PointLight(new Color(500, 300, 0), new Point(-50, -50, 25)));
+        cameraBuilder.setRayTracer(scene, RayTracerType.SIMPLE);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the rays of the pixels add up to the rays of the render, and the mirror costs more
+        Camera camera = cameraBuilder.setHeatmap(CostHeatmap.Metric.RAYS).setMetrics(true).build().renderImage();
+        CostHeatmap heatmap = camera.getHeatmap();
+        assertEquals(camera.getMetrics().getRays(), heatmap.getTotalCost(), "Rays do not add up");
+        assertEquals(1, heatmap.getCost(39, 0), "A primary ray for the background");
+        assertTrue(heatmap.getCost(10, 15) > 2, "Mirror pixel not more costly");
+
+        // TC02: the intersection tests of the pixels add up to those of the render
+        camera = cameraBuilder.setHeatmap(CostHeatmap.Metric.INTERSECTION_TESTS).build().renderImage();
+        RenderMetrics metrics = camera.getMetrics();
+        assertEquals(metrics.getBoxTests() + metrics.getPrimitiveTests(), camera.getHeatmap().getTotalCost(),
+                "Tests do not add up");
+        assertTrue(camera.getHeatmap().getCost(10, 15) > camera.getHeatmap().getCost(39, 0),
+                "Mirror pixel not more costly");
+
+        // TC03: the time of every pixel is measured, and the heatmap is written as an image
+        camera = cameraBuilder.setHeatmap(CostHeatmap.Metric.TIME).setMetrics(false).build().renderImage();
+        heatmap = camera.getHeatmap();
+        for (int y = 0; y < 30; ++y)
+            for (int x = 0; x < 40; ++x)
+                assertTrue(heatmap.getCost(x, y) > 0, "Pixel time not measured");
+        heatmap.writeToImage("heatmap test");
+        assertTrue(Files.exists(Path.of(System.getProperty("user.dir"), "images", "heatmap test.png")),
+                "Heatmap image not written");
+
+        // TC04: the heatmap is cleared for each render
+        camera = cameraBuilder.setHeatmap(CostHeatmap.Metric.RAYS).build().renderImage();
+        double total = camera.getHeatmap().getTotalCost();
+        assertEquals(total, camera.renderImage().getHeatmap().getTotalCost(), "Heatmap not cleared");
+
+        // TC05: a region render measures the pixels of the region again, and only them
+        camera = cameraBuilder.build().renderRegion(0, 8, 16, 24);
+        heatmap = camera.getHeatmap();
+        assertTrue(heatmap.getCost(10, 15) > 2, "Region pixel not measured");
+        assertEquals(0, heatmap.getCost(39, 0), "Pixel out of the region measured");
+        double region = heatmap.getTotalCost();
+        assertEquals(region, camera.renderRegion(0, 8, 16, 24).getHeatmap().getTotalCost(),
+                "Region not cleared");
+
+        // =============== Boundary Values Tests ==================
+        // TC10: the scale from black (no cost) to white (the top), limited
+        assertEquals(0x000000, CostHeatmap.scaleColor(0), "No cost not black");
+        assertEquals(0xFFFFFF, CostHeatmap.scaleColor(1), "Top not white");
+        assertEquals(0xFFFFFF, CostHeatmap.scaleColor(5), "Above the top not white");
+
+        // TC11: no heatmap unless measured, nor of an out-of-core render
+        assertNull(cameraBuilder.setHeatmap(null).build().renderImage().getHeatmap(), "Heatmap not measured");
+        assertThrows(IllegalArgumentException.class,
+                () -> cameraBuilder.setHeatmap(CostHeatmap.Metric.TIME).setOutOfCore(Path.of("heatmap.png"), ImageFormat.PNG).build(),
+                "Heatmap of an out-of-core render");
+    }
+}
@@ -0,0 +1,90 @@
+package renderer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.Sphere;
+import lighting.PointLight;
+import primitives.*;
+import scene.Scene;
+
+/**
+ * Testing the high dynamic range frame buffer
+ */
+class FrameBufferTests {
+
+    /**
+     * Test method for {@link renderer.FrameBuffer#setPixel(int, int, Color)}.
+     */
+    @Test
+    void testSetPixel() {
+        FrameBuffer frameBuffer = new FrameBuffer(3, 2);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the components are kept above 255 without limit
+        frameBuffer.setPixel(2, 1, new Color(200, 500, 5));
+        assertEquals(200, frameBuffer.getComponent(2, 1, 0), 1e-4, "Wrong red component");
+        assertEquals(500, frameBuffer.getComponent(2, 1, 1), 1e-4, "Wrong green component");
+        assertEquals(5, frameBuffer.getComponent(2, 1, 2), 1e-4, "Wrong blue component");
+
+        // TC02: setting a pixel again replaces its color
+        frameBuffer.setPixel(2, 1, new Color(7, 8, 9));
+        assertEquals(8, frameBuffer.getComponent(2, 1, 1), 1e-4, "Wrong green component after set");
+
+        // =============== Boundary Values Tests ==================
+        // TC10: a pixel never set is black
+        assertEquals(0, frameBuffer.getComponent(0, 0, 0), 1e-4, "Empty pixel is not black");
+        // TC11: clearing makes all the pixels black - also in an odd amount of floats
+        frameBuffer.clear();
+        assertEquals(0, frameBuffer.getComponent(2, 1, 2), 1e-4, "Pixel after clear");
+    }
+
+    /**
+     * Test method for {@link renderer.FrameBuffer#resolve}.
+     */
+    @Test
+    void testResolve() {
+        FrameBuffer frameBuffer = new FrameBuffer(2, 1);
+        ImageWriter imageWriter = new ImageWriter(2, 1);
+        frameBuffer.setPixel(0, 0, new Color(100, 255, 510));
+        frameBuffer.setPixel(1, 0, new Color(10, 20, 30));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: clamping limits the components to 255
+        frameBuffer.resolve(0, 0, 2, 1, imageWriter, ToneMapping.CLAMP, 1);
+        assertEquals(100 << 16 | 255 << 8 | 255, imageWriter.getPixel(0, 0), "Wrong clamped pixel");
+        assertEquals(10 << 16 | 20 << 8 | 30, imageWriter.getPixel(1, 0), "Wrong pixel in range");
+
+        // TC02: Reinhard maps 255 to half and keeps the brighter components apart
+        frameBuffer.resolve(0, 0, 1, 1, imageWriter, ToneMapping.REINHARD, 1);
+        assertEquals(71 << 16 | 127 << 8 | 170, imageWriter.getPixel(0, 0), "Wrong Reinhard pixel");
+
+        // TC03: the exposure scales the colors before the mapping
+        frameBuffer.resolve(1, 0, 2, 1, imageWriter, ToneMapping.CLAMP, 2);
+        assertEquals(20 << 16 | 40 << 8 | 60, imageWriter.getPixel(1, 0), "Wrong exposed pixel");
+    }
+
+    /**
+     * Test method for {@link renderer.Camera#renderImage()} with a frame buffer.
+     */
+    @Test
+    void testRenderClamped() {
+        Scene scene = new Scene("Frame buffer test scene");
+        scene.geometries.add(new Sphere(new Point(0, 0, -100), 50).setEmission(new Color(30, 60, 200))
+                .setMaterial(new Material().setKD(0.5).setKS(0.5).setShininess(30)));
+        scene.lights.add(new PointLight(new Color(500, 300, 0), new Point(-50, -50, 25)));
+        Camera.Builder builder = Camera.getBuilder()
+                .setLocation(Point.ZERO).setDirection(new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setVpDistance(100).setVpSize(150, 150).setResolution(30, 30)
+                .setRayTracer(scene, RayTracerType.SIMPLE);
+        ImageWriter direct = builder.build().renderImage().getImageWriter();
+        ImageWriter mapped = builder.setToneMapping(ToneMapping.CLAMP, 1).build().renderImage().getImageWriter();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: clamping the frame buffer gives the image rendered directly
+        for (int y = 0; y < 30; ++y)
+            for (int x = 0; x < 30; ++x)
+                assertEquals(direct.getPixel(x, y), mapped.getPixel(x, y), "Wrong pixel " + x + "," + y);
+    }
+}
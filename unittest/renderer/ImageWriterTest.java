@@ -3,6 +3,14 @@ package renderer;
 import org.junit.jupiter.api.Test;
 import primitives.Color;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class ImageWriterTest {
@@ -25,4 +33,71 @@ class ImageWriterTest {
             imageWriter.writeToImage("image");
         }, "Failed to create image");
     }
-}
\ No newline at end of file
+
+    /**
+     * Test method for {@link renderer.ImageWriter#writePixels(int, int, int, int, int[])}.
+     */
+    @Test
+    void testWritePixels() {
+        ImageWriter imageWriter = new ImageWriter(4, 3);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a rectangle written row by row is read back the same
+        int[] rgb = { 1, 2, 3, 4, 5, 6 };
+        imageWriter.writePixels(1, 1, 4, 3, rgb);
+        assertArrayEquals(rgb, imageWriter.getPixels(1, 1, 4, 3), "Wrong rectangle");
+        assertEquals(4, imageWriter.getPixel(1, 2), "Wrong pixel in the rectangle");
+        assertEquals(0, imageWriter.getPixel(0, 1), "Pixel outside the rectangle written");
+
+        // TC02: a color is converted as java.awt.Color converts it, above 255 limited to 255
+        imageWriter.writePixel(0, 0, new Color(12.7, 300, 0));
+        assertEquals(new Color(12.7, 300, 0).getColor().getRGB() & 0xFFFFFF, imageWriter.getPixel(0, 0),
+                "Wrong converted color");
+    }
+
+    /**
+     * Test method for {@link renderer.ImageWriter#writeToImage(String, ImageFormat, FrameBuffer)}
+     * and {@link renderer.ImageWriter#writeToImageAsync(String, ImageFormat, FrameBuffer)}.
+     * @throws Exception if a file cannot be read or written
+     */
+    @Test
+    void testFormats() throws Exception {
+        Path folder = Path.of(System.getProperty("user.dir"), "images");
+        ImageWriter imageWriter = new ImageWriter(2, 2);
+        imageWriter.writePixels(0, 0, 2, 2, new int[] { 0x102030, 0x405060, 0x708090, 0xA0B0C0 });
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: PPM - header and the RGB bytes row by row
+        imageWriter.writeToImage("formats", ImageFormat.PPM, null);
+        byte[] ppm = Files.readAllBytes(folder.resolve("formats.ppm"));
+        byte[] header = "P6\n2 2\n255\n".getBytes(StandardCharsets.US_ASCII);
+        assertArrayEquals(header, Arrays.copyOf(ppm, header.length), "Wrong PPM header");
+        assertEquals(header.length + 12, ppm.length, "Wrong PPM size");
+        assertEquals((byte) 0x40, ppm[header.length + 3], "Wrong PPM pixel");
+
+        // TC02: RAW - the packed pixels little-endian
+        imageWriter.writeToImage("formats", ImageFormat.RAW, null);
+        ByteBuffer raw = ByteBuffer.wrap(Files.readAllBytes(folder.resolve("formats.raw")))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(16, raw.capacity(), "Wrong RAW size");
+        assertEquals(0xA0B0C0, raw.getInt(12), "Wrong RAW pixel");
+
+        // TC03: PFM of the frame buffer - bottom row first, unlimited components
+        FrameBuffer hdr = new FrameBuffer(2, 2);
+        hdr.setPixel(0, 1, new Color(510, 255, 0));
+        imageWriter.writeToImage("formats", ImageFormat.PFM, hdr);
+        byte[] pfm = Files.readAllBytes(folder.resolve("formats.pfm"));
+        header = "PF\n2 2\n-1.0\n".getBytes(StandardCharsets.US_ASCII);
+        assertArrayEquals(header, Arrays.copyOf(pfm, header.length), "Wrong PFM header");
+        ByteBuffer floats = ByteBuffer.wrap(pfm, header.length, 24).slice().order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(2f, floats.getFloat(0), 1e-6, "Wrong PFM red");
+        assertEquals(1f, floats.getFloat(4), 1e-6, "Wrong PFM green");
+
+        // TC04: writing in the background writes the pixels as they were when called
+        CompletableFuture<Void> written = imageWriter.writeToImageAsync("formatsAsync", ImageFormat.RAW, null);
+        imageWriter.writePixel(1, 1, 0);
+        written.get();
+        raw = ByteBuffer.wrap(Files.readAllBytes(folder.resolve("formatsAsync.raw"))).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(0xA0B0C0, raw.getInt(12), "Pixel changed after the background writing started");
+    }
+}
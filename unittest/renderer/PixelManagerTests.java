@@ -0,0 +1,75 @@
+package renderer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testing the tile scheduler of the renderer
+ */
+class PixelManagerTests {
+
+    /**
+     * Count how many times each pixel is handed out in the tiles
+     * @param manager the pixel manager
+     * @param rows    amount of pixel rows
+     * @param cols    amount of pixel columns
+     * @return the counters of the pixels
+     */
+    private static int[][] cover(PixelManager manager, int rows, int cols) {
+        int[][] counters = new int[rows][cols];
+        PixelManager.Tile tile;
+        while ((tile = manager.nextTile()) != null)
+            for (int row = tile.row0(); row < tile.row1(); ++row)
+                for (int col = tile.col0(); col < tile.col1(); ++col)
+                    ++counters[row][col];
+        return counters;
+    }
+
+    /**
+     * Test method for {@link renderer.PixelManager#nextTile()}.
+     */
+    @Test
+    void testNextTile() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: tiles not dividing the image cover every pixel exactly once
+        PixelManager manager = new PixelManager(37, 50, 8);
+        assertEquals(5 * 7, manager.tilesCount(), "Wrong amount of tiles");
+        for (int[] row : cover(manager, 37, 50))
+            for (int counter : row)
+                assertEquals(1, counter, "Each pixel must be rendered exactly once");
+        assertNull(manager.nextTile(), "No tiles are left");
+
+        // TC02: the tiles are handed out in Morton order
+        manager = new PixelManager(32, 32, 8);
+        assertEquals(new PixelManager.Tile(0, 0, 8, 8), manager.nextTile(), "Wrong 1st tile");
+        assertEquals(new PixelManager.Tile(8, 0, 16, 8), manager.nextTile(), "Wrong 2nd tile");
+        assertEquals(new PixelManager.Tile(0, 8, 8, 16), manager.nextTile(), "Wrong 3rd tile");
+        assertEquals(new PixelManager.Tile(8, 8, 16, 16), manager.nextTile(), "Wrong 4th tile");
+        assertEquals(new PixelManager.Tile(16, 0, 24, 8), manager.nextTile(), "Wrong 5th tile");
+
+        // TC03: the tiles are handed out row by row in scanline order
+        manager = new PixelManager(32, 20, 8, true);
+        assertEquals(new PixelManager.Tile(0, 0, 8, 8), manager.nextTile(), "Wrong 1st tile");
+        assertEquals(new PixelManager.Tile(8, 0, 16, 8), manager.nextTile(), "Wrong 2nd tile");
+        assertEquals(new PixelManager.Tile(16, 0, 20, 8), manager.nextTile(), "Wrong 3rd tile");
+        assertEquals(new PixelManager.Tile(0, 8, 8, 16), manager.nextTile(), "Wrong 4th tile");
+
+        // TC04: the tiles of a region are the tiles of the image's grid meeting it, cut to it
+        manager = new PixelManager(new PixelManager.Tile(5, 9, 20, 17), 8, true);
+        assertEquals(2 * 3, manager.tilesCount(), "Wrong amount of region tiles");
+        assertEquals(new PixelManager.Tile(5, 9, 8, 16), manager.nextTile(), "Wrong 1st region tile");
+        assertEquals(new PixelManager.Tile(8, 9, 16, 16), manager.nextTile(), "Wrong 2nd region tile");
+        assertEquals(new PixelManager.Tile(16, 9, 20, 16), manager.nextTile(), "Wrong 3rd region tile");
+        assertEquals(new PixelManager.Tile(5, 16, 8, 17), manager.nextTile(), "Wrong 4th region tile");
+
+        // =============== Boundary Values Tests ==================
+        // TC10: a tile larger than the image is cut to the image
+        manager = new PixelManager(3, 5, 16);
+        assertEquals(new PixelManager.Tile(0, 0, 5, 3), manager.nextTile(), "Wrong single tile");
+        assertNull(manager.nextTile(), "There is only one tile");
+
+        // TC11: tile size must be positive
+        assertThrows(IllegalArgumentException.class, () -> new PixelManager(3, 5, 0), "Zero tile size");
+    }
+}
@@ -0,0 +1,121 @@
+package renderer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.zip.Adler32;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testing the parallel PNG encoder
+ */
+class PngEncoderTests {
+    /** The encoder */
+    private final PngEncoder encoder = new PngEncoder(4);
+
+    /**
+     * Create an image of gradients with noise - compressible, but not trivially
+     * @param  nX the width
+     * @param  nY the height
+     * @return    the packed RGB pixels
+     */
+    private static int[] image(int nX, int nY) {
+        Random random = new Random(7);
+        int[] pixels = new int[nX * nY];
+        for (int y = 0; y < nY; ++y)
+            for (int x = 0; x < nX; ++x)
+                pixels[y * nX + x] = (x & 0xFF) << 16 | (y & 0xFF) << 8 | random.nextInt(8) + (x + y & 0x7F);
+        return pixels;
+    }
+
+    /**
+     * Encode an image and decode it by ImageIO
+     * @param  pixels the packed RGB pixels
+     * @param  nX     the width
+     * @param  nY     the height
+     * @return        the decoded image
+     * @throws IOException on an encoding error
+     */
+    private BufferedImage roundTrip(int[] pixels, int nX, int nY) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        encoder.write(out, pixels, nX, nY);
+        return ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    /**
+     * Test method for {@link renderer.PngEncoder#write(java.io.OutputStream, int[], int, int)}.
+     * @throws IOException on an encoding error
+     */
+    @Test
+    void testWrite() throws IOException {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: an image of many strips is decoded to the same pixels
+        int nX = 700, nY = 1300;
+        int[] pixels = image(nX, nY);
+        BufferedImage decoded = roundTrip(pixels, nX, nY);
+        assertEquals(nX, decoded.getWidth(), "Wrong width");
+        assertEquals(nY, decoded.getHeight(), "Wrong height");
+        for (int y = 0; y < nY; ++y)
+            for (int x = 0; x < nX; ++x)
+                assertEquals(pixels[y * nX + x], decoded.getRGB(x, y) & 0xFFFFFF, "Wrong pixel " + x + "," + y);
+
+        // =============== Boundary Values Tests ==================
+        // TC10: a single pixel
+        assertEquals(0x123456, roundTrip(new int[] { 0x123456 }, 1, 1).getRGB(0, 0) & 0xFFFFFF,
+                "Wrong single pixel");
+    }
+
+    /**
+     * Test method for {@link renderer.PngEncoder#combineAdler(long, long, long)}.
+     */
+    @Test
+    void testCombineAdler() {
+        byte[] data = new byte[200_000];
+        new Random(3).nextBytes(data);
+        Adler32 whole = new Adler32();
+        whole.update(data);
+        Adler32 first = new Adler32();
+        first.update(data, 0, 70_000);
+        Adler32 second = new Adler32();
+        second.update(data, 70_000, 130_000);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the checksums of two parts combine to the checksum of the whole
+        assertEquals(whole.getValue(), PngEncoder.combineAdler(first.getValue(), second.getValue(), 130_000),
+                "Wrong combined checksum");
+    }
+
+    /**
+     * Compare the encoding time with ImageIO on a large image
+     * @throws IOException on an encoding error
+     */
+    @Test
+    void benchmarkAgainstImageIO() throws IOException {
+        int nX = 4000, nY = 3000;
+        int[] pixels = image(nX, nY);
+        BufferedImage image = new BufferedImage(nX, nY, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, nX, nY, pixels, 0, nX);
+
+        ByteArrayOutputStream imageIO = new ByteArrayOutputStream();
+        long start = System.nanoTime();
+        ImageIO.write(image, "png", imageIO);
+        long imageIOTime = System.nanoTime() - start;
+
+        ByteArrayOutputStream parallel = new ByteArrayOutputStream();
+        start = System.nanoTime();
+        encoder.write(parallel, pixels, nX, nY);
+        long parallelTime = System.nanoTime() - start;
+
+        System.out.printf("PNG %dx%d: ImageIO %d ms, %d bytes; parallel %d ms, %d bytes%n", nX, nY,
+                imageIOTime / 1_000_000, imageIO.size(), parallelTime / 1_000_000, parallel.size());
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(parallel.toByteArray()));
+        assertEquals(pixels[nX * nY - 1], decoded.getRGB(nX - 1, nY - 1) & 0xFFFFFF, "Wrong last pixel");
+    }
+}
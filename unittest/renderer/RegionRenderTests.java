@@ -0,0 +1,71 @@
+package renderer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.*;
+import lighting.*;
+import primitives.*;
+import scene.Scene;
+
+/**
+ * Testing rendering of a region of the image again after a change of the scene
+ */
+class RegionRenderTests {
+    /** Camera builder for the tests */
+    private final Camera.Builder cameraBuilder = Camera.getBuilder()
+            .setLocation(Point.ZERO).setDirection(new Vector(0, 0, -1), new Vector(0, 1, 0))
+            .setVpDistance(100).setVpSize(150, 150)
+            .setResolution(70, 50).setTileSize(8);
+
+    /**
+     * Test method for {@link renderer.Camera#renderRegion(int, int, int, int, Camera.PixelMask)}.
+     */
+    @Test
+    void testRenderRegion() {
+        Sphere sphere = new Sphere(new Point(0, 0, -100), 50);
+        Scene scene = new Scene("Region test scene");
+        scene.geometries.add(sphere.setMaterial(new Material().setKD(0.5).setKS(0.5).setShininess(30)));
+        scene.lights.add(new PointLight(new Color(500, 300, 0), new Point(-50, -50, 25)));
+        cameraBuilder.setRayTracer(scene, RayTracerType.SIMPLE);
+
+        sphere.setEmission(new Color(30, 60, 200));
+        ImageWriter before = cameraBuilder.build().renderImage().getImageWriter();
+        sphere.setEmission(new Color(200, 60, 30));
+        ImageWriter after = cameraBuilder.build().renderImage().getImageWriter();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the region gets the pixels of the changed scene and the rest keeps the old ones,
+        // in each mode, with and without passes and a mask
+        Camera.PixelMask diagonal = (x, y) -> (x + y) % 2 == 0;
+        for (int threads : new int[] { 0, 3, -4 })
+            for (int stride : new int[] { 1, 4 })
+                for (Camera.PixelMask mask : new Camera.PixelMask[] { null, diagonal }) {
+                    sphere.setEmission(new Color(30, 60, 200));
+                    Camera camera = cameraBuilder.setMultithreading(threads).setProgressive(stride, null).build()
+                            .renderImage();
+                    sphere.setEmission(new Color(200, 60, 30));
+                    ImageWriter patched = camera.renderRegion(13, 5, 41, 30, mask).getImageWriter();
+                    for (int y = 0; y < 50; ++y)
+                        for (int x = 0; x < 70; ++x) {
+                            boolean inside = x >= 13 && x < 41 && y >= 5 && y < 30
+                                    && (mask == null || mask.contains(x, y));
+                            assertEquals((inside ? after : before).getPixel(x, y), patched.getPixel(x, y),
+                                    "Wrong pixel " + x + "," + y + " threads " + threads + " stride " + stride);
+                        }
+                }
+
+        // =============== Boundary Values Tests ==================
+        // TC10: the region must be inside the image
+        Camera camera = cameraBuilder.setMultithreading(0).setProgressive(1, null).build();
+        assertThrows(IllegalArgumentException.class, () -> camera.renderRegion(60, 0, 71, 10),
+                "Region out of the image");
+        // TC11: the region must not be empty
+        assertThrows(IllegalArgumentException.class, () -> camera.renderRegion(10, 10, 10, 20),
+                "Empty region");
+        // TC12: the progressive stride must divide the tile size - the preview blocks are filled within the tiles
+        assertThrows(IllegalArgumentException.class, () -> cameraBuilder.setProgressive(16, null).build(),
+                "Stride larger than the tiles");
+    }
+}
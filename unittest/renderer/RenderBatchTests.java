@@ -0,0 +1,80 @@
+package renderer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.*;
+import lighting.*;
+import primitives.*;
+import scene.Scene;
+
+/**
+ * Testing batch rendering of several views of one scene
+ */
+class RenderBatchTests {
+    /** The target of the views */
+    private final Point target = new Point(0, 0, -100);
+    /** Camera builder for the tests - of the views, each at its location and resolution */
+    private final Camera.Builder cameraBuilder = Camera.getBuilder()
+            .setVpDistance(100).setVpSize(150, 150)
+            .setTileSize(8);
+
+    /**
+     * Test method for {@link renderer.RenderBatch#render(RenderBatch.ViewListener)}.
+     */
+    @Test
+    void testRender() {
+        Scene scene = new Scene("Batch test scene");
+        scene.geometries.add(new Sphere(target, 50).setEmission(new Color(30, 60, 200))
+                        .setMaterial(new Material().setKD(0.5).setKS(0.5).setShininess(30)),
+                new Sphere(new Point(60, 0, -100), 20).setEmission(new Color(200, 60, 30)));
+        scene.lights.add(new PointLight(new Color(500, 300, 0), new Point(-50, -50, 25)));
+
+        Point[] locations = { new Point(-3, 0, 0), new Point(3, 0, 0), new Point(100, 20, -100) };
+        int[][] resolutions = { { 40, 30 }, { 40, 30 }, { 25, 45 } };
+        ImageWriter[] expected = new ImageWriter[locations.length];
+        RenderBatch batch = new RenderBatch(scene).setPool(new ForkJoinPool(3));
+        for (int i = 0; i < locations.length; ++i) {
+            cameraBuilder.setLocation(locations[i]).setDirection(target)
+                    .setResolution(resolutions[i][0], resolutions[i][1]);
+            expected[i] = cameraBuilder.setRayTracer(scene, RayTracerType.SIMPLE).build().renderImage()
+                    .getImageWriter();
+            batch.add(cameraBuilder);
+        }
+        assertEquals(3, batch.getViews().size(), "Wrong amount of views");
+        AtomicIntegerArray done = new AtomicIntegerArray(3);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: each view is the image of its camera rendered separately
+        batch.render((view, camera) -> {
+            done.incrementAndGet(view);
+            ImageWriter actual = camera.getImageWriter();
+            for (int y = 0; y < expected[view].getNy(); ++y)
+                for (int x = 0; x < expected[view].getNx(); ++x)
+                    assertEquals(expected[view].getPixel(x, y), actual.getPixel(x, y),
+                            "Wrong pixel " + x + "," + y + " of view " + view);
+        });
+        for (int i = 0; i < 3; ++i)
+            assertEquals(1, done.get(i), "View " + i + " not rendered once");
+
+        // =============== Boundary Values Tests ==================
+        // TC10: a batch without views
+        assertThrows(IllegalStateException.class, () -> new RenderBatch(scene).render((view, camera) -> { }),
+                "Batch without views");
+
+        // TC11: a view rendered otherwise than every pixel at once in memory
+        assertThrows(IllegalArgumentException.class,
+                () -> batch.add(cameraBuilder.setTimeBudget(Duration.ofSeconds(1))), "View with a time budget");
+        cameraBuilder.setTimeBudget(Duration.ZERO);
+        assertThrows(IllegalArgumentException.class,
+                () -> batch.add(cameraBuilder.setProgressive(4, null)), "Progressive view");
+        cameraBuilder.setProgressive(1, null);
+        assertThrows(IllegalArgumentException.class,
+                () -> batch.add(cameraBuilder.setMetrics(true)), "View with metrics");
+    }
+}
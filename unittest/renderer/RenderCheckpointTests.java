@@ -0,0 +1,65 @@
+package renderer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.*;
+import lighting.*;
+import primitives.*;
+import scene.Scene;
+
+/**
+ * Testing rendering with a checkpoint file
+ */
+class RenderCheckpointTests {
+    /** Camera builder for the tests */
+    private final Camera.Builder cameraBuilder = Camera.getBuilder()
+            .setLocation(Point.ZERO).setDirection(new Vector(0, 0, -1), new Vector(0, 1, 0))
+            .setVpDistance(100).setVpSize(150, 150)
+            .setResolution(70, 50).setTileSize(8);
+
+    /**
+     * Test method for {@link renderer.Camera#renderImage()} with a checkpoint.
+     * @throws IOException if the checkpoint file cannot be created
+     */
+    @Test
+    void testCheckpointResume() throws IOException {
+        Scene scene = new Scene("Checkpoint test scene");
+        scene.geometries.add(new Sphere(new Point(0, 0, -100), 50).setEmission(new Color(30, 60, 200))
+                .setMaterial(new Material().setKD(0.5).setKS(0.5).setShininess(30)));
+        scene.lights.add(new PointLight(new Color(500, 300, 0), new Point(-50, -50, 25)));
+        Scene empty = new Scene("Empty");
+
+        Path file = Files.createTempFile("checkpoint", ".bin");
+        try {
+            ImageWriter rendered = cameraBuilder.setRayTracer(scene, RayTracerType.SIMPLE)
+                    .setCheckpoint(file, false).build().renderImage().getImageWriter();
+
+            // ============ Equivalence Partitions Tests ==============
+            // TC01: resuming a complete checkpoint restores all the pixels and renders no tile -
+            // the empty scene would render black
+            ImageWriter resumed = cameraBuilder.setRayTracer(empty, RayTracerType.SIMPLE)
+                    .setCheckpoint(file, true).build().renderImage().getImageWriter();
+            for (int y = 0; y < 50; ++y)
+                for (int x = 0; x < 70; ++x)
+                    assertEquals(rendered.getPixel(x, y), resumed.getPixel(x, y), "Wrong pixel " + x + "," + y);
+
+            // TC02: a new checkpoint ignores the tiles of the old one
+            ImageWriter restarted = cameraBuilder.setCheckpoint(file, false).build().renderImage().getImageWriter();
+            assertEquals(0, restarted.getPixel(35, 25), "Tile restored from a discarded checkpoint");
+
+            // =============== Boundary Values Tests ==================
+            // TC10: resuming from a checkpoint of another tile size fails
+            Camera resized = cameraBuilder.setRayTracer(scene, RayTracerType.SIMPLE).setCheckpoint(file, true)
+                    .setTileSize(16).build();
+            assertThrows(IllegalStateException.class, resized::renderImage, "Checkpoint of another tile size resumed");
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package renderer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.*;
+import lighting.*;
+import primitives.*;
+import scene.Scene;
+
+/**
+ * Testing the metrics of a render
+ */
+class RenderMetricsTests {
+    /** Camera builder for the tests */
+    private final Camera.Builder cameraBuilder = Camera.getBuilder()
+            .setLocation(Point.ZERO).setDirection(new Vector(0, 0, -1), new Vector(0, 1, 0))
+            .setVpDistance(100).setVpSize(200, 200)
+            .setResolution(40, 30).setTileSize(8)
+            .setMultithreading(2);
+
+    /**
+     * Test method for {@link renderer.Camera#getMetrics()}.
+     */
+    @Test
+    void testMetrics() {
+        Scene scene = new Scene("Metrics test scene");
+        List<Intersectable> objects = new ArrayList<>();
+        objects.add(new Sphere(new Point(0, 0, -100), 40).setEmission(new Color(30, 60, 200))
+                .setMaterial(new Material().setKD(0.5).setKS(0.5).setShininess(30).setKr(0.3)));
+        for (int i = 0; i < 8; ++i)
+            objects.add(new Sphere(new Point(-70 + 20 * i, 50, -120), 8).setEmission(new Color(100, 30, 30))
+                    .setMaterial(new Material().setKD(0.5)));
+        scene.geometries.add(BVHBuilder.buildBVH(objects, Precision.DOUBLE));
+        scene.lights.add(new PointLight(new Color(500, 300, 0), new Point(-50, -50, 25)));
+        cameraBuilder.setRayTracer(scene, RayTracerType.SIMPLE).setMetrics(true);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the rays and the work of a render are counted per category and per thread
+        RenderMetrics metrics = cameraBuilder.build().renderImage().getMetrics();
+        assertEquals(40 * 30, metrics.getPixels(), "Wrong amount of pixels");
+        assertEquals(40 * 30, metrics.getPrimaryRays(), "A primary ray per pixel");
+        assertTrue(metrics.getShadowRays() > 0, "Shadow rays not counted");
+        assertTrue(metrics.getReflectedRays() > 0, "Reflected rays not counted");
+        assertEquals(0, metrics.getRefractedRays(), "No transparent material");
+        assertTrue(metrics.getNodeVisits() > 0, "BVH nodes not counted");
+        assertTrue(metrics.getBoxTests() >= metrics.getNodeVisits(), "Box tests not counted");
+        assertTrue(metrics.getPrimitiveTests() > 0, "Primitive tests not counted");
+        assertTrue(metrics.getMraysPerSecond() > 0, "No throughput");
+        assertEquals(40 * 30, metrics.getThreads().stream().mapToLong(RenderMetrics.ThreadWork::pixels).sum(),
+                "Threads' pixels do not add up");
+        assertEquals(metrics.getRays(), metrics.getThreads().stream().mapToLong(RenderMetrics.ThreadWork::rays).sum(),
+                "Threads' rays do not add up");
+        assertTrue(metrics.getWorkBalance() > 0 && metrics.getWorkBalance() <= 1, "Wrong work balance");
+        assertFalse(TraversalCounters.isEnabled(), "Counting left on");
+
+        // TC02: the JSON export holds the counters
+        String json = metrics.toJson();
+        assertTrue(json.startsWith("{") && json.endsWith("}"), "Not a JSON object");
+        assertTrue(json.contains("\"primary\":" + (40 * 30)), "Primary rays not exported");
+        assertTrue(json.contains("\"threads\":[{\"thread\":"), "Threads not exported");
+
+        // TC03: the same render counts the same work
+        RenderMetrics again = cameraBuilder.build().renderImage().getMetrics();
+        assertEquals(metrics.getRays(), again.getRays(), "Different rays");
+        assertEquals(metrics.getBoxTests(), again.getBoxTests(), "Different box tests");
+
+        // TC04: the metrics of a region render are of the region
+        Camera region = cameraBuilder.build().renderImage().renderRegion(8, 8, 24, 16);
+        assertEquals(16 * 8, region.getMetrics().getPixels(), "Wrong amount of region pixels");
+        assertEquals(16 * 8, region.getMetrics().getPrimaryRays(), "A primary ray per region pixel");
+
+        // TC05: a primary ray is counted once per pixel when the reprojection cache finds its hit first
+        Camera reprojected = cameraBuilder.setReprojectionCache(new ReprojectionCache().setValidation(true)).build();
+        reprojected.renderImage();
+        assertEquals(40 * 30, reprojected.renderImage().getMetrics().getPrimaryRays(), "Primary rays counted twice");
+
+        // TC06: the work of the virtual threads - a thread per tile - is merged per slot of the tiles rendered at once
+        RenderMetrics virtual = cameraBuilder.setReprojectionCache(null).setTileSize(2).setMultithreading(-3).build()
+                .renderImage().getMetrics();
+        assertEquals(40 * 30, virtual.getPixels(), "Wrong amount of pixels");
+        assertTrue(virtual.getThreads().size() < 20 * 15, "A thread per tile");
+        assertEquals(20 * 15, virtual.getThreads().stream().mapToLong(RenderMetrics.ThreadWork::tiles).sum(),
+                "Slots' tiles do not add up");
+
+        // TC07: a progressive render counts each pixel once - in the pass that casts it
+        RenderMetrics progressive = cameraBuilder.setTileSize(8).setMultithreading(2).setProgressive(4, null).build()
+                .renderImage().getMetrics();
+        assertEquals(40 * 30, progressive.getPixels(), "Wrong amount of pixels");
+        assertEquals(40 * 30, progressive.getPrimaryRays(), "A primary ray per pixel");
+
+        // TC08: a region render with a mask counts the pixels in the mask only
+        Camera masked = cameraBuilder.setProgressive(1, null).build().renderImage()
+                .renderRegion(8, 8, 24, 16, (x, y) -> (x + y) % 2 == 0);
+        assertEquals(16 * 8 / 2, masked.getMetrics().getPixels(), "Pixels outside the mask counted");
+
+        // =============== Boundary Values Tests ==================
+        // TC10: no metrics unless collected
+        assertNull(cameraBuilder.setMetrics(false).build().renderImage().getMetrics(), "Metrics not collected");
+    }
+}
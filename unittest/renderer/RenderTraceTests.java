@@ -0,0 +1,113 @@
+package renderer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.*;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
+import lighting.*;
+import primitives.*;
+import scene.Scene;
+
+/**
+ * Testing the timeline trace of renders
+ */
+class RenderTraceTests {
+    /** Camera builder for the tests - 5 x 4 tiles */
+    private final Camera.Builder cameraBuilder = Camera.getBuilder()
+            .setLocation(Point.ZERO).setDirection(new Vector(0, 0, -1), new Vector(0, 1, 0))
+            .setVpDistance(100).setVpSize(200, 200)
+            .setResolution(40, 30).setTileSize(8)
+            .setMultithreading(2);
+
+    /**
+     * Count the occurrences of a text
+     * @param  text the text
+     * @param  part the text to count
+     * @return      the amount of occurrences
+     */
+    private static int count(String text, String part) {
+        int count = 0;
+        for (int i = text.indexOf(part); i >= 0; i = text.indexOf(part, i + part.length())) ++count;
+        return count;
+    }
+
+    /**
+     * Test method for {@link renderer.RenderTrace#toJson()}.
+     */
+    @Test
+    void testTrace() {
+        Scene scene = new Scene("Trace test scene");
+        List<Intersectable> objects = new ArrayList<>();
+        for (int i = 0; i < 8; ++i)
+            objects.add(new Sphere(new Point(-70 + 20 * i, 0, -120), 8).setEmission(new Color(100, 30, 30))
+                    .setMaterial(new Material().setKD(0.5)));
+        scene.lights.add(new PointLight(new Color(500, 300, 0), new Point(-50, -50, 25)));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the BVH build phases, the tiles, the render and the encoding are traced
+        String json;
+        try (RenderTrace trace = RenderTrace.start()) {
+            scene.geometries.add(BVHBuilder.buildBVH(objects, Precision.DOUBLE));
+            cameraBuilder.setRayTracer(scene, RayTracerType.SIMPLE).build().renderImage().writeToImage("trace test");
+            json = trace.toJson();
+            assertEquals(count(json, "\"ph\":\"X\""), trace.getSpanCount(), "Spans not all exported");
+        }
+        assertTrue(json.startsWith("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[") && json.endsWith("]}"),
+                "Not a trace event file");
+        assertEquals(20, count(json, "\"name\":\"tile\""), "A span per tile");
+        assertEquals(1, count(json, "\"name\":\"SAH build\""), "BVH build not traced");
+        assertEquals(1, count(json, "\"name\":\"compile\""), "BVH compilation not traced");
+        assertEquals(1, count(json, "\"name\":\"render image\""), "Render not traced");
+        assertEquals(1, count(json, "\"name\":\"write PNG\""), "Image writing not traced");
+        assertTrue(count(json, "\"name\":\"deflate strip\"") >= 1, "Encoding not traced");
+        assertTrue(count(json, "\"name\":\"thread_name\"") >= 2, "Threads not named");
+
+        // TC02: the spans are committed as JFR events while a flight recording enables them
+        long events;
+        try (Recording recording = new Recording()) {
+            recording.enable("renderer.Span");
+            recording.start();
+            try (RenderTrace trace = RenderTrace.start()) {
+                cameraBuilder.build().renderImage();
+                assertEquals(21, trace.getSpanCount(), "A span per tile and for the render");
+            }
+            recording.stop();
+            Path file = Files.createTempFile("trace", ".jfr");
+            try {
+                recording.dump(file);
+                events = RecordingFile.readAllEvents(file).stream()
+                        .filter(event -> event.getEventType().getName().equals("renderer.Span")).count();
+            } finally {
+                Files.delete(file);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        assertEquals(21, events, "A JFR event per tile and for the render");
+
+        // =============== Boundary Values Tests ==================
+        // TC10: nothing is traced when no trace is started
+        RenderTrace stopped;
+        try (RenderTrace trace = RenderTrace.start()) {
+            stopped = trace;
+        }
+        cameraBuilder.build().renderImage();
+        assertEquals(0, stopped.getSpanCount(), "Traced after the trace stopped");
+        assertNull(RenderTrace.begin("render", "test", null), "A span without a trace");
+
+        // TC11: one trace at a time
+        try (RenderTrace trace = RenderTrace.start()) {
+            assertThrows(IllegalStateException.class, RenderTrace::start, "Two traces at a time");
+            assertEquals(0, trace.getSpanCount(), "Spans of the refused trace");
+        }
+    }
+}
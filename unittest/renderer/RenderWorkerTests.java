@@ -0,0 +1,147 @@
+package renderer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.*;
+import lighting.*;
+import primitives.*;
+import scene.Scene;
+
+/**
+ * Testing distributed rendering on local worker threads
+ */
+class RenderWorkerTests {
+    /** Camera builder for the tests */
+    private final Camera.Builder cameraBuilder = Camera.getBuilder()
+            .setLocation(Point.ZERO).setDirection(new Vector(0, 0, -1), new Vector(0, 1, 0))
+            .setVpDistance(100).setVpSize(150, 150)
+            .setResolution(70, 50).setTileSize(8);
+
+    /**
+     * Find a local port nobody listens on
+     * @return the address
+     * @throws IOException if no port is free
+     */
+    private static InetSocketAddress deadWorker() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return new InetSocketAddress("localhost", socket.getLocalPort());
+        }
+    }
+
+    /**
+     * Test method for {@link renderer.Camera#renderImage()} with workers.
+     * @throws IOException if the workers cannot listen
+     */
+    @Test
+    void testDistributedRender() throws IOException {
+        Scene scene = new Scene("Distributed test scene");
+        scene.geometries.add(new Sphere(new Point(0, 0, -100), 50).setEmission(new Color(30, 60, 200))
+                .setMaterial(new Material().setKD(0.5).setKS(0.5).setShininess(30)));
+        scene.lights.add(new PointLight(new Color(500, 300, 0), new Point(-50, -50, 25)));
+        ImageWriter expected = cameraBuilder.setRayTracer(scene, RayTracerType.SIMPLE).build().renderImage()
+                .getImageWriter();
+
+        try (RenderWorker worker1 = new RenderWorker(0, 2).start();
+             RenderWorker worker2 = new RenderWorker(0, 1).start()) {
+            // ============ Equivalence Partitions Tests ==============
+            // TC01: two workers and a dead one render the same image as a local render
+            ImageWriter distributed = cameraBuilder.setWorkers(new InetSocketAddress("localhost", worker1.getPort()),
+                    new InetSocketAddress("localhost", worker2.getPort()), deadWorker())
+                    .build().renderImage().getImageWriter();
+            for (int y = 0; y < 50; ++y)
+                for (int x = 0; x < 70; ++x)
+                    assertEquals(expected.getPixel(x, y), distributed.getPixel(x, y), "Wrong pixel " + x + "," + y);
+        }
+
+        // =============== Boundary Values Tests ==================
+        // TC10: all the workers are dead - the image is rendered locally
+        ImageWriter local = cameraBuilder.setWorkers(deadWorker()).build().renderImage().getImageWriter();
+        assertEquals(expected.getPixel(35, 25), local.getPixel(35, 25), "Wrong pixel rendered locally");
+    }
+
+    /**
+     * Test method for {@link renderer.RenderWorker} reading the camera.
+     * @throws IOException if the worker cannot listen
+     */
+    @Test
+    void testCameraTransfer() throws IOException {
+        Scene bvhScene = new Scene("Distributed BVH test scene");
+        List<Intersectable> objects = new ArrayList<>();
+        for (int i = 0; i < 8; ++i) {
+            objects.add(new Sphere(new Point(-70 + 20 * i, 10, -120), 8).setEmission(new Color(100, 30, 30))
+                    .setMaterial(new Material().setKD(0.5)));
+            objects.add(new Triangle(new Point(-70 + 20 * i, -30, -120), new Point(-60 + 20 * i, -30, -120),
+                    new Point(-65 + 20 * i, -15, -120)).setEmission(new Color(30, 100, 30)));
+        }
+        bvhScene.geometries.add(BVHBuilder.buildBVH(objects, Precision.DOUBLE));
+        bvhScene.lights.add(new PointLight(new Color(500, 300, 0), new Point(-50, -50, 25)));
+        ImageWriter expected = cameraBuilder.setRayTracer(bvhScene, RayTracerType.SIMPLE).build().renderImage()
+                .getImageWriter();
+
+        try (RenderWorker worker = new RenderWorker(0, 2).start()) {
+            InetSocketAddress address = new InetSocketAddress("localhost", worker.getPort());
+            // ============ Equivalence Partitions Tests ==============
+            // TC01: a scene with a compiled BVH is sent to the worker and rendered by it
+            ImageWriter distributed = cameraBuilder.setWorkers(address).build().renderImage().getImageWriter();
+            for (int y = 0; y < 50; ++y)
+                for (int x = 0; x < 70; ++x)
+                    assertEquals(expected.getPixel(x, y), distributed.getPixel(x, y), "Wrong pixel " + x + "," + y);
+
+            // TC02: a camera which cannot be sent fails the render instead of dropping the worker
+            Scene brokenScene = new Scene("Not serializable scene");
+            brokenScene.lights.add(new LightSource() {
+                @Override
+                public Color getIntensity(Point p) { return Color.BLACK; }
+
+                @Override
+                public Vector getL(Point p) { return new Vector(0, 0, -1); }
+
+                @Override
+                public double getDistance(Point point) { return Double.POSITIVE_INFINITY; }
+            });
+            Camera broken = cameraBuilder.setRayTracer(brokenScene, RayTracerType.SIMPLE).build();
+            assertThrows(IllegalStateException.class, broken::renderImage, "Camera not serializable");
+
+            // TC03: the worker rejects any object but a camera of the ray tracer's classes
+            try (Socket socket = new Socket("localhost", worker.getPort())) {
+                ObjectOutputStream out = new ObjectOutputStream(socket.getOutputStream());
+                out.writeObject(new AtomicInteger(5));
+                out.flush();
+                ObjectInputStream in = new ObjectInputStream(socket.getInputStream());
+                assertEquals(-1, in.readInt(), "Foreign object accepted");
+            }
+
+            // TC04: the worker rejects an oversized array before reading it
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream array = new ObjectOutputStream(bytes)) {
+                array.writeObject(new int[1]);
+            }
+            byte[] stream = bytes.toByteArray();
+            ByteBuffer.wrap(stream).putInt(stream.length - 8, Integer.MAX_VALUE); // the length, before the element
+            try (Socket socket = new Socket("localhost", worker.getPort())) {
+                socket.setSoTimeout(10000);
+                socket.getOutputStream().write(stream, 0, stream.length - 4);
+                socket.getOutputStream().flush();
+                ObjectInputStream in = new ObjectInputStream(socket.getInputStream());
+                assertEquals(-1, in.readInt(), "Oversized array accepted");
+            }
+        }
+
+        // =============== Boundary Values Tests ==================
+        // TC10: the worker listens on the loopback address by default
+        try (RenderWorker worker = new RenderWorker(0, 1)) {
+            assertTrue(worker.getAddress().isLoopbackAddress(), "Worker listens on a network");
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package renderer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.*;
+import lighting.*;
+import primitives.*;
+import scene.Scene;
+
+/**
+ * Testing the temporal reprojection cache
+ */
+class ReprojectionCacheTests {
+    /** The target of the cameras */
+    private final Point target = new Point(0, 0, -100);
+    /** Camera builder for the tests */
+    private final Camera.Builder cameraBuilder = Camera.getBuilder()
+            .setLocation(new Point(0, 20, 100)).setDirection(target)
+            .setVpDistance(100).setVpSize(150, 100)
+            .setResolution(60, 40);
+
+    /**
+     * Test method for {@link renderer.Camera#renderImage()} with a reprojection cache.
+     */
+    @Test
+    void testReprojection() {
+        // a sphere on a plane - diffuse first, then specular
+        Sphere sphere = new Sphere(target, 40);
+        Scene scene = new Scene("Reprojection test scene");
+        scene.geometries.add(sphere.setEmission(new Color(30, 60, 200)).setMaterial(new Material().setKD(0.5)),
+                new Plane(new Point(0, -40, 0), new Vector(0, 1, 0)).setEmission(new Color(40, 40, 40))
+                        .setMaterial(new Material().setKD(0.6)));
+        scene.lights.add(new PointLight(new Color(500, 300, 0), new Point(-50, 80, 25)));
+        cameraBuilder.setRayTracer(scene, RayTracerType.SIMPLE);
+        ImageWriter expected = cameraBuilder.build().renderImage().getImageWriter();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the same view again reuses the diffuse pixels with no error
+        ReprojectionCache cache = new ReprojectionCache().setValidation(true);
+        Camera camera = cameraBuilder.setReprojectionCache(cache).build();
+        camera.renderImage();
+        assertEquals(0, cache.getReusedPixels(), "Pixels reused in the first frame");
+        ImageWriter again = camera.renderImage().getImageWriter();
+        assertTrue(cache.getReusedPixels() > 0, "No pixel reused");
+        assertEquals(0, cache.getMaxError(), 0.001, "Wrong reused color");
+        for (int y = 0; y < 40; ++y)
+            for (int x = 0; x < 60; ++x)
+                assertEquals(expected.getPixel(x, y), again.getPixel(x, y), "Wrong pixel " + x + "," + y);
+
+        // TC02: a rotated camera reuses part of the pixels
+        Animation.turntable(camera, target, 2, 2).render((frame, frameCamera) -> {
+            if (frame == 1) assertTrue(cache.getReusedPixels() > 0, "No pixel reused after rotation");
+        });
+
+        // TC03: a validated frame traverses the scene once per pixel - as much as a render without the cache
+        RenderMetrics plain = cameraBuilder.setReprojectionCache(null).setMetrics(true).build().renderImage()
+                .getMetrics();
+        Camera validated = cameraBuilder.setReprojectionCache(new ReprojectionCache().setValidation(true)).build();
+        validated.renderImage();
+        RenderMetrics reprojected = validated.renderImage().getMetrics();
+        assertEquals(plain.getBoxTests() + plain.getPrimitiveTests(),
+                reprojected.getBoxTests() + reprojected.getPrimitiveTests(), "Pixels traversed twice");
+
+        // =============== Boundary Values Tests ==================
+        // TC10: view dependent surfaces are traced again
+        sphere.setMaterial(new Material().setKD(0.5).setKS(0.5).setShininess(30));
+        ReprojectionCache specularCache = new ReprojectionCache();
+        Camera specular = cameraBuilder.setReprojectionCache(specularCache).setMetrics(false).build();
+        specular.renderImage();
+        specular.renderImage();
+        assertEquals(specularCache.getReusedPixels() + specularCache.getTracedPixels(), 60 * 40,
+                "Wrong amount of pixels");
+        ImageWriter image = specular.getImageWriter();
+        ImageWriter full = cameraBuilder.setReprojectionCache(null).build().renderImage().getImageWriter();
+        assertEquals(full.getPixel(30, 20), image.getPixel(30, 20), "Specular pixel reused");
+    }
+}
@@ -0,0 +1,107 @@
+package renderer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.*;
+import lighting.*;
+import primitives.*;
+import scene.Scene;
+
+/**
+ * Testing out-of-core rendering into a tiled image streamed to its file
+ */
+class TiledImageTests {
+    /** Scene for the tests */
+    private final Scene scene = new Scene("Out-of-core test scene");
+
+    /** Default constructor - builds the scene */
+    TiledImageTests() {
+        scene.geometries.add(new Sphere(new Point(0, 0, -100), 50).setEmission(new Color(30, 60, 200))
+                .setMaterial(new Material().setKD(0.5).setKS(0.5).setShininess(30)));
+        scene.lights.add(new PointLight(new Color(500, 300, 0), new Point(-50, -50, 25)));
+    }
+
+    /**
+     * Build a camera builder
+     * @param  threads the threads mode of the rendering
+     * @return         the camera builder
+     */
+    private Camera.Builder builder(int threads) {
+        return Camera.getBuilder()
+                .setLocation(Point.ZERO).setDirection(new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setVpDistance(100).setVpSize(150, 150)
+                .setResolution(70, 50).setTileSize(8)
+                .setRayTracer(scene, RayTracerType.SIMPLE)
+                .setMultithreading(threads);
+    }
+
+    /**
+     * Test method for {@link renderer.Camera#renderImage()} out of core.
+     * @throws IOException if the image files cannot be created or read
+     */
+    @Test
+    void testOutOfCore() throws IOException {
+        ImageWriter expected = builder(0).build().renderImage().getImageWriter();
+        Path directory = Files.createTempDirectory("outofcore");
+        Path png = directory.resolve("image.png");
+        Path raw = directory.resolve("image.raw");
+        try {
+            // ============ Equivalence Partitions Tests ==============
+            // TC01: the streamed PNG image is the image rendered in memory, in each threads mode
+            for (int threads : new int[] { 0, 3, -4 }) {
+                Camera camera = builder(threads).setOutOfCore(png, ImageFormat.PNG).build();
+                assertNull(camera.getImageWriter(), "Out-of-core image is held in memory");
+                camera.renderImage();
+                BufferedImage image = ImageIO.read(png.toFile());
+                for (int y = 0; y < 50; ++y)
+                    for (int x = 0; x < 70; ++x)
+                        assertEquals(expected.getPixel(x, y), image.getRGB(x, y) & 0xFFFFFF,
+                                "Wrong pixel " + x + "," + y + " with threads " + threads);
+            }
+
+            // TC02: the streamed raw image is the image rendered in memory
+            builder(2).setOutOfCore(raw, ImageFormat.RAW).build().renderImage();
+            ByteBuffer pixels = ByteBuffer.wrap(Files.readAllBytes(raw)).order(ByteOrder.LITTLE_ENDIAN);
+            assertEquals(70 * 50 * Integer.BYTES, pixels.capacity(), "Wrong raw image size");
+            for (int y = 0; y < 50; ++y)
+                for (int x = 0; x < 70; ++x)
+                    assertEquals(expected.getPixel(x, y), pixels.getInt((y * 70 + x) * Integer.BYTES),
+                            "Wrong raw pixel " + x + "," + y);
+
+            // TC03: the temporary pixels' file is deleted
+            try (var files = Files.list(directory)) {
+                assertEquals(2, files.count(), "Temporary file left");
+            }
+
+            // =============== Boundary Values Tests ==================
+            // TC10: the image is not in memory to be written again
+            assertThrows(IllegalStateException.class,
+                    () -> builder(0).setOutOfCore(png, ImageFormat.PNG).build().writeToImage("outOfCore"),
+                    "Out-of-core image written from memory");
+
+            // TC11: the floating point format cannot be streamed
+            assertThrows(IllegalArgumentException.class,
+                    () -> builder(0).setOutOfCore(png, ImageFormat.PFM), "PFM streamed");
+
+            // TC12: passes cannot be rendered out of core
+            assertThrows(IllegalArgumentException.class,
+                    () -> builder(0).setOutOfCore(png, ImageFormat.PNG).setProgressive(4, null).build(),
+                    "Progressive out-of-core rendering");
+        } finally {
+            Files.deleteIfExists(png);
+            Files.deleteIfExists(raw);
+            Files.deleteIfExists(directory);
+        }
+    }
+}
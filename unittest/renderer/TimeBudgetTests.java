@@ -0,0 +1,75 @@
+package renderer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.*;
+import lighting.*;
+import primitives.*;
+import scene.Scene;
+
+/**
+ * Testing time budgeted rendering
+ */
+class TimeBudgetTests {
+    /** Camera builder for the tests */
+    private final Camera.Builder cameraBuilder = Camera.getBuilder()
+            .setLocation(Point.ZERO).setDirection(new Vector(0, 0, -1), new Vector(0, 1, 0))
+            .setVpDistance(100).setVpSize(150, 150)
+            .setResolution(64, 48);
+
+    /**
+     * Test method for {@link renderer.Camera.Builder#setTimeBudget(Duration)}.
+     */
+    @Test
+    void testTimeBudget() {
+        Scene scene = new Scene("Time budget test scene");
+        scene.geometries.add(
+                new Sphere(new Point(0, 0, -100), 40).setEmission(new Color(30, 60, 200))
+                        .setMaterial(new Material().setKD(0.5).setKS(0.5).setShininess(30).setKr(0.3)),
+                new Plane(new Point(0, -40, 0), new Vector(0, 1, 0)).setEmission(new Color(40, 40, 40))
+                        .setMaterial(new Material().setKD(0.5)));
+        scene.lights.add(new PointLight(new Color(500, 300, 0), new Point(-50, 50, 25)).setRadius(10));
+        cameraBuilder.setRayTracer(new SimpleRayTracer(scene)).setMultithreading(2);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a budget the image fits in renders it in the configured quality (no soft shadows - they are
+        // sampled randomly)
+        ImageWriter full = cameraBuilder.build().renderImage().getImageWriter();
+        ImageWriter budgeted = cameraBuilder.setTimeBudget(Duration.ofSeconds(60)).build().renderImage()
+                .getImageWriter();
+        for (int y = 0; y < 48; ++y)
+            for (int x = 0; x < 64; ++x)
+                assertEquals(full.getPixel(x, y), budgeted.getPixel(x, y), "Quality lowered within the budget");
+
+        // TC02: a tight budget lowers the quality of the render only - not of the shared tracer
+        SimpleRayTracer tracer = new SimpleRayTracer(scene).setSoftShadows(true).setGridResolution(8);
+        int[] passes = { 0 };
+        cameraBuilder.setRayTracer(tracer).setTimeBudget(Duration.ofMillis(1)).setProgressive(1, (camera, stride) -> {
+            assertEquals(8, tracer.getGridResolution(), "Shared tracer's grid changed during the render");
+            assertEquals(10, tracer.getMaxLevel(), "Shared tracer's level changed during the render");
+            passes[0]++;
+        }).build().renderImage();
+        assertTrue(passes[0] > 0, "No pass rendered");
+
+        // TC03: a tight budget is kept - up to the slack of the measurements and the last pass - by lowering the
+        // quality: a lit wall casts 1 + 16 * 16 shadow rays per primary ray in the configured quality
+        Scene wall = new Scene("Time budget wall scene");
+        wall.geometries.add(new Plane(new Point(0, 0, -150), new Vector(0, 0, 1)).setEmission(new Color(40, 40, 40))
+                .setMaterial(new Material().setKD(0.5)));
+        wall.lights.add(new PointLight(new Color(500, 300, 0), new Point(0, 0, -50)).setRadius(10));
+        Duration budget = Duration.ofMillis(200);
+        Duration slack = Duration.ofMillis(500);
+        long start = System.nanoTime();
+        RenderMetrics metrics = cameraBuilder
+                .setRayTracer(new SimpleRayTracer(wall).setSoftShadows(true).setGridResolution(16))
+                .setTimeBudget(budget).setProgressive(1, null).setMetrics(true).build().renderImage().getMetrics();
+        long elapsed = System.nanoTime() - start;
+        assertTrue(elapsed <= budget.plus(slack).toNanos(), "Budget exceeded: " + elapsed / 1_000_000 + " ms");
+        assertTrue(metrics.getPrimaryRays() > 0, "No pixel rendered");
+        assertTrue(metrics.getShadowRays() < metrics.getPrimaryRays() * (1 + 16 * 16), "Quality not lowered");
+    }
+}